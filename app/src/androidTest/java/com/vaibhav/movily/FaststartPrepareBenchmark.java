@@ -0,0 +1,102 @@
+package com.vaibhav.movily;
+
+import android.content.Context;
+import android.media.MediaExtractor;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 🚀 Open latency of a moov-at-end file vs. its faststart copy, over a small corpus of sizes.
+ * Times what prepareAsync and every remux pay before the first sample: MediaExtractor open,
+ * track select and the first sample read. Results go to logcat under the class name.
+ * The files were just written, so these are warm-cache numbers - on cold flash the tail seek
+ * costs more, so the gap here is a lower bound.
+ */
+@RunWith(AndroidJUnit4.class)
+public class FaststartPrepareBenchmark {
+
+    private static final String TAG = "FaststartPrepareBench";
+    private static final int[] CORPUS_MB = {8, 32, 128};
+    private static final int ROUNDS = 7;
+
+    private final List<File> created = new ArrayList<>();
+    private File dir;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        dir = new File(context.getCacheDir(), "faststart-bench");
+        dir.mkdirs();
+    }
+
+    @After
+    public void tearDown() {
+        for (File file : created) file.delete();
+        dir.delete();
+    }
+
+    @Test
+    public void openLatency_moovAtEndVsFaststart() throws Exception {
+        for (int megabytes : CORPUS_MB) {
+            // 64 KB AAC-sized samples every 23 ms - a long recording's worth of index at the tail
+            int samples = megabytes * 16;
+            File tail = track(Mp4Fixture.write(new File(dir, "tail_" + megabytes + ".mp4"), true, false,
+                    Mp4Fixture.audio(samples, 64 * 1024, 23, 8)));
+            File front = track(new File(dir, "front_" + megabytes + ".mp4"));
+            try (RandomAccessFile raf = new RandomAccessFile(tail, "r")) {
+                assertTrue(Mp4Faststart.copy(raf.getChannel(), front));
+            }
+
+            List<Long> tailUs = new ArrayList<>(), frontUs = new ArrayList<>();
+            for (int round = 0; round < ROUNDS; round++) {
+                tailUs.add(openMicros(tail));
+                frontUs.add(openMicros(front));
+            }
+            long tailMedian = median(tailUs), frontMedian = median(frontUs);
+            Log.i(TAG, "📊 " + megabytes + " MB: moov-at-end " + tailMedian + "µs, faststart " + frontMedian
+                    + "µs (" + (tailMedian - frontMedian) + "µs saved, median of " + ROUNDS + ")");
+        }
+    }
+
+    private File track(File file) {
+        created.add(file);
+        return file;
+    }
+
+    private static long openMicros(File file) throws Exception {
+        long started = SystemClock.elapsedRealtimeNanos();
+        MediaExtractor extractor = new MediaExtractor();
+        try {
+            extractor.setDataSource(file.getAbsolutePath());
+            assertEquals(1, extractor.getTrackCount());
+            extractor.selectTrack(0);
+            assertTrue(extractor.readSampleData(ByteBuffer.allocate(128 * 1024), 0) > 0);
+        } finally {
+            extractor.release();
+        }
+        return (SystemClock.elapsedRealtimeNanos() - started) / 1000;
+    }
+
+    private static long median(List<Long> values) {
+        List<Long> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        return sorted.get(sorted.size() / 2);
+    }
+}
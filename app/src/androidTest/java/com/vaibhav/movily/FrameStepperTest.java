@@ -0,0 +1,173 @@
+package com.vaibhav.movily;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.media.Image;
+import android.media.MediaCodec;
+import android.media.MediaCodecInfo;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.media.MediaMuxer;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * 🎞️ Stepping across GOP boundaries on a real decoder. The clip is encoded on the device:
+ * 10 fps, a keyframe requested every second, so frame 10 starts the second GOP.
+ */
+@RunWith(AndroidJUnit4.class)
+public class FrameStepperTest {
+
+    private static final int WIDTH = 320, HEIGHT = 240;
+    private static final int FRAMES = 30;
+    private static final long FRAME_US = 100_000;
+
+    private File clip;
+    private FrameStepper stepper;
+    private final BlockingQueue<Long> shown = new LinkedBlockingQueue<>();
+
+    @Before
+    public void setUp() throws Exception {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        clip = new File(context.getCacheDir(), "frame-stepper.mp4");
+        encodeClip(clip);
+        stepper = new FrameStepper(VideoTrackInfo.probe(clip.getAbsolutePath()), FrameStepper.DEFAULT_RING_SIZE,
+                new FrameStepper.Listener() {
+                    @Override
+                    public void onFrame(Bitmap frame, long ptsUs) {
+                        shown.add(ptsUs);
+                    }
+
+                    @Override
+                    public void onError(String message) {
+                        shown.add(-1L);
+                    }
+                });
+    }
+
+    @After
+    public void tearDown() {
+        if (stepper != null) stepper.release();
+        clip.delete();
+    }
+
+    @Test
+    public void stepBack_fromKeyframe_reachesPreviousGop() throws Exception {
+        long keyframeUs = secondKeyframeUs(clip);
+        assertTrue("encoder produced a single GOP", keyframeUs > 0);
+
+        stepper.step((int) (keyframeUs / 1000), 0);
+        assertEquals(keyframeUs, next());
+
+        // The ring now starts at the keyframe - stepping back must decode the GOP before it
+        stepper.step((int) (keyframeUs / 1000), -1);
+        assertEquals(keyframeUs - FRAME_US, next());
+        stepper.step((int) ((keyframeUs - FRAME_US) / 1000), -1);
+        assertEquals(keyframeUs - 2 * FRAME_US, next());
+
+        stepper.step((int) ((keyframeUs - 2 * FRAME_US) / 1000), 1);
+        assertEquals(keyframeUs - FRAME_US, next());
+        stepper.step((int) ((keyframeUs - FRAME_US) / 1000), 1);
+        assertEquals(keyframeUs, next());
+    }
+
+    private long next() throws InterruptedException {
+        Long pts = shown.poll(5, TimeUnit.SECONDS);
+        assertNotNull("no frame posted", pts);
+        return pts;
+    }
+
+    private static long secondKeyframeUs(File file) throws Exception {
+        MediaExtractor extractor = new MediaExtractor();
+        try {
+            extractor.setDataSource(file.getAbsolutePath());
+            extractor.selectTrack(0);
+            while (extractor.getSampleTime() >= 0) {
+                long pts = extractor.getSampleTime();
+                if (pts > 0 && (extractor.getSampleFlags() & MediaExtractor.SAMPLE_FLAG_SYNC) != 0) return pts;
+                extractor.advance();
+            }
+            return -1;
+        } finally {
+            extractor.release();
+        }
+    }
+
+    // H.264 from flat YUV frames whose brightness ramps with the frame index
+    private static void encodeClip(File output) throws Exception {
+        MediaFormat format = MediaFormat.createVideoFormat(MediaFormat.MIMETYPE_VIDEO_AVC, WIDTH, HEIGHT);
+        format.setInteger(MediaFormat.KEY_COLOR_FORMAT, MediaCodecInfo.CodecCapabilities.COLOR_FormatYUV420Flexible);
+        format.setInteger(MediaFormat.KEY_BIT_RATE, 500_000);
+        format.setInteger(MediaFormat.KEY_FRAME_RATE, 10);
+        format.setInteger(MediaFormat.KEY_I_FRAME_INTERVAL, 1);
+
+        MediaCodec encoder = MediaCodec.createEncoderByType(MediaFormat.MIMETYPE_VIDEO_AVC);
+        MediaMuxer muxer = new MediaMuxer(output.getAbsolutePath(), MediaMuxer.OutputFormat.MUXER_OUTPUT_MPEG_4);
+        MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+        try {
+            encoder.configure(format, null, null, MediaCodec.CONFIGURE_FLAG_ENCODE);
+            encoder.start();
+            int track = -1, queued = 0;
+            boolean done = false;
+            while (!done) {
+                if (queued <= FRAMES) {
+                    int inIndex = encoder.dequeueInputBuffer(10_000);
+                    if (inIndex >= 0) {
+                        if (queued == FRAMES) {
+                            encoder.queueInputBuffer(inIndex, 0, 0, queued * FRAME_US,
+                                    MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+                        } else {
+                            Image image = encoder.getInputImage(inIndex);
+                            fill(image, 16 + queued * 7);
+                            encoder.queueInputBuffer(inIndex, 0, WIDTH * HEIGHT * 3 / 2, queued * FRAME_US, 0);
+                        }
+                        queued++;
+                    }
+                }
+                int outIndex = encoder.dequeueOutputBuffer(info, 10_000);
+                if (outIndex == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+                    track = muxer.addTrack(encoder.getOutputFormat());
+                    muxer.start();
+                } else if (outIndex >= 0) {
+                    if (info.size > 0 && (info.flags & MediaCodec.BUFFER_FLAG_CODEC_CONFIG) == 0) {
+                        muxer.writeSampleData(track, encoder.getOutputBuffer(outIndex), info);
+                    }
+                    done = (info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0;
+                    encoder.releaseOutputBuffer(outIndex, false);
+                }
+            }
+            muxer.stop();
+        } finally {
+            encoder.release();
+            muxer.release();
+        }
+    }
+
+    private static void fill(Image image, int luma) {
+        Image.Plane[] planes = image.getPlanes();
+        for (int p = 0; p < planes.length; p++) {
+            ByteBuffer buffer = planes[p].getBuffer();
+            int rows = p == 0 ? HEIGHT : HEIGHT / 2, cols = p == 0 ? WIDTH : WIDTH / 2;
+            byte value = (byte) (p == 0 ? luma : 128);
+            for (int row = 0; row < rows; row++) {
+                for (int col = 0; col < cols; col++) {
+                    buffer.put(row * planes[p].getRowStride() + col * planes[p].getPixelStride(), value);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.vaibhav.movily;
+
+import android.media.MediaCodec;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.util.Log;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// 🔥 Streaming audio decode - hands 16-bit PCM to the sink one codec buffer at a time,
+// reusing a single short[] chunk, so hour-long tracks never sit in memory.
+public class AudioPcmStreamer {
+
+    private static final String TAG = "AudioPcmStreamer";
+    private static final long TIMEOUT_US = 10000;
+
+    public interface Sink {
+        void onFormat(int sampleRate, int channels);
+
+        // Interleaved samples, valid in [0, count) - the array is reused after this returns
+        void onPcm(short[] samples, int count);
+    }
+
+    public interface ProgressListener {
+        void onProgress(float fraction);
+    }
+
+    private AudioPcmStreamer() {}
+
+    // Returns false when the file has no audio track
+    public static boolean stream(String path, Sink sink, ProgressListener progress,
+                                 AtomicBoolean cancelled) throws IOException {
+        return stream(path, 0, Long.MAX_VALUE, sink, progress, cancelled);
+    }
+
+    // Only [startUs, endUs) of the track is decoded
+    public static boolean stream(String path, long startUs, long endUs, Sink sink,
+                                 ProgressListener progress, AtomicBoolean cancelled) throws IOException {
+        MediaExtractor extractor = new MediaExtractor();
+        MediaCodec decoder = null;
+        try {
+            extractor.setDataSource(path);
+            MediaFormat format = null;
+            for (int i = 0; i < extractor.getTrackCount(); i++) {
+                MediaFormat candidate = extractor.getTrackFormat(i);
+                String mime = candidate.getString(MediaFormat.KEY_MIME);
+                if (mime != null && mime.startsWith("audio/")) {
+                    extractor.selectTrack(i);
+                    format = candidate;
+                    break;
+                }
+            }
+            if (format == null) return false;
+
+            long durationUs = format.containsKey(MediaFormat.KEY_DURATION) ?
+                    format.getLong(MediaFormat.KEY_DURATION) : 0;
+            if (startUs > 0) extractor.seekTo(startUs, MediaExtractor.SEEK_TO_PREVIOUS_SYNC);
+            decoder = MediaCodec.createDecoderByType(format.getString(MediaFormat.KEY_MIME));
+            decoder.configure(format, null, null, 0);
+            decoder.start();
+
+            sink.onFormat(format.getInteger(MediaFormat.KEY_SAMPLE_RATE),
+                    format.getInteger(MediaFormat.KEY_CHANNEL_COUNT));
+
+            MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+            short[] chunk = new short[8192];
+            boolean inputDone = false, outputDone = false;
+            float lastReported = 0f;
+
+            while (!outputDone) {
+                if (cancelled != null && cancelled.get()) {
+                    Log.d(TAG, "⏹️ Cancelled");
+                    return true;
+                }
+                if (!inputDone) {
+                    int inIndex = decoder.dequeueInputBuffer(TIMEOUT_US);
+                    if (inIndex >= 0) {
+                        ByteBuffer input = decoder.getInputBuffer(inIndex);
+                        int size = extractor.readSampleData(input, 0);
+                        if (size < 0 || extractor.getSampleTime() >= endUs) {
+                            decoder.queueInputBuffer(inIndex, 0, 0, 0, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+                            inputDone = true;
+                        } else {
+                            decoder.queueInputBuffer(inIndex, 0, size, extractor.getSampleTime(), 0);
+                            extractor.advance();
+                        }
+                    }
+                }
+
+                int outIndex = decoder.dequeueOutputBuffer(info, TIMEOUT_US);
+                if (outIndex == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+                    MediaFormat outFormat = decoder.getOutputFormat();
+                    sink.onFormat(outFormat.getInteger(MediaFormat.KEY_SAMPLE_RATE),
+                            outFormat.getInteger(MediaFormat.KEY_CHANNEL_COUNT));
+                } else if (outIndex >= 0) {
+                    if (info.size > 0 && info.presentationTimeUs >= startUs) {
+                        ByteBuffer output = decoder.getOutputBuffer(outIndex);
+                        output.position(info.offset);
+                        output.limit(info.offset + info.size);
+                        int count = info.size / 2;
+                        if (chunk.length < count) chunk = new short[count];
+                        output.order(ByteOrder.nativeOrder()).asShortBuffer().get(chunk, 0, count);
+                        sink.onPcm(chunk, count);
+                    }
+                    decoder.releaseOutputBuffer(outIndex, false);
+                    if ((info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
+                        outputDone = true;
+                    }
+                    if (progress != null && durationUs > 0) {
+                        float fraction = Math.min(1f, info.presentationTimeUs / (float) durationUs);
+                        if (fraction - lastReported >= 0.01f) {
+                            lastReported = fraction;
+                            progress.onProgress(fraction);
+                        }
+                    }
+                }
+            }
+            if (progress != null) progress.onProgress(1f);
+            return true;
+        } finally {
+            if (decoder != null) {
+                try {
+                    decoder.stop();
+                } catch (Exception ignored) {}
+                decoder.release();
+            }
+            extractor.release();
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.vaibhav.movily;
+
+import android.media.MediaCodec;
+import android.media.MediaCodecInfo;
+import android.media.MediaFormat;
+import android.media.MediaMuxer;
+import android.util.Log;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+
+// ⚡ Audio-only leg of a speed change: decode → WSOLA time-stretch → AAC encode into a temp .m4a.
+// Video never passes through here; it is stream-copied with rescaled timestamps.
+public class AudioSpeedTranscoder {
+
+    private static final String TAG = "AudioSpeedTranscoder";
+    private static final long TIMEOUT_US = 10000;
+    private static final int AAC_BITRATE = 128000;
+
+    private AudioSpeedTranscoder() {}
+
+    // Returns false when there is no audio to stretch
+    public static boolean transcode(String inputPath, List<RemuxEngine.Range> ranges, float speed,
+                                    String outputPath) throws IOException {
+        new File(outputPath).delete();
+        StretchSink sink = new StretchSink(outputPath, speed);
+        try {
+            for (RemuxEngine.Range range : ranges) {
+                if (!AudioPcmStreamer.stream(inputPath, range.startUs, range.endUs, sink, null, null)) {
+                    return false;
+                }
+            }
+            return sink.finish();
+        } finally {
+            sink.release();
+        }
+    }
+
+    private static class StretchSink implements AudioPcmStreamer.Sink, TimeStretcher.Output {
+        private final String outputPath;
+        private final float speed;
+        private TimeStretcher stretcher;
+        private AacEncoder encoder;
+
+        StretchSink(String outputPath, float speed) {
+            this.outputPath = outputPath;
+            this.speed = speed;
+        }
+
+        @Override
+        public void onFormat(int sampleRate, int channels) {
+            if (encoder != null) return;  // first format wins across ranges
+            try {
+                encoder = new AacEncoder(outputPath, sampleRate, channels);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            stretcher = new TimeStretcher(sampleRate, channels, speed, this);
+        }
+
+        @Override
+        public void onPcm(short[] samples, int count) {
+            stretcher.process(samples, count);
+        }
+
+        @Override
+        public void write(short[] samples, int count) {
+            encoder.write(samples, count);
+        }
+
+        boolean finish() {
+            return encoder != null && encoder.finish();
+        }
+
+        void release() {
+            if (encoder != null) encoder.release();
+        }
+    }
+
+    private static class AacEncoder {
+        private final MediaCodec codec;
+        private final MediaMuxer muxer;
+        private final MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+        private final int sampleRate, channels;
+        private int muxerTrack = -1;
+        private boolean muxerStarted = false;
+        private boolean eosSeen = false;
+        private long framesQueued = 0;
+
+        private int inputIndex = -1;
+        private ByteBuffer inputBuffer;
+
+        AacEncoder(String outputPath, int sampleRate, int channels) throws IOException {
+            this.sampleRate = sampleRate;
+            this.channels = channels;
+            MediaFormat format = MediaFormat.createAudioFormat(MediaFormat.MIMETYPE_AUDIO_AAC, sampleRate, channels);
+            format.setInteger(MediaFormat.KEY_AAC_PROFILE, MediaCodecInfo.CodecProfileLevel.AACObjectLC);
+            format.setInteger(MediaFormat.KEY_BIT_RATE, AAC_BITRATE);
+            format.setInteger(MediaFormat.KEY_MAX_INPUT_SIZE, 64 * 1024);
+            codec = MediaCodec.createEncoderByType(MediaFormat.MIMETYPE_AUDIO_AAC);
+            codec.configure(format, null, null, MediaCodec.CONFIGURE_FLAG_ENCODE);
+            codec.start();
+            muxer = new MediaMuxer(outputPath, MediaMuxer.OutputFormat.MUXER_OUTPUT_MPEG_4);
+        }
+
+        void write(short[] samples, int count) {
+            int written = 0;
+            while (written < count) {
+                if (inputIndex < 0) {
+                    inputIndex = codec.dequeueInputBuffer(TIMEOUT_US);
+                    if (inputIndex < 0) {
+                        drain(false);
+                        continue;
+                    }
+                    inputBuffer = codec.getInputBuffer(inputIndex);
+                    inputBuffer.clear();
+                    inputBuffer.order(ByteOrder.nativeOrder());
+                }
+                int space = inputBuffer.remaining() / 2;
+                int n = Math.min(space, count - written);
+                n -= n % channels;
+                if (n > 0) {
+                    inputBuffer.asShortBuffer().put(samples, written, n);
+                    inputBuffer.position(inputBuffer.position() + n * 2);
+                    written += n;
+                }
+                if (inputBuffer.remaining() / 2 < channels) queueInput(0);
+            }
+        }
+
+        private void queueInput(int flags) {
+            int bytes = inputBuffer.position();
+            long ptsUs = framesQueued * 1000000L / sampleRate;
+            codec.queueInputBuffer(inputIndex, 0, bytes, ptsUs, flags);
+            framesQueued += bytes / 2 / channels;
+            inputIndex = -1;
+            inputBuffer = null;
+            drain(false);
+        }
+
+        private void drain(boolean untilEos) {
+            while (!eosSeen) {
+                int outIndex = codec.dequeueOutputBuffer(info, untilEos ? TIMEOUT_US : 0);
+                if (outIndex == MediaCodec.INFO_TRY_AGAIN_LATER) {
+                    if (!untilEos) return;
+                } else if (outIndex == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+                    muxerTrack = muxer.addTrack(codec.getOutputFormat());
+                    muxer.start();
+                    muxerStarted = true;
+                } else if (outIndex >= 0) {
+                    ByteBuffer encoded = codec.getOutputBuffer(outIndex);
+                    boolean config = (info.flags & MediaCodec.BUFFER_FLAG_CODEC_CONFIG) != 0;
+                    if (!config && info.size > 0 && muxerStarted) {
+                        encoded.position(info.offset);
+                        encoded.limit(info.offset + info.size);
+                        muxer.writeSampleData(muxerTrack, encoded, info);
+                    }
+                    codec.releaseOutputBuffer(outIndex, false);
+                    if ((info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) eosSeen = true;
+                }
+            }
+        }
+
+        boolean finish() {
+            if (inputIndex < 0) {
+                do {
+                    inputIndex = codec.dequeueInputBuffer(TIMEOUT_US);
+                    if (inputIndex < 0) drain(false);
+                } while (inputIndex < 0);
+                inputBuffer = codec.getInputBuffer(inputIndex);
+                inputBuffer.clear();
+            }
+            queueInput(MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+            drain(true);
+            if (!muxerStarted) return false;
+            muxer.stop();
+            Log.d(TAG, "⚡ Stretched audio: " + framesQueued * 1000 / sampleRate + "ms");
+            return true;
+        }
+
+        void release() {
+            try {
+                codec.stop();
+            } catch (Exception ignored) {}
+            codec.release();
+            try {
+                muxer.release();
+            } catch (Exception ignored) {}
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.vaibhav.movily;
+
+import android.app.ActivityManager;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.util.Log;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// 🧠 One memory budget for every in-memory cache (decoded frame rings, pooled sample buffers...).
+// Sized from the heap class (smaller share on low-RAM devices) and cut in tiers on onTrimMemory;
+// over budget, the lowest-priority caches are trimmed first. The budget recovers on its own
+// once RECOVERY_MS pass without a new trim signal.
+public class CacheBudgetCoordinator {
+
+    private static final String TAG = "CacheBudget";
+    private static final long RECOVERY_MS = 30_000;
+
+    public static final int PRIORITY_LOW = 0;      // cheap to rebuild (pooled buffers)
+    public static final int PRIORITY_NORMAL = 1;   // costs a decode to rebuild (frame rings)
+    public static final int PRIORITY_HIGH = 2;     // on screen right now
+
+    public interface ManagedCache {
+        long sizeBytes();
+
+        // Called from any thread; implementations hop to their own thread if they need to
+        void trimTo(long maxBytes);
+    }
+
+    private static class Entry {
+        final String name;
+        final int priority;
+        final ManagedCache cache;
+
+        Entry(String name, int priority, ManagedCache cache) {
+            this.name = name;
+            this.priority = priority;
+            this.cache = cache;
+        }
+    }
+
+    private static final List<Entry> entries = new ArrayList<>();
+    private static boolean initialized = false;
+    private static long baseBudget = 32L * 1024 * 1024;
+    private static float pressure = 1f;
+    private static long lastTrimMs = 0;
+
+    private CacheBudgetCoordinator() {}
+
+    // Idempotent - every entry activity calls it
+    public static synchronized void init(Context context) {
+        if (initialized) return;
+        initialized = true;
+        Context appContext = context.getApplicationContext();
+        ActivityManager activityManager = (ActivityManager) appContext.getSystemService(Context.ACTIVITY_SERVICE);
+        if (activityManager != null) {
+            boolean lowRam = activityManager.isLowRamDevice();
+            long heapBytes = activityManager.getMemoryClass() * 1024L * 1024;
+            baseBudget = heapBytes / (lowRam ? 8 : 4);
+            Log.d(TAG, "🧠 Heap class " + heapBytes / (1024 * 1024) + " MB" + (lowRam ? " (low RAM)" : "")
+                    + " → cache budget " + baseBudget / (1024 * 1024) + " MB");
+        }
+        appContext.registerComponentCallbacks(new ComponentCallbacks2() {
+            @Override
+            public void onTrimMemory(int level) {
+                onMemoryPressure(level);
+            }
+
+            @Override
+            public void onConfigurationChanged(Configuration newConfig) {}
+
+            @Override
+            public void onLowMemory() {
+                onMemoryPressure(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+            }
+        });
+    }
+
+    public static void register(String name, int priority, ManagedCache cache) {
+        synchronized (CacheBudgetCoordinator.class) {
+            entries.add(new Entry(name, priority, cache));
+        }
+        enforce();
+    }
+
+    public static synchronized void unregister(ManagedCache cache) {
+        for (int i = entries.size() - 1; i >= 0; i--) {
+            if (entries.get(i).cache == cache) entries.remove(i);
+        }
+    }
+
+    public static synchronized long budgetBytes() {
+        if (pressure < 1f && System.currentTimeMillis() - lastTrimMs > RECOVERY_MS) pressure = 1f;
+        return (long) (baseBudget * pressure);
+    }
+
+    // How many items of itemBytes a single cache may hold: at most half the budget, at least `min`
+    public static int fit(long itemBytes, int wanted, int min) {
+        long share = budgetBytes() / 2;
+        return (int) Math.max(min, Math.min(wanted, share / Math.max(1, itemBytes)));
+    }
+
+    // Trims lowest priority first until the registered caches fit the current budget
+    public static void enforce() {
+        List<Entry> snapshot;
+        synchronized (CacheBudgetCoordinator.class) {
+            snapshot = new ArrayList<>(entries);
+        }
+        Collections.sort(snapshot, (a, b) -> Integer.compare(a.priority, b.priority));
+        long total = 0;
+        for (Entry entry : snapshot) total += entry.cache.sizeBytes();
+        long budget = budgetBytes();
+        for (Entry entry : snapshot) {
+            if (total <= budget) break;
+            long size = entry.cache.sizeBytes();
+            long keep = Math.max(0, size - (total - budget));
+            entry.cache.trimTo(keep);
+            total -= size - keep;
+            Log.d(TAG, "🧠 Trimmed " + entry.name + " " + size / 1024 + " → " + keep / 1024 + " KB");
+        }
+    }
+
+    private static void onMemoryPressure(int level) {
+        float factor;
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+            factor = 0f;       // we're in the LRU list - give everything back
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+            factor = 0.5f;
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            factor = 0.25f;
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            factor = 0.5f;
+        } else {
+            factor = 0.75f;
+        }
+        synchronized (CacheBudgetCoordinator.class) {
+            budgetBytes();  // applies any pending recovery first
+            pressure = Math.min(pressure, factor);
+            lastTrimMs = System.currentTimeMillis();
+        }
+        Log.d(TAG, "🧠 onTrimMemory(" + level + ") → budget " + budgetBytes() / 1024 + " KB");
+        enforce();
+    }
+}
@@ -0,0 +1,26 @@
+package com.vaibhav.movily;
+
+import java.io.File;
+
+// 🔥 Derived-data cache keys - a trim/rotate changes size+mtime, so stale caches never match
+public class CacheKeys {
+
+    private CacheKeys() {}
+
+    public static String forVideo(File videoFile) {
+        String name = videoFile.getName();
+        int dot = name.lastIndexOf('.');
+        if (dot > 0) name = name.substring(0, dot);
+        return name.replaceAll("[^A-Za-z0-9_-]", "_")
+                + "_" + videoFile.length()
+                + "_" + Long.toHexString(videoFile.lastModified());
+    }
+
+    public static File cacheFile(File cacheRoot, String kind, File videoFile, String suffix) {
+        File dir = new File(cacheRoot, kind);
+        dir.mkdirs();
+        File cached = new File(dir, forVideo(videoFile) + suffix);
+        if (cached.exists()) cached.setLastModified(System.currentTimeMillis());  // LRU recency for StorageManager
+        return cached;
+    }
+}
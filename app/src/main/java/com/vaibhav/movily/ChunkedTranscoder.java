@@ -0,0 +1,224 @@
+package com.vaibhav.movily;
+
+import android.content.Context;
+import android.media.MediaCodecInfo;
+import android.media.MediaCodecList;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.Log;
+import androidx.annotation.OptIn;
+import androidx.media3.common.Effect;
+import androidx.media3.common.MediaItem;
+import androidx.media3.common.MimeTypes;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.effect.Presentation;
+import androidx.media3.transformer.Composition;
+import androidx.media3.transformer.DefaultEncoderFactory;
+import androidx.media3.transformer.EditedMediaItem;
+import androidx.media3.transformer.Effects;
+import androidx.media3.transformer.ExportException;
+import androidx.media3.transformer.ExportResult;
+import androidx.media3.transformer.Transformer;
+import androidx.media3.transformer.VideoEncoderSettings;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+// 🗜️ Compress / re-encode export: the timeline is split at keyframes, chunks are transcoded by
+// concurrent Transformer instances (as many as the codecs allow), then stitched by stream-copy
+// concat. Every chunk uses the same encoder settings, so the pieces share one codec config.
+@OptIn(markerClass = UnstableApi.class)
+public class ChunkedTranscoder {
+
+    private static final String TAG = "ChunkedTranscoder";
+    private static final long MIN_CHUNK_US = 10_000_000;   // shorter chunks cost more in codec setup
+    private static final int MAX_PARALLEL_CHUNKS = 4;
+
+    public enum Preset {
+        HD_1080("📺 1080p - high quality", 1080, 8_000_000),
+        HD_720("📱 720p - balanced", 720, 4_000_000),
+        SD_480("💾 480p - smallest", 480, 1_500_000);
+
+        public final String label;
+        public final int shortSide;
+        public final int bitrate;
+
+        Preset(String label, int shortSide, int bitrate) {
+            this.label = label;
+            this.shortSide = shortSide;
+            this.bitrate = bitrate;
+        }
+    }
+
+    private ChunkedTranscoder() {}
+
+    // Blocks the calling (background) thread; Transformers run on their own looper thread
+    public static boolean export(Context context, String inputPath, String outputPath, Preset preset,
+                                 File workDir) throws Exception {
+        long started = System.currentTimeMillis();
+        VideoTrackInfo track = VideoTrackInfo.probe(inputPath);
+        int parallelism = codecParallelism(track);
+        int chunkCount = (int) Math.max(1, Math.min(parallelism * 2L, track.durationUs / MIN_CHUNK_US));
+        List<RemuxEngine.Range> chunks = RemuxEngine.splitRanges(inputPath,
+                RemuxEngine.equalCuts(track.durationUs, chunkCount), track.durationUs);
+
+        List<String> chunkPaths = new ArrayList<>();
+        List<Long> chunkDurations = new ArrayList<>();
+        String prefix = "chunk_" + System.currentTimeMillis() + "_";
+        for (int i = 0; i < chunks.size(); i++) {
+            chunkPaths.add(new File(workDir, prefix + i + ".mp4").getPath());
+            chunkDurations.add(chunks.get(i).durationUs());
+        }
+
+        try {
+            if (chunks.size() == 1) {
+                return transcodeAll(context, inputPath, Collections.singletonList(chunks.get(0)),
+                        Collections.singletonList(outputPath), preset, track, 1);
+            }
+            if (!transcodeAll(context, inputPath, chunks, chunkPaths, preset, track, parallelism)) return false;
+            if (RemuxEngine.concat(chunkPaths, chunkDurations, outputPath)) {
+                Log.d(TAG, "🗜️ " + chunks.size() + " chunks on " + parallelism + " codecs in "
+                        + (System.currentTimeMillis() - started) + "ms");
+                return true;
+            }
+            // Encoder instances disagreed on SPS/PPS - one serial pass still gets the job done
+            Log.w(TAG, "Chunks not concatenable - serial transcode");
+            return transcodeAll(context, inputPath,
+                    Collections.singletonList(new RemuxEngine.Range(0, track.durationUs)),
+                    Collections.singletonList(outputPath), preset, track, 1);
+        } finally {
+            for (String path : chunkPaths) new File(path).delete();
+        }
+    }
+
+    // Runs one Transformer per range, at most `parallelism` at a time
+    private static boolean transcodeAll(Context context, String inputPath, List<RemuxEngine.Range> ranges,
+                                        List<String> outputPaths, Preset preset, VideoTrackInfo track,
+                                        int parallelism) throws InterruptedException {
+        HandlerThread looperThread = new HandlerThread("TranscodeLooper");
+        looperThread.start();
+        Handler handler = new Handler(looperThread.getLooper());
+        Semaphore slots = new Semaphore(parallelism);
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        List<Transformer> running = new ArrayList<>();  // touched only on the looper thread
+
+        try {
+            for (int i = 0; i < ranges.size() && failure.get() == null; i++) {
+                slots.acquire();
+                RemuxEngine.Range range = ranges.get(i);
+                String outputPath = outputPaths.get(i);
+                handler.post(() -> {
+                    try {
+                        Transformer transformer = newTransformer(context, looperThread, preset,
+                                new Transformer.Listener() {
+                                    @Override
+                                    public void onCompleted(Composition composition, ExportResult result) {
+                                        slots.release();
+                                    }
+
+                                    @Override
+                                    public void onError(Composition composition, ExportResult result,
+                                                        ExportException exception) {
+                                        failure.compareAndSet(null, exception);
+                                        slots.release();
+                                    }
+                                });
+                        running.add(transformer);
+                        transformer.start(editedItem(inputPath, range, preset, track), outputPath);
+                    } catch (Exception e) {
+                        failure.compareAndSet(null, e);
+                        slots.release();
+                    }
+                });
+            }
+            slots.acquire(parallelism);  // every started chunk has finished
+            slots.release(parallelism);
+        } catch (InterruptedException e) {
+            handler.post(() -> {
+                for (Transformer transformer : running) transformer.cancel();
+            });
+            throw e;
+        } finally {
+            looperThread.quitSafely();
+        }
+
+        if (failure.get() != null) {
+            Log.e(TAG, "Transcode failed", failure.get());
+            for (String path : outputPaths) new File(path).delete();
+            return false;
+        }
+        return true;
+    }
+
+    private static Transformer newTransformer(Context context, HandlerThread looperThread, Preset preset,
+                                              Transformer.Listener listener) {
+        VideoEncoderSettings settings = new VideoEncoderSettings.Builder()
+                .setBitrate(preset.bitrate)
+                .build();
+        return new Transformer.Builder(context)
+                .setLooper(looperThread.getLooper())
+                .setVideoMimeType(MimeTypes.VIDEO_H264)
+                .setAudioMimeType(MimeTypes.AUDIO_AAC)
+                .setEncoderFactory(new DefaultEncoderFactory.Builder(context)
+                        .setRequestedVideoEncoderSettings(settings)
+                        .build())
+                .addListener(listener)
+                .build();
+    }
+
+    private static EditedMediaItem editedItem(String inputPath, RemuxEngine.Range range, Preset preset,
+                                              VideoTrackInfo track) {
+        MediaItem mediaItem = new MediaItem.Builder()
+                .setUri(Uri.fromFile(new File(inputPath)))
+                .setClippingConfiguration(new MediaItem.ClippingConfiguration.Builder()
+                        .setStartPositionMs(range.startUs / 1000)
+                        .setEndPositionMs(range.endUs / 1000)
+                        .build())
+                .build();
+        EditedMediaItem.Builder builder = new EditedMediaItem.Builder(mediaItem);
+        Presentation scale = scaleFor(preset, track);
+        if (scale != null) {
+            builder.setEffects(new Effects(Collections.emptyList(), Collections.<Effect>singletonList(scale)));
+        }
+        return builder.build();
+    }
+
+    // Scales the displayed short side down to the preset; never upscales
+    private static Presentation scaleFor(Preset preset, VideoTrackInfo track) {
+        boolean sideways = track.rotation == 90 || track.rotation == 270;
+        int displayWidth = sideways ? track.height : track.width;
+        int displayHeight = sideways ? track.width : track.height;
+        if (Math.min(displayWidth, displayHeight) <= preset.shortSide) return null;
+        if (displayHeight <= displayWidth) return Presentation.createForHeight(preset.shortSide);
+        int height = (int) ((long) preset.shortSide * displayHeight / displayWidth) & ~1;
+        return Presentation.createForWidthAndHeight(preset.shortSide, height, Presentation.LAYOUT_SCALE_TO_FIT);
+    }
+
+    // Each chunk holds a decoder and an encoder, so the scarcer of the two sets the width
+    private static int codecParallelism(VideoTrackInfo track) {
+        int decoders = maxInstances(track.mime, false);
+        int encoders = maxInstances(MimeTypes.VIDEO_H264, true);
+        int cores = Runtime.getRuntime().availableProcessors();
+        int parallelism = DeviceConditions.parallelism(PerformanceProfile.maxWorkers(
+                Math.max(1, Math.min(Math.min(decoders, encoders), Math.min(cores, MAX_PARALLEL_CHUNKS)))));
+        Log.d(TAG, "Codec instances: " + decoders + " decoders, " + encoders + " encoders → " + parallelism);
+        return parallelism;
+    }
+
+    // Instance limit of the first (preferred) codec for the type, as MediaCodec would pick it
+    private static int maxInstances(String mime, boolean encoder) {
+        for (MediaCodecInfo info : new MediaCodecList(MediaCodecList.REGULAR_CODECS).getCodecInfos()) {
+            if (info.isEncoder() != encoder) continue;
+            for (String type : info.getSupportedTypes()) {
+                if (type.equalsIgnoreCase(mime)) {
+                    return info.getCapabilitiesForType(type).getMaxSupportedInstances();
+                }
+            }
+        }
+        return 1;
+    }
+}
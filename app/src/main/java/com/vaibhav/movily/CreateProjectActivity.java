@@ -1,57 +1,152 @@
 package com.vaibhav.movily;
 
+import android.content.ClipData;
+import android.content.ContentResolver;
 import android.content.Intent;
 import android.net.Uri;
 import android.os.Bundle;
 import android.os.Environment;
+import android.os.ParcelFileDescriptor;
+import android.util.Log;
+import android.view.View;
+import android.widget.Button;
+import android.widget.CheckBox;
+import android.widget.ProgressBar;
+import android.widget.TextView;
 import android.widget.Toast;
 import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.PickVisualMediaRequest;
 import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.appcompat.app.AppCompatActivity;
 import com.google.android.material.textfield.TextInputEditText;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.WriteBatch;
+import com.vaibhav.movily.TaskScheduler.Pool;
+import com.vaibhav.movily.TaskScheduler.Priority;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class CreateProjectActivity extends AppCompatActivity {
 
+    private static final String TAG = "CreateProjectActivity";
+    private static final int FIRESTORE_BATCH_LIMIT = 500;  // max writes per WriteBatch
+    private static final String IMPORT_JOB = "import";
+
+    // One picked clip on its way to becoming a project
+    private static class ImportItem {
+        final Uri uri;
+        final String projectId;
+        final String name;
+        String videoPath;   // private copy
+        String sourceUri;   // 🔗 linked original
+
+        ImportItem(Uri uri, String projectId, String name) {
+            this.uri = uri;
+            this.projectId = projectId;
+            this.name = name;
+        }
+    }
+
     private TextInputEditText etProjectName;
-    private Uri selectedVideoUri;
-    private ActivityResultLauncher<Intent> videoPickerLauncher;
-    private String projectId;
+    private CheckBox cbLinkOriginal;
+    private Button btnCreateProject;
+    private ProgressBar progressImport;
+    private TextView tvImportProgress;
+    private final List<Uri> selectedVideoUris = new ArrayList<>();
+    private boolean selectedForLink = false;  // picked through the document picker (persistable)
+    private ActivityResultLauncher<Intent> documentPickerLauncher;
+    private ActivityResultLauncher<PickVisualMediaRequest> mediaPickerLauncher;
+    // 🔁 The running import - survives rotation, cancelled only when the screen is left
+    private RetainedJob<CreateProjectActivity> importJob;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_create_project);
+        DeviceConditions.init(this);
+        CacheBudgetCoordinator.init(this);
+        PerformanceProfile.init(this);
 
         etProjectName = findViewById(R.id.etProjectName);
+        cbLinkOriginal = findViewById(R.id.cbLinkOriginal);
+        btnCreateProject = findViewById(R.id.btnCreateProject);
+        progressImport = findViewById(R.id.progressImport);
+        tvImportProgress = findViewById(R.id.tvImportProgress);
 
-        // 🔥 Video picker launcher
-        videoPickerLauncher = registerForActivityResult(
+        // 🔥 Video picker launchers - both allow picking a whole day of clips at once
+        documentPickerLauncher = registerForActivityResult(
                 new ActivityResultContracts.StartActivityForResult(),
                 result -> {
                     if (result.getResultCode() == RESULT_OK && result.getData() != null) {
-                        selectedVideoUri = result.getData().getData();
-                        Toast.makeText(this, "Video selected! 🎬", Toast.LENGTH_SHORT).show();
+                        onVideosPicked(urisFrom(result.getData()), isLinkRequested());
                     }
                 }
         );
+        mediaPickerLauncher = registerForActivityResult(
+                new ActivityResultContracts.PickMultipleVisualMedia(),
+                uris -> {
+                    if (!uris.isEmpty()) onVideosPicked(uris, false);
+                }
+        );
 
         // Select Video button
         findViewById(R.id.cardSelectVideo).setOnClickListener(v -> {
-            Intent intent = new Intent(Intent.ACTION_PICK);
-            intent.setType("video/*");
-            videoPickerLauncher.launch(intent);
+            if (isLinkRequested()) {
+                // 🔗 Only the document picker grants a permission that survives restarts
+                Intent intent = new Intent(Intent.ACTION_OPEN_DOCUMENT);
+                intent.addCategory(Intent.CATEGORY_OPENABLE);
+                intent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION | Intent.FLAG_GRANT_PERSISTABLE_URI_PERMISSION);
+                intent.putExtra(Intent.EXTRA_ALLOW_MULTIPLE, true);
+                intent.setType("video/*");
+                documentPickerLauncher.launch(intent);
+            } else {
+                mediaPickerLauncher.launch(new PickVisualMediaRequest.Builder()
+                        .setMediaType(ActivityResultContracts.PickVisualMedia.VideoOnly.INSTANCE)
+                        .build());
+            }
         });
 
         // Create Project button
-        findViewById(R.id.btnCreateProject).setOnClickListener(v -> createProject());
+        if (btnCreateProject != null) btnCreateProject.setOnClickListener(v -> createProject());
+
+        importJob = RetainedJob.attach(IMPORT_JOB, this);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (importJob != null) importJob.detach(this);
+    }
+
+    private static List<Uri> urisFrom(Intent data) {
+        List<Uri> uris = new ArrayList<>();
+        ClipData clips = data.getClipData();
+        if (clips != null) {
+            for (int i = 0; i < clips.getItemCount(); i++) uris.add(clips.getItemAt(i).getUri());
+        } else if (data.getData() != null) {
+            uris.add(data.getData());
+        }
+        return uris;
+    }
+
+    private void onVideosPicked(List<Uri> uris, boolean forLink) {
+        selectedVideoUris.clear();
+        selectedVideoUris.addAll(uris);
+        selectedForLink = forLink;
+        Toast.makeText(this, uris.size() == 1 ? "Video selected! 🎬" : uris.size() + " videos selected! 🎬",
+                Toast.LENGTH_SHORT).show();
     }
 
     private void createProject() {
@@ -62,79 +157,245 @@ public class CreateProjectActivity extends AppCompatActivity {
             return;
         }
 
-        if (selectedVideoUri == null) {
+        if (selectedVideoUris.isEmpty()) {
             Toast.makeText(this, "Please select a video first", Toast.LENGTH_SHORT).show();
             return;
         }
 
-        // 🔥 Generate unique project ID
-        projectId = FirebaseAuth.getInstance().getCurrentUser().getUid() + "_" + System.currentTimeMillis();
+        // 🔥 Generate unique project IDs - one per clip, numbered like split parts
+        String userId = FirebaseAuth.getInstance().getCurrentUser().getUid();
+        String stamp = String.valueOf(System.currentTimeMillis());
+        int count = selectedVideoUris.size();
+        List<ImportItem> items = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String id = count == 1 ? userId + "_" + stamp : userId + "_" + stamp + "_" + (i + 1);
+            String name = count == 1 ? projectName : projectName + " (" + (i + 1) + "/" + count + ")";
+            items.add(new ImportItem(selectedVideoUris.get(i), id, name));
+        }
+
+        // 🔗 Linked originals: keep a persistable read grant instead of copying
+        if (isLinkRequested()) {
+            int unlinkable = 0;
+            for (ImportItem item : items) {
+                if (selectedForLink && linkOriginal(item.uri)) {
+                    item.sourceUri = item.uri.toString();
+                } else {
+                    unlinkable++;
+                }
+            }
+            if (unlinkable > 0) {
+                Toast.makeText(this, unlinkable == 1 ? "Can't link this video - copying instead"
+                        : "Can't link " + unlinkable + " videos - copying them instead", Toast.LENGTH_SHORT).show();
+            }
+        }
 
-        // 🔥 COPY VIDEO TO APP PRIVATE STORAGE (Fixes Google Photos permission crash)
-        copyVideoToAppStorage();
+        // 🔥 COPY VIDEOS TO APP PRIVATE STORAGE (Fixes Google Photos permission crash)
+        importVideos(items);
     }
 
-    private void copyVideoToAppStorage() {
-        // Show loading
-        Toast.makeText(this, "Copying video...", Toast.LENGTH_SHORT).show();
+    private boolean isLinkRequested() {
+        return cbLinkOriginal != null && cbLinkOriginal.isChecked();
+    }
+
+    private boolean linkOriginal(Uri uri) {
+        try {
+            getContentResolver().takePersistableUriPermission(uri, Intent.FLAG_GRANT_READ_URI_PERMISSION);
+            Log.d(TAG, "🔗 Linked original: " + uri);
+            return true;
+        } catch (SecurityException e) {
+            Log.w(TAG, "No persistable permission for " + uri, e);
+            return false;
+        }
+    }
+
+    // 📥 One IO task per clip: the IO pool's width bounds how many copies run at once (sized
+    // to the device), the governor paces them, and the Firestore save waits for the last one.
+    // The whole import is a RetainedJob: a rotation mid-copy reattaches instead of cancelling.
+    private void importVideos(List<ImportItem> items) {
+        List<ImportItem> toCopy = new ArrayList<>();
+        for (ImportItem item : items) {
+            if (item.sourceUri == null) toCopy.add(item);
+        }
+
+        setImporting(true);
+        RetainedJob<CreateProjectActivity> job = RetainedJob.start(IMPORT_JOB, this, host -> host.setImporting(true));
+        importJob = job;
+        if (toCopy.isEmpty()) {
+            saveProjectsToFirestore(job, items);
+            return;
+        }
 
-        new Thread(() -> {
-            try {
-                // Create app's private videos folder
-                File appVideosDir = new File(getExternalFilesDir(Environment.DIRECTORY_MOVIES), "projects");
-                appVideosDir.mkdirs();
+        updateImportProgress(0, toCopy.size(), 0);
+        File appVideosDir = new File(getExternalFilesDir(Environment.DIRECTORY_MOVIES), "projects");
+        ContentResolver resolver = getApplicationContext().getContentResolver();
+        AtomicInteger remaining = new AtomicInteger(toCopy.size());
+        AtomicLong copiedBytes = new AtomicLong();
+        long started = System.currentTimeMillis();
 
-                // Create destination file
-                File destFile = new File(appVideosDir, projectId + ".mp4");
-                String videoPath = destFile.getAbsolutePath();
+        // 🚦 Imports queue behind editor exports on the I/O pool; leaving the screen cancels
+        for (ImportItem item : toCopy) {
+            TaskScheduler.submit(Pool.IO, Priority.LOW, job.token, copy -> {
+                File destFile = new File(appVideosDir, item.projectId + ".mp4");
+                try {
+                    appVideosDir.mkdirs();
+                    if (copyVideo(resolver, item.uri, destFile, copy)) {
+                        item.videoPath = destFile.getAbsolutePath();
+                        copiedBytes.addAndGet(destFile.length());
+                    }
+                } catch (Exception e) {
+                    destFile.delete();
+                    if (!copy.isCancelled()) Log.e(TAG, "Failed to copy " + item.uri, e);
+                }
+                if (copy.isCancelled()) return;
 
-                // Copy video from source to app storage
-                InputStream inputStream = getContentResolver().openInputStream(selectedVideoUri);
-                FileOutputStream outputStream = new FileOutputStream(destFile);
+                int left = remaining.decrementAndGet();
+                long bytes = copiedBytes.get();
+                job.post(host -> host.updateImportProgress(toCopy.size() - left, toCopy.size(), bytes));
+                if (left == 0) {
+                    long elapsedMs = Math.max(1, System.currentTimeMillis() - started);
+                    Log.d(TAG, "📥 Imported " + toCopy.size() + " clips, " + copiedBytes.get() / (1024 * 1024)
+                            + " MB in " + elapsedMs + "ms (" + copiedBytes.get() / 1024 / elapsedMs + " MB/s)");
+                    // ✅ Videos copied → Save to Firestore
+                    job.post(host -> host.saveProjectsToFirestore(job, items));
+                }
+            });
+        }
+    }
 
+    // False when the copy was cancelled; the partial file is gone either way
+    private static boolean copyVideo(ContentResolver resolver, Uri uri, File destFile,
+                                     TaskScheduler.CancellationToken job) throws Exception {
+        // 🚀 Seekable source → faststart copy (moov moved to the front), else plain stream copy
+        if (!copySeekable(resolver, uri, destFile)) {
+            try (InputStream inputStream = resolver.openInputStream(uri);
+                 FileOutputStream outputStream = new FileOutputStream(destFile)) {
+                if (inputStream == null) throw new FileNotFoundException(uri.toString());
                 byte[] buffer = new byte[8192];
                 int bytesRead;
-                while ((bytesRead = inputStream.read(buffer)) != -1) {
+                while ((bytesRead = inputStream.read(buffer)) != -1 && !job.isCancelled()) {
+                    IoGovernor.acquire(bytesRead);
                     outputStream.write(buffer, 0, bytesRead);
                 }
+            }
+        }
+        if (job.isCancelled()) {
+            destFile.delete();
+            return false;
+        }
+        return true;
+    }
 
-                inputStream.close();
-                outputStream.close();
+    // False when the provider only hands out a pipe - caller falls back to streaming
+    private static boolean copySeekable(ContentResolver resolver, Uri uri, File destFile) {
+        try (ParcelFileDescriptor pfd = resolver.openFileDescriptor(uri, "r")) {
+            if (pfd == null || pfd.getStatSize() <= 0) return false;
+            try (FileInputStream in = new FileInputStream(pfd.getFileDescriptor())) {
+                FileChannel channel = in.getChannel();
+                channel.position(0);
+                boolean relocated = Mp4Faststart.copy(channel, destFile);
+                Log.d(TAG, "🚀 Imported " + destFile.getName() + (relocated ? " (moov moved to front)" : ""));
+                return true;
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Seekable copy failed - streaming instead", e);
+            destFile.delete();
+            return false;
+        }
+    }
 
-                // ✅ Video copied successfully → Save to Firestore
-                runOnUiThread(() -> saveProjectToFirestore(videoPath));
+    private void setImporting(boolean importing) {
+        if (btnCreateProject != null) btnCreateProject.setEnabled(!importing);
+        if (progressImport != null) progressImport.setVisibility(importing ? View.VISIBLE : View.GONE);
+        if (tvImportProgress != null) tvImportProgress.setVisibility(importing ? View.VISIBLE : View.GONE);
+    }
 
-            } catch (Exception e) {
-                runOnUiThread(() -> {
-                    Toast.makeText(this, "Failed to copy video: " + e.getMessage(), Toast.LENGTH_LONG).show();
-                    finish();
-                });
-            }
-        }).start();
+    private void updateImportProgress(int done, int total, long bytes) {
+        if (progressImport != null) {
+            progressImport.setMax(total);
+            progressImport.setProgress(done);
+        }
+        if (tvImportProgress != null) {
+            tvImportProgress.setText("📥 Copying " + done + "/" + total + " · " + bytes / (1024 * 1024) + " MB");
+        }
     }
 
-    private void saveProjectToFirestore(String videoPath) {
+    // 🔥 Project documents go out in WriteBatches of up to 500 - one round trip per batch,
+    // and each batch lands atomically in the project list. The job ends with the last batch.
+    private void saveProjectsToFirestore(RetainedJob<CreateProjectActivity> job, List<ImportItem> items) {
         String userId = FirebaseAuth.getInstance().getCurrentUser().getUid();
+        FirebaseFirestore db = FirebaseFirestore.getInstance();
+
+        List<ImportItem> ready = new ArrayList<>();
+        for (ImportItem item : items) {
+            if (item.videoPath != null || item.sourceUri != null) ready.add(item);
+        }
+        int copyFailures = items.size() - ready.size();
+        if (ready.isEmpty()) {
+            job.finish(host -> {
+                host.setImporting(false);
+                Toast.makeText(host, "Failed to copy video", Toast.LENGTH_LONG).show();
+            });
+            return;
+        }
 
+        int batchCount = (ready.size() + FIRESTORE_BATCH_LIMIT - 1) / FIRESTORE_BATCH_LIMIT;
+        AtomicInteger pendingBatches = new AtomicInteger(batchCount);
+        AtomicInteger saved = new AtomicInteger();
+        for (int from = 0; from < ready.size(); from += FIRESTORE_BATCH_LIMIT) {
+            List<ImportItem> chunk = ready.subList(from, Math.min(ready.size(), from + FIRESTORE_BATCH_LIMIT));
+            WriteBatch batch = db.batch();
+            for (ImportItem item : chunk) {
+                batch.set(db.collection("users").document(userId)
+                        .collection("projects").document(item.projectId), projectDocument(item));
+            }
+            batch.commit()
+                    .addOnSuccessListener(aVoid -> {
+                        saved.addAndGet(chunk.size());
+                        if (pendingBatches.decrementAndGet() == 0) {
+                            job.finish(host -> host.finishImport(saved.get(), items.size() - saved.get()));
+                        }
+                    })
+                    .addOnFailureListener(e -> {
+                        Log.e(TAG, "Firestore batch failed", e);
+                        // Delete copied files if Firestore fails
+                        for (ImportItem item : chunk) {
+                            if (item.videoPath != null) new File(item.videoPath).delete();
+                        }
+                        if (pendingBatches.decrementAndGet() == 0) {
+                            job.finish(host -> host.finishImport(saved.get(), items.size() - saved.get()));
+                        }
+                    });
+        }
+        if (copyFailures > 0) Log.w(TAG, copyFailures + " clips failed to copy");
+    }
+
+    // Exactly one of videoPath (private copy) / sourceUri (linked original) is set
+    private static HashMap<String, Object> projectDocument(ImportItem item) {
         HashMap<String, Object> project = new HashMap<>();
-        project.put("name", etProjectName.getText().toString().trim());
-        project.put("videoPath", videoPath);  // ✅ REAL FILE PATH - No permission issues!
-        project.put("projectId", projectId);
+        project.put("name", item.name);
+        if (item.videoPath != null) {
+            project.put("videoPath", item.videoPath);  // ✅ REAL FILE PATH - No permission issues!
+        } else {
+            project.put("sourceUri", item.sourceUri);  // 🔗 Persisted read grant, copied on first trim
+        }
+        project.put("projectId", item.projectId);
         project.put("createdAt", FieldValue.serverTimestamp());
         project.put("thumbnail", ""); // Generate later
+        return project;
+    }
 
-        FirebaseFirestore.getInstance()
-                .collection("users").document(userId)
-                .collection("projects").document(projectId)
-                .set(project)
-                .addOnSuccessListener(aVoid -> {
-                    Toast.makeText(this, "Project created successfully! 🎉", Toast.LENGTH_SHORT).show();
-                    finish(); // Back to MainActivity → Video shows instantly!
-                })
-                .addOnFailureListener(e -> {
-                    Toast.makeText(this, "Save error: " + e.getMessage(), Toast.LENGTH_LONG).show();
-                    // Delete copied file if Firestore fails
-                    new File(videoPath).delete();
-                });
+    private void finishImport(int saved, int failed) {
+        setImporting(false);
+        if (saved == 0) {
+            Toast.makeText(this, "Save error - no projects created", Toast.LENGTH_LONG).show();
+            return;
+        }
+        if (failed == 0) {
+            Toast.makeText(this, saved == 1 ? "Project created successfully! 🎉"
+                    : saved + " projects created! 🎉", Toast.LENGTH_SHORT).show();
+        } else {
+            Toast.makeText(this, saved + " projects created, " + failed + " failed ⚠️", Toast.LENGTH_LONG).show();
+        }
+        finish(); // Back to MainActivity → Videos show instantly!
     }
 }
@@ -0,0 +1,182 @@
+package com.vaibhav.movily;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.BatteryManager;
+import android.os.Build;
+import android.os.PowerManager;
+import android.util.Log;
+import java.util.ArrayList;
+import java.util.List;
+
+// 🌡️ Thermal + battery state for the media job runner. Heavy work scales its parallelism and
+// pipeline depth down as the device heats up (finishing cool beats being throttled halfway),
+// and deferrable work (scene cuts, waveforms) waits for the charger when the battery is low.
+// Thermal status needs API 29; older devices fall back to the battery temperature.
+public class DeviceConditions {
+
+    private static final String TAG = "DeviceConditions";
+    private static final int LOW_BATTERY_PERCENT = 20;
+    private static final int WARM_TENTHS_C = 420;   // battery-temperature fallback below API 29
+    private static final int HOT_TENTHS_C = 470;
+
+    public enum Heat { COOL, WARM, HOT }
+
+    private static boolean initialized = false;
+    private static Heat heat = Heat.COOL;
+    private static boolean charging = true;
+    private static int batteryPercent = 100;
+    private static boolean powerSave = false;
+    private static final List<Deferred> deferred = new ArrayList<>();
+
+    // Parked work and the token that abandons it - a cancelled entry is dropped, never run,
+    // so nothing here outlives the screen that deferred it
+    private static final class Deferred {
+        final TaskScheduler.CancellationToken token;
+        final Runnable task;
+
+        Deferred(TaskScheduler.CancellationToken token, Runnable task) {
+            this.token = token;
+            this.task = task;
+        }
+    }
+
+    private DeviceConditions() {}
+
+    // Idempotent - every entry activity calls it
+    public static synchronized void init(Context context) {
+        if (initialized) return;
+        initialized = true;
+        Context appContext = context.getApplicationContext();
+        PowerManager power = (PowerManager) appContext.getSystemService(Context.POWER_SERVICE);
+
+        if (Build.VERSION.SDK_INT >= 29 && power != null) {
+            onThermalStatus(power.getCurrentThermalStatus());
+            power.addThermalStatusListener(DeviceConditions::onThermalStatus);
+        }
+
+        IntentFilter filter = new IntentFilter(Intent.ACTION_BATTERY_CHANGED);
+        filter.addAction(PowerManager.ACTION_POWER_SAVE_MODE_CHANGED);
+        Intent sticky = appContext.registerReceiver(new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context ctx, Intent intent) {
+                if (Intent.ACTION_BATTERY_CHANGED.equals(intent.getAction())) {
+                    onBattery(intent);
+                } else if (power != null) {
+                    onPowerSave(power.isPowerSaveMode());
+                }
+            }
+        }, filter);
+        if (sticky != null) onBattery(sticky);
+        if (power != null) onPowerSave(power.isPowerSaveMode());
+    }
+
+    // ---- Policy ----
+
+    // How many of `max` parallel workers the device can sustain right now
+    public static synchronized int parallelism(int max) {
+        int allowed = max;
+        if (heat == Heat.WARM) allowed = max / 2;
+        if (heat == Heat.HOT) allowed = 1;
+        if (onLowBattery() || powerSave) allowed = Math.min(allowed, Math.max(1, max / 2));
+        return Math.max(1, allowed);
+    }
+
+    // Sample holders in flight per remux pipeline - smaller working set when hot
+    public static synchronized int pipelineDepth(int max) {
+        return heat == Heat.COOL ? max : Math.max(2, max / 2);
+    }
+
+    // Runs now if conditions are favourable, otherwise once the charger is connected or the
+    // device has cooled down - unless `token` is cancelled first, which drops the task.
+    // Deferred tasks run on the main thread - they should only submit work.
+    public static void runWhenFavourable(TaskScheduler.CancellationToken token, Runnable task) {
+        synchronized (DeviceConditions.class) {
+            if (!favourable()) {
+                Deferred entry = new Deferred(token, task);
+                deferred.add(entry);
+                Log.d(TAG, "🌙 Deferred until charging/cool (" + deferred.size() + " waiting)");
+                token.whenCancelled(() -> drop(entry));
+                return;
+            }
+        }
+        if (!token.isCancelled()) task.run();
+    }
+
+    private static synchronized void drop(Deferred entry) {
+        deferred.remove(entry);
+    }
+
+    public static synchronized String describe() {
+        return heat + ", battery " + batteryPercent + "%" + (charging ? " charging" : "")
+                + (powerSave ? ", power save" : "");
+    }
+
+    private static boolean favourable() {
+        return heat != Heat.HOT && (charging || (!onLowBattery() && !powerSave));
+    }
+
+    private static boolean onLowBattery() {
+        return !charging && batteryPercent <= LOW_BATTERY_PERCENT;
+    }
+
+    // ---- State updates ----
+
+    private static void onThermalStatus(int status) {
+        Heat newHeat;
+        if (status >= PowerManager.THERMAL_STATUS_SEVERE) {
+            newHeat = Heat.HOT;
+        } else if (status >= PowerManager.THERMAL_STATUS_MODERATE) {
+            newHeat = Heat.WARM;
+        } else {
+            newHeat = Heat.COOL;
+        }
+        setHeat(newHeat);
+    }
+
+    private static void onBattery(Intent intent) {
+        int level = intent.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+        int scale = intent.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
+        int plugged = intent.getIntExtra(BatteryManager.EXTRA_PLUGGED, 0);
+        synchronized (DeviceConditions.class) {
+            if (level >= 0 && scale > 0) batteryPercent = level * 100 / scale;
+            charging = plugged != 0;
+        }
+        if (Build.VERSION.SDK_INT < 29) {
+            int tenthsC = intent.getIntExtra(BatteryManager.EXTRA_TEMPERATURE, 0);
+            setHeat(tenthsC >= HOT_TENTHS_C ? Heat.HOT : tenthsC >= WARM_TENTHS_C ? Heat.WARM : Heat.COOL);
+        }
+        changed();
+    }
+
+    private static void onPowerSave(boolean enabled) {
+        synchronized (DeviceConditions.class) {
+            powerSave = enabled;
+        }
+        changed();
+    }
+
+    private static void setHeat(Heat newHeat) {
+        synchronized (DeviceConditions.class) {
+            if (newHeat == heat) return;
+            heat = newHeat;
+        }
+        Log.d(TAG, "🌡️ " + describe());
+        changed();
+    }
+
+    // Re-sizes the scheduler pools and releases deferred work once conditions allow
+    private static void changed() {
+        List<Deferred> ready;
+        synchronized (DeviceConditions.class) {
+            ready = favourable() ? new ArrayList<>(deferred) : new ArrayList<>();
+            if (!ready.isEmpty()) deferred.clear();
+        }
+        TaskScheduler.adaptToDevice();
+        for (Deferred entry : ready) {
+            if (!entry.token.isCancelled()) entry.task.run();
+        }
+    }
+}
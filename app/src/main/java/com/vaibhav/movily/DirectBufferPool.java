@@ -0,0 +1,88 @@
+package com.vaibhav.movily;
+
+import android.util.Log;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+// 🚚 Process-wide pool of direct sample buffers, recycled across remux jobs so a trim doesn't
+// allocate (and later GC) megabytes of native memory every time. Sizes are rounded up to a
+// power of two; at most MAX_RETAINED_BYTES sit idle in the pool.
+public class DirectBufferPool {
+
+    private static final String TAG = "DirectBufferPool";
+    private static final int MIN_CAPACITY = 64 * 1024;
+    private static final long MAX_RETAINED_BYTES = 48L * 1024 * 1024;
+
+    private static final Map<Integer, ArrayDeque<ByteBuffer>> free = new HashMap<>();
+    private static long retainedBytes = 0;
+    private static long allocations = 0, reuses = 0;
+
+    // 🧠 Idle buffers are the cheapest thing to give back under memory pressure
+    static {
+        CacheBudgetCoordinator.register("directBuffers", CacheBudgetCoordinator.PRIORITY_LOW,
+                new CacheBudgetCoordinator.ManagedCache() {
+                    @Override
+                    public long sizeBytes() {
+                        synchronized (DirectBufferPool.class) {
+                            return retainedBytes;
+                        }
+                    }
+
+                    @Override
+                    public void trimTo(long maxBytes) {
+                        if (sizeBytes() > maxBytes) trim();
+                    }
+                });
+    }
+
+    private DirectBufferPool() {}
+
+    public static synchronized ByteBuffer acquire(int minCapacity) {
+        int capacity = roundUp(minCapacity);
+        ArrayDeque<ByteBuffer> queue = free.get(capacity);
+        ByteBuffer buffer = queue != null ? queue.poll() : null;
+        if (buffer != null) {
+            retainedBytes -= capacity;
+            reuses++;
+        } else {
+            buffer = ByteBuffer.allocateDirect(capacity);
+            allocations++;
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    public static synchronized void release(ByteBuffer buffer) {
+        if (buffer == null || !buffer.isDirect()) return;
+        int capacity = buffer.capacity();
+        if (capacity != roundUp(capacity) || retainedBytes + capacity > MAX_RETAINED_BYTES) return;
+        ArrayDeque<ByteBuffer> queue = free.get(capacity);
+        if (queue == null) {
+            queue = new ArrayDeque<>();
+            free.put(capacity, queue);
+        }
+        queue.push(buffer);
+        retainedBytes += capacity;
+    }
+
+    // 🧹 Memory pressure - let the idle buffers go
+    public static synchronized void trim() {
+        free.clear();
+        retainedBytes = 0;
+    }
+
+    public static synchronized String stats() {
+        return "allocated " + allocations + ", reused " + reuses + ", idle " + retainedBytes / 1024 + " KB";
+    }
+
+    private static int roundUp(int capacity) {
+        int rounded = Math.max(MIN_CAPACITY, Integer.highestOneBit(Math.max(1, capacity - 1)) << 1);
+        return rounded > 0 ? rounded : capacity;  // overflow past 1 GB - keep exact
+    }
+
+    static void logStats() {
+        Log.d(TAG, "🚚 Buffer pool: " + stats());
+    }
+}
@@ -0,0 +1,226 @@
+package com.vaibhav.movily;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// ↩️ Per-project undo/redo. Replacing edits (trim, speed, silence removal...) already leave the
+// previous version behind as a separate file, so history just keeps that file - push, undo and
+// redo are renames, never copies, and the old version's caches still match when it comes back.
+// In-place edits are stored as deltas instead: rotation as an empty marker whose name carries the
+// degrees applied (undo re-patches the matrix by 360 - degrees, redo by the degrees again), a tail
+// trim as the record Mp4TailTrimmer writes of the moov bytes it replaced.
+// Entries live in projects/history/<video name>/ as u_<seq>/r_<seq> files, so the stacks
+// survive restarts without an index; the oldest are evicted beyond the depth or byte budget.
+// Not thread-safe: the editor runs one edit at a time (isTrimming).
+public class EditHistory {
+
+    private static final String TAG = "EditHistory";
+    private static final String PREFS = "history";
+    private static final String KEY_DEPTH = "maxDepth";
+    private static final String KEY_BUDGET = "budgetBytes";
+    public static final int DEFAULT_DEPTH = 10;
+    public static final long DEFAULT_BUDGET = 2L * 1024 * 1024 * 1024;
+    private static final String ROTATE_PREFIX = "rot";
+    private static final String PATCH_SUFFIX = ".patch";
+
+    private final File video;
+    private final File dir;
+    private final int maxDepth;
+    private final long budgetBytes;
+
+    // One entry on either stack; snapshots hold a whole previous version, deltas a rotation or patch
+    private static class Entry {
+        final File file;
+        final long seq;
+        final int rotation;  // 0 for snapshots and patches
+        final boolean patch;
+
+        Entry(File file, long seq, int rotation, boolean patch) {
+            this.file = file;
+            this.seq = seq;
+            this.rotation = rotation;
+            this.patch = patch;
+        }
+    }
+
+    public EditHistory(Context context, File video) {
+        this.video = video;
+        this.dir = historyDir(video);
+        this.maxDepth = maxDepth(context);
+        this.budgetBytes = budgetBytes(context);
+    }
+
+    public static File historyDir(File video) {
+        String name = video.getName();
+        int dot = name.lastIndexOf('.');
+        return new File(new File(video.getParentFile(), "history"), dot > 0 ? name.substring(0, dot) : name);
+    }
+
+    public static void setLimits(Context context, int maxDepth, long budgetBytes) {
+        prefs(context).edit().putInt(KEY_DEPTH, maxDepth).putLong(KEY_BUDGET, budgetBytes).apply();
+    }
+
+    public static int maxDepth(Context context) {
+        return prefs(context).getInt(KEY_DEPTH, DEFAULT_DEPTH);
+    }
+
+    public static long budgetBytes(Context context) {
+        return prefs(context).getLong(KEY_BUDGET, DEFAULT_BUDGET);
+    }
+
+    public boolean canUndo() {
+        return !entries(true).isEmpty();
+    }
+
+    public boolean canRedo() {
+        return !entries(false).isEmpty();
+    }
+
+    // ---- Recording (background thread, before/after the edit) ----
+
+    // After a replacing edit: `previous` is the version it replaced (the .bak) - moved, not copied
+    public boolean pushReplaced(File previous) {
+        if (maxDepth <= 0) return false;
+        dir.mkdirs();
+        clearRedo();
+        File entry = new File(dir, "u_" + nextSeq() + ".mp4");
+        if (!previous.renameTo(entry)) return false;
+        enforceLimits();
+        return true;
+    }
+
+    // Before an in-place patch (tail trim): where its undo record goes, null when history is off.
+    // The patcher writes the record itself - it already knows every byte it's about to replace.
+    public File patchRecord() {
+        if (maxDepth <= 0) return null;
+        dir.mkdirs();
+        clearRedo();
+        return new File(dir, "u_" + nextSeq() + PATCH_SUFFIX);
+    }
+
+    // After it: a patch that didn't apply left no record, so there's nothing to keep
+    public void pushPatch(File record) {
+        if (record != null && record.exists()) enforceLimits();
+    }
+
+    public void pushRotation(int degrees) throws IOException {
+        if (maxDepth <= 0) return;
+        dir.mkdirs();
+        clearRedo();
+        File marker = new File(dir, "u_" + nextSeq() + "_" + ROTATE_PREFIX + degrees);
+        if (!marker.createNewFile()) throw new IOException("Couldn't record rotation");
+        enforceLimits();
+    }
+
+    // ---- Undo / redo (background thread) ----
+
+    public boolean undo() throws IOException {
+        return step(true);
+    }
+
+    public boolean redo() throws IOException {
+        return step(false);
+    }
+
+    // Pops the top of one stack and pushes the current state onto the other
+    private boolean step(boolean undo) throws IOException {
+        List<Entry> stack = entries(undo);
+        if (stack.isEmpty()) return false;
+        Entry top = stack.get(stack.size() - 1);
+        String otherPrefix = undo ? "r_" : "u_";
+        long seq = nextSeq();
+
+        if (top.rotation != 0) {
+            MediaLinks.ensureExclusive(video);
+            Mp4MetadataEditor.rotate(video, undo ? 360 - top.rotation : top.rotation);
+            File moved = new File(dir, otherPrefix + seq + "_" + ROTATE_PREFIX + top.rotation);
+            if (!top.file.renameTo(moved)) top.file.delete();
+        } else if (top.patch) {
+            // The record restores the bytes; replaying it records the bytes it replaces for the way back
+            MediaLinks.ensureExclusive(video);
+            Mp4TailTrimmer.replay(video, top.file, new File(dir, otherPrefix + seq + PATCH_SUFFIX));
+            top.file.delete();
+        } else {
+            // Current version → other stack, stored version → project path; both plain renames
+            File parked = new File(dir, otherPrefix + seq + ".mp4");
+            if (!video.renameTo(parked)) throw new IOException("Couldn't park current version");
+            if (!top.file.renameTo(video)) {
+                parked.renameTo(video);
+                throw new IOException("Couldn't restore version");
+            }
+        }
+        Log.d(TAG, (undo ? "↩️ Undo" : "↪️ Redo") + " " + video.getName() + " ("
+                + entries(true).size() + " undo, " + entries(false).size() + " redo)");
+        return true;
+    }
+
+    // ---- Stacks ----
+
+    private List<Entry> entries(boolean undo) {
+        List<Entry> list = new ArrayList<>();
+        File[] files = dir.listFiles();
+        if (files == null) return list;
+        String prefix = undo ? "u_" : "r_";
+        for (File file : files) {
+            String name = file.getName();
+            if (!name.startsWith(prefix)) continue;
+            try {
+                String rest = name.substring(2);
+                int rotationAt = rest.indexOf("_" + ROTATE_PREFIX);
+                if (rotationAt >= 0) {
+                    list.add(new Entry(file, Long.parseLong(rest.substring(0, rotationAt)),
+                            Integer.parseInt(rest.substring(rotationAt + 1 + ROTATE_PREFIX.length())), false));
+                } else if (rest.endsWith(PATCH_SUFFIX)) {
+                    list.add(new Entry(file, Long.parseLong(rest.substring(0, rest.length() - PATCH_SUFFIX.length())),
+                            0, true));
+                } else if (rest.endsWith(".mp4")) {
+                    list.add(new Entry(file, Long.parseLong(rest.substring(0, rest.length() - 4)), 0, false));
+                }
+            } catch (NumberFormatException e) {
+                Log.w(TAG, "Ignoring " + name);
+            }
+        }
+        Collections.sort(list, (a, b) -> Long.compare(a.seq, b.seq));
+        return list;
+    }
+
+    private long nextSeq() {
+        long max = 0;
+        for (Entry entry : entries(true)) max = Math.max(max, entry.seq);
+        for (Entry entry : entries(false)) max = Math.max(max, entry.seq);
+        return max + 1;
+    }
+
+    // A new edit forks the timeline - whatever could be redone is gone
+    private void clearRedo() {
+        for (Entry entry : entries(false)) entry.file.delete();
+    }
+
+    // Oldest undo steps go first; the redo side is only ever as deep as the undos just taken
+    private void enforceLimits() {
+        List<Entry> undo = entries(true);
+        long total = 0;
+        for (Entry entry : undo) total += entry.file.length();
+        for (Entry entry : entries(false)) total += entry.file.length();
+        int evicted = 0;
+        while (!undo.isEmpty() && (undo.size() > maxDepth || total > budgetBytes)) {
+            Entry oldest = undo.remove(0);
+            total -= oldest.file.length();
+            if (oldest.file.delete()) evicted++;
+        }
+        if (evicted > 0) {
+            Log.d(TAG, "↩️ Evicted " + evicted + " old versions of " + video.getName() + " (" + total / (1024 * 1024)
+                    + " MB kept)");
+        }
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+    }
+}
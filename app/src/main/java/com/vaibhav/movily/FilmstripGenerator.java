@@ -0,0 +1,127 @@
+package com.vaibhav.movily;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.media.MediaCodec;
+import android.media.MediaCodecInfo;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.util.Log;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+// 🔥 Timeline filmstrip: evenly spaced keyframes from ONE decoder session, packed into a single
+// sprite-sheet bitmap and cached on disk per video version (reopen = one JPEG decode).
+public class FilmstripGenerator {
+
+    private static final String TAG = "Filmstrip";
+
+    private FilmstripGenerator() {}
+
+    public static File cacheFileFor(File cacheRoot, File videoFile, int tileCount, int tileHeight) {
+        return CacheKeys.cacheFile(cacheRoot, "filmstrips", videoFile,
+                "_" + tileCount + "x" + tileHeight + ".jpg");
+    }
+
+    // Blocking - call off the main thread
+    public static Bitmap load(VideoTrackInfo track, File cacheRoot, int tileCount, int tileHeight)
+            throws IOException {
+        File videoFile = new File(track.path);
+        File cached = cacheFileFor(cacheRoot, videoFile, tileCount, tileHeight);
+        if (cached.exists()) {
+            Bitmap sprite = BitmapFactory.decodeFile(cached.getAbsolutePath());
+            if (sprite != null) {
+                Log.d(TAG, "🎞️ Filmstrip cache hit: " + cached.getName());
+                return sprite;
+            }
+            cached.delete();
+        }
+
+        long started = System.currentTimeMillis();
+        Bitmap sprite = generate(track, tileCount, tileHeight);
+        writeCache(sprite, cached);
+        Log.d(TAG, "🎞️ Filmstrip generated in " + (System.currentTimeMillis() - started) + "ms");
+        return sprite;
+    }
+
+    private static Bitmap generate(VideoTrackInfo track, int tileCount, int tileHeight) throws IOException {
+        boolean sideways = track.rotation == 90 || track.rotation == 270;
+        int displayW = sideways ? track.height : track.width;
+        int displayH = sideways ? track.width : track.height;
+        int tileWidth = Math.max(1, tileHeight * displayW / Math.max(1, displayH));
+
+        Bitmap sprite = Bitmap.createBitmap(tileWidth * tileCount, tileHeight, Bitmap.Config.RGB_565);
+        Canvas canvas = new Canvas(sprite);
+        Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+
+        // One reusable decode target for every tile (no per-frame bitmap allocation)
+        int step = FrameConverter.sampleStep(track.width, sideways ? tileHeight : tileWidth);
+        int frameW = Math.max(1, track.width / step);
+        int frameH = Math.max(1, track.height / step);
+        Bitmap frame = Bitmap.createBitmap(frameW, frameH, Bitmap.Config.ARGB_8888);
+        int[] scratch = new int[frameW * frameH];
+        Rect dest = new Rect();
+
+        MediaExtractor extractor = track.openExtractor();
+        MediaCodec decoder = track.createDecoder();
+        try {
+            MediaFormat format = track.newDecoderFormat();
+            format.setInteger(MediaFormat.KEY_COLOR_FORMAT,
+                    MediaCodecInfo.CodecCapabilities.COLOR_FormatYUV420Flexible);
+            decoder.configure(format, null, null, 0);
+            decoder.start();
+
+            long durationUs = Math.max(1, track.durationUs);
+            long lastSyncUs = -1;
+            boolean haveFrame = false;
+            for (int i = 0; i < tileCount; i++) {
+                long targetUs = durationUs * (2L * i + 1) / (2L * tileCount);
+                extractor.seekTo(targetUs, MediaExtractor.SEEK_TO_CLOSEST_SYNC);
+                long syncUs = extractor.getSampleTime();
+
+                // Neighbouring tiles often land on the same keyframe - redraw instead of re-decoding
+                if (syncUs != lastSyncUs || !haveFrame) {
+                    haveFrame = KeyframeDecoder.decodeCurrentSample(decoder, extractor,
+                            image -> FrameConverter.toBitmap(image, step, scratch, frame));
+                    lastSyncUs = syncUs;
+                }
+                if (!haveFrame) continue;
+
+                dest.set(i * tileWidth, 0, (i + 1) * tileWidth, tileHeight);
+                canvas.save();
+                canvas.rotate(track.rotation, dest.exactCenterX(), dest.exactCenterY());
+                if (sideways) {
+                    int cx = dest.centerX(), cy = dest.centerY();
+                    dest.set(cx - tileHeight / 2, cy - tileWidth / 2, cx + tileHeight / 2, cy + tileWidth / 2);
+                }
+                canvas.drawBitmap(frame, null, dest, paint);
+                canvas.restore();
+            }
+        } finally {
+            try {
+                decoder.stop();
+            } catch (Exception ignored) {}
+            decoder.release();
+            extractor.release();
+            frame.recycle();
+        }
+        return sprite;
+    }
+
+    private static void writeCache(Bitmap sprite, File cached) {
+        File tmp = new File(cached.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            sprite.compress(Bitmap.CompressFormat.JPEG, 80, out);
+            out.getFD().sync();
+        } catch (IOException e) {
+            Log.e(TAG, "Filmstrip cache write failed", e);
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(cached)) tmp.delete();
+    }
+}
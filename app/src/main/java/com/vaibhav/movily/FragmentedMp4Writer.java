@@ -0,0 +1,468 @@
+package com.vaibhav.movily;
+
+import android.media.MediaCodec;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.util.Log;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// 🧩 Fragmented MP4 (moof/mdat) writer for avc1 + mp4a. Unlike MediaMuxer, the file is valid and
+// playable after every fragment: each one is fsynced and recorded in a ".progress" sidecar, so an
+// interrupted export can truncate the torn tail and carry on from the last durable fragment.
+// stop() marks the sidecar complete; it stays until the caller has consumed the file (discard()).
+public class FragmentedMp4Writer {
+
+    private static final String TAG = "FragmentedMp4Writer";
+    private static final int PROGRESS_MAGIC = 0x4D564650;  // "MVFP"
+    private static final long FRAGMENT_US = 1000000;       // cut at the first video keyframe after 1s
+    private static final int TIMESCALE = 1000000;          // all tracks in microseconds
+
+    private static final int FLAGS_SYNC = 0x02000000;      // sample_depends_on = 2
+    private static final int FLAGS_NON_SYNC = 0x01010000;  // depends_on = 1, is_non_sync_sample
+
+    private static class Track {
+        final int id;
+        final MediaFormat format;
+        final boolean video;
+        final List<byte[]> samples = new ArrayList<>();
+        final List<Long> pts = new ArrayList<>();
+        final List<Boolean> sync = new ArrayList<>();
+        long pendingBytes = 0;
+        long lastDurationUs;
+        long samplesWritten = 0;
+
+        Track(int id, MediaFormat format) {
+            this.id = id;
+            this.format = format;
+            this.video = format.getString(MediaFormat.KEY_MIME).startsWith("video/");
+            lastDurationUs = video ? 33333 :
+                    1024L * 1000000 / format.getInteger(MediaFormat.KEY_SAMPLE_RATE);
+        }
+    }
+
+    private final File output;
+    private final File progress;
+    private final String jobKey;
+    private final List<Track> tracks = new ArrayList<>();
+    private RandomAccessFile file;
+    private FileChannel channel;
+    private int sequence = 0;
+    private long fragmentStartUs = -1;
+    private boolean complete = false;
+
+    // jobKey identifies the export - a sidecar left by a different job is never resumed
+    public FragmentedMp4Writer(File output, String jobKey) {
+        this.output = output;
+        this.progress = progressFile(output);
+        this.jobKey = jobKey;
+    }
+
+    private static File progressFile(File output) {
+        return new File(output.getPath() + ".progress");
+    }
+
+    // True when an earlier run of this job got through stop() and the file is still whole -
+    // the caller can go straight to whatever consumes it
+    public static boolean isComplete(File output, String jobKey) {
+        File progress = progressFile(output);
+        if (!progress.exists()) return false;
+        try (DataInputStream in = new DataInputStream(new FileInputStream(progress))) {
+            if (in.readInt() != PROGRESS_MAGIC || !jobKey.equals(in.readUTF())) return false;
+            in.readInt();
+            long length = in.readLong();
+            int trackCount = in.readInt();
+            for (int i = 0; i < trackCount * 2; i++) in.readLong();
+            return in.readBoolean() && output.length() == length;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // The export and its sidecar, once the file has been consumed
+    public static void discard(File output) {
+        output.delete();
+        progressFile(output).delete();
+    }
+
+    public static boolean supports(MediaFormat format) {
+        String mime = format.getString(MediaFormat.KEY_MIME);
+        if (MediaFormat.MIMETYPE_VIDEO_AVC.equals(mime)) {
+            return format.containsKey("csd-0") && format.containsKey("csd-1");
+        }
+        return MediaFormat.MIMETYPE_AUDIO_AAC.equals(mime) && format.containsKey("csd-0");
+    }
+
+    public int addTrack(MediaFormat format) {
+        tracks.add(new Track(tracks.size() + 1, format));
+        return tracks.size() - 1;
+    }
+
+    // Samples of this track already durable from an earlier run (0 on a fresh export)
+    public long samplesWritten(int track) {
+        return tracks.get(track).samplesWritten;
+    }
+
+    public void start() throws IOException {
+        file = new RandomAccessFile(output, "rw");
+        channel = file.getChannel();
+        long durable = readProgress();
+        if (durable > 0 && durable <= channel.size()) {
+            channel.truncate(durable);  // drop a fragment torn by the crash
+            Log.d(TAG, "♻️ Resuming " + output.getName() + " at fragment " + sequence + " (" + durable + " bytes)");
+            return;
+        }
+        for (Track track : tracks) track.samplesWritten = 0;
+        sequence = 0;
+        channel.truncate(0);
+        writeAt(0, header());
+        channel.force(false);
+        writeProgress();
+    }
+
+    public void writeSampleData(int trackIndex, ByteBuffer data, MediaCodec.BufferInfo info) throws IOException {
+        Track track = tracks.get(trackIndex);
+        boolean sync = (info.flags & MediaExtractor.SAMPLE_FLAG_SYNC) != 0;
+        if (track.video && sync && fragmentStartUs >= 0 && info.presentationTimeUs - fragmentStartUs >= FRAGMENT_US) {
+            flushFragment();
+        }
+        if (fragmentStartUs < 0) fragmentStartUs = info.presentationTimeUs;
+
+        byte[] sample = new byte[info.size];
+        data.position(info.offset);
+        data.get(sample, 0, info.size);
+        if (track.video) sample = toLengthPrefixed(sample);
+        track.samples.add(sample);
+        track.pts.add(info.presentationTimeUs);
+        track.sync.add(!track.video || sync);
+        track.pendingBytes += sample.length;
+    }
+
+    public void stop() throws IOException {
+        flushFragment();
+        channel.force(true);
+        complete = true;
+        writeProgress();
+        Log.d(TAG, "🧩 Finished " + output.getName() + ": " + sequence + " fragments, " + channel.size() + " bytes");
+    }
+
+    public void release() {
+        try {
+            if (file != null) file.close();
+        } catch (IOException ignored) {}
+    }
+
+    // ---- fragments ----
+
+    private void flushFragment() throws IOException {
+        fragmentStartUs = -1;
+        long mdatBytes = 0;
+        for (Track track : tracks) mdatBytes += track.pendingBytes;
+        if (mdatBytes == 0) return;
+        sequence++;
+
+        // data_offset depends on moof's size, which doesn't depend on data_offset - build twice
+        Mp4Box moof = moof(new int[tracks.size()]);
+        int[] dataOffsets = new int[tracks.size()];
+        long offset = moof.serializedSize() + 8;
+        for (int t = 0; t < tracks.size(); t++) {
+            dataOffsets[t] = (int) offset;
+            offset += tracks.get(t).pendingBytes;
+        }
+        byte[] moofBytes = moof(dataOffsets).toBytes();
+
+        long position = channel.size();
+        writeAt(position, moofBytes);
+        position += moofBytes.length;
+        writeAt(position, ByteBuffer.allocate(8).putInt((int) (mdatBytes + 8))
+                .put("mdat".getBytes(StandardCharsets.ISO_8859_1)).array());
+        position += 8;
+        for (Track track : tracks) {
+            for (byte[] sample : track.samples) {
+                writeAt(position, sample);
+                position += sample.length;
+            }
+            track.samplesWritten += track.samples.size();
+            track.samples.clear();
+            track.pts.clear();
+            track.sync.clear();
+            track.pendingBytes = 0;
+        }
+        channel.force(false);
+        writeProgress();
+    }
+
+    private Mp4Box moof(int[] dataOffsets) {
+        Mp4Box moof = Mp4Box.container("moof");
+        moof.children.add(Mp4Box.leaf("mfhd", ByteBuffer.allocate(8).putInt(0).putInt(sequence).array()));
+        for (int t = 0; t < tracks.size(); t++) {
+            Track track = tracks.get(t);
+            if (track.samples.isEmpty()) continue;
+
+            // Decode order = arrival order; decode times are the sorted presentation times
+            int count = track.samples.size();
+            long[] dts = new long[count];
+            for (int i = 0; i < count; i++) dts[i] = track.pts.get(i);
+            Arrays.sort(dts);
+
+            Mp4Box traf = Mp4Box.container("traf");
+            traf.children.add(Mp4Box.leaf("tfhd", ByteBuffer.allocate(8)
+                    .putInt(0x020000).putInt(track.id).array()));  // default-base-is-moof
+            traf.children.add(Mp4Box.leaf("tfdt", ByteBuffer.allocate(12)
+                    .putInt(0x01000000).putLong(dts[0]).array()));
+
+            ByteBuffer trun = ByteBuffer.allocate(12 + count * 16);
+            trun.putInt(0x01000F01).putInt(count).putInt(dataOffsets[t]);  // v1: signed cts offsets
+            for (int i = 0; i < count; i++) {
+                long duration = i + 1 < count ? dts[i + 1] - dts[i] : track.lastDurationUs;
+                if (i + 1 < count && duration > 0) track.lastDurationUs = duration;
+                trun.putInt((int) duration)
+                        .putInt(track.samples.get(i).length)
+                        .putInt(track.sync.get(i) ? FLAGS_SYNC : FLAGS_NON_SYNC)
+                        .putInt((int) (track.pts.get(i) - dts[i]));
+            }
+            traf.children.add(Mp4Box.leaf("trun", trun.array()));
+            moof.children.add(traf);
+        }
+        return moof;
+    }
+
+    // Annex-B start codes (what MediaExtractor hands out for AVC) → 4-byte NAL lengths
+    private static byte[] toLengthPrefixed(byte[] sample) {
+        List<int[]> nals = annexBNals(sample);
+        if (nals.isEmpty()) return sample;  // already length-prefixed
+        int total = 0;
+        for (int[] nal : nals) total += 4 + nal[1];
+        ByteBuffer out = ByteBuffer.allocate(total);
+        for (int[] nal : nals) out.putInt(nal[1]).put(sample, nal[0], nal[1]);
+        return out.array();
+    }
+
+    // {start, length} of each NAL unit, or empty when data doesn't begin with a start code
+    private static List<int[]> annexBNals(byte[] data) {
+        List<int[]> nals = new ArrayList<>();
+        int i = startCodeEnd(data, 0);
+        if (i < 0) return nals;
+        while (i < data.length) {
+            int next = i;
+            int nextStart = -1;
+            while (next + 2 < data.length) {
+                if (data[next] == 0 && data[next + 1] == 0 && data[next + 2] == 1) {
+                    nextStart = next;
+                    break;
+                }
+                next++;
+            }
+            int end = nextStart < 0 ? data.length : nextStart;
+            // 4-byte start codes leave one trailing zero on the previous NAL
+            int length = end - i;
+            if (nextStart >= 0 && length > 0 && data[end - 1] == 0) length--;
+            nals.add(new int[]{i, length});
+            if (nextStart < 0) break;
+            i = nextStart + 3;
+        }
+        return nals;
+    }
+
+    private static int startCodeEnd(byte[] data, int from) {
+        if (data.length >= from + 4 && data[from] == 0 && data[from + 1] == 0 && data[from + 2] == 0 && data[from + 3] == 1) {
+            return from + 4;
+        }
+        if (data.length >= from + 3 && data[from] == 0 && data[from + 1] == 0 && data[from + 2] == 1) {
+            return from + 3;
+        }
+        return -1;
+    }
+
+    // ---- ftyp + moov (empty sample tables, mvex/trex) ----
+
+    private byte[] header() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(Mp4Box.leaf("ftyp", "isom\0\0\2\0isomiso6mp41".getBytes(StandardCharsets.ISO_8859_1)).toBytes());
+
+        Mp4Box moov = Mp4Box.container("moov");
+        moov.children.add(Mp4Box.leaf("mvhd", mvhd()));
+        Mp4Box mvex = Mp4Box.container("mvex");
+        for (Track track : tracks) {
+            moov.children.add(trak(track));
+            mvex.children.add(Mp4Box.leaf("trex", ByteBuffer.allocate(24)
+                    .putInt(0).putInt(track.id).putInt(1).array()));
+        }
+        moov.children.add(mvex);
+        out.write(moov.toBytes());
+        return out.toByteArray();
+    }
+
+    private byte[] mvhd() {
+        ByteBuffer mvhd = ByteBuffer.allocate(100);
+        mvhd.putInt(0).putInt(0).putInt(0).putInt(1000).putInt(0);
+        mvhd.putInt(0x00010000).putShort((short) 0x0100).put(new byte[10]);
+        mvhd.put(Mp4MetadataEditor.rotationMatrix(0)).put(new byte[24]);
+        mvhd.putInt(tracks.size() + 1);
+        return mvhd.array();
+    }
+
+    private Mp4Box trak(Track track) throws IOException {
+        MediaFormat format = track.format;
+        int rotation = format.containsKey("rotation-degrees") ? format.getInteger("rotation-degrees") : 0;
+
+        ByteBuffer tkhd = ByteBuffer.allocate(84);
+        tkhd.putInt(0x000003).putInt(0).putInt(0).putInt(track.id).putInt(0).putInt(0).put(new byte[8]);
+        tkhd.putShort((short) 0).putShort((short) 0).putShort((short) (track.video ? 0 : 0x0100)).putShort((short) 0);
+        tkhd.put(Mp4MetadataEditor.rotationMatrix(rotation));
+        if (track.video) {
+            tkhd.putInt(format.getInteger(MediaFormat.KEY_WIDTH) << 16)
+                    .putInt(format.getInteger(MediaFormat.KEY_HEIGHT) << 16);
+        }
+
+        ByteBuffer mdhd = ByteBuffer.allocate(24);
+        mdhd.putInt(0).putInt(0).putInt(0).putInt(TIMESCALE).putInt(0).putShort((short) 0x55C4);  // "und"
+
+        ByteBuffer hdlr = ByteBuffer.allocate(24 + 12);  // name is 11 chars + NUL
+        hdlr.putInt(0).putInt(0).put((track.video ? "vide" : "soun").getBytes(StandardCharsets.ISO_8859_1))
+                .put(new byte[12]).put((track.video ? "VideoHandle" : "SoundHandle").getBytes(StandardCharsets.ISO_8859_1));
+
+        Mp4Box dinf = Mp4Box.container("dinf");
+        ByteBuffer dref = ByteBuffer.allocate(8 + 12);
+        dref.putInt(0).putInt(1).putInt(12).put("url ".getBytes(StandardCharsets.ISO_8859_1)).putInt(1);
+        dinf.children.add(Mp4Box.leaf("dref", dref.array()));
+
+        Mp4Box stbl = Mp4Box.container("stbl");
+        ByteArrayOutputStream stsd = new ByteArrayOutputStream();
+        stsd.write(new byte[]{0, 0, 0, 0, 0, 0, 0, 1});
+        stsd.write(track.video ? avc1(format) : mp4a(format));
+        stbl.children.add(Mp4Box.leaf("stsd", stsd.toByteArray()));
+        stbl.children.add(Mp4Box.leaf("stts", new byte[8]));
+        stbl.children.add(Mp4Box.leaf("stsc", new byte[8]));
+        stbl.children.add(Mp4Box.leaf("stsz", new byte[12]));
+        stbl.children.add(Mp4Box.leaf("stco", new byte[8]));
+
+        Mp4Box minf = Mp4Box.container("minf");
+        minf.children.add(track.video ?
+                Mp4Box.leaf("vmhd", new byte[]{0, 0, 0, 1, 0, 0, 0, 0, 0, 0, 0, 0}) :
+                Mp4Box.leaf("smhd", new byte[8]));
+        minf.children.add(dinf);
+        minf.children.add(stbl);
+
+        Mp4Box mdia = Mp4Box.container("mdia");
+        mdia.children.add(Mp4Box.leaf("mdhd", mdhd.array()));
+        mdia.children.add(Mp4Box.leaf("hdlr", hdlr.array()));
+        mdia.children.add(minf);
+
+        Mp4Box trak = Mp4Box.container("trak");
+        trak.children.add(Mp4Box.leaf("tkhd", tkhd.array()));
+        trak.children.add(mdia);
+        return trak;
+    }
+
+    private static byte[] avc1(MediaFormat format) throws IOException {
+        byte[] sps = firstNal(format.getByteBuffer("csd-0"));
+        byte[] pps = firstNal(format.getByteBuffer("csd-1"));
+        ByteBuffer avcC = ByteBuffer.allocate(11 + sps.length + pps.length);
+        avcC.put((byte) 1).put(sps[1]).put(sps[2]).put(sps[3]).put((byte) 0xFF).put((byte) 0xE1);
+        avcC.putShort((short) sps.length).put(sps).put((byte) 1).putShort((short) pps.length).put(pps);
+
+        ByteBuffer entry = ByteBuffer.allocate(78);
+        entry.put(new byte[6]).putShort((short) 1).put(new byte[16]);
+        entry.putShort((short) format.getInteger(MediaFormat.KEY_WIDTH))
+                .putShort((short) format.getInteger(MediaFormat.KEY_HEIGHT));
+        entry.putInt(0x00480000).putInt(0x00480000).putInt(0).putShort((short) 1);
+        entry.put(new byte[32]).putShort((short) 0x0018).putShort((short) -1);
+
+        Mp4Box avc1 = Mp4Box.leaf("avc1", entry.array());
+        avc1.children.add(Mp4Box.leaf("avcC", avcC.array()));
+        return avc1.toBytes();
+    }
+
+    private static byte[] mp4a(MediaFormat format) throws IOException {
+        ByteBuffer csd = format.getByteBuffer("csd-0");
+        byte[] asc = new byte[csd.remaining()];
+        csd.duplicate().get(asc);
+
+        // ES_Descriptor → DecoderConfigDescriptor (AAC, audio stream) → DecoderSpecificInfo + SLConfig
+        ByteBuffer esds = ByteBuffer.allocate(4 + 5 + 15 + 2 + asc.length + 3);
+        esds.putInt(0);
+        esds.put((byte) 0x03).put((byte) (3 + 15 + 2 + asc.length + 3)).putShort((short) 1).put((byte) 0);
+        esds.put((byte) 0x04).put((byte) (13 + 2 + asc.length)).put((byte) 0x40).put((byte) 0x15)
+                .put(new byte[3]).putInt(0).putInt(0);
+        esds.put((byte) 0x05).put((byte) asc.length).put(asc);
+        esds.put((byte) 0x06).put((byte) 1).put((byte) 0x02);
+
+        ByteBuffer entry = ByteBuffer.allocate(28);
+        entry.put(new byte[6]).putShort((short) 1).put(new byte[8]);
+        entry.putShort((short) format.getInteger(MediaFormat.KEY_CHANNEL_COUNT)).putShort((short) 16)
+                .putInt(0).putInt(format.getInteger(MediaFormat.KEY_SAMPLE_RATE) << 16);
+
+        Mp4Box mp4a = Mp4Box.leaf("mp4a", entry.array());
+        mp4a.children.add(Mp4Box.leaf("esds", Arrays.copyOf(esds.array(), esds.position())));
+        return mp4a.toBytes();
+    }
+
+    private static byte[] firstNal(ByteBuffer csd) {
+        byte[] data = new byte[csd.remaining()];
+        csd.duplicate().get(data);
+        List<int[]> nals = annexBNals(data);
+        if (nals.isEmpty()) return data;
+        return Arrays.copyOfRange(data, nals.get(0)[0], nals.get(0)[0] + nals.get(0)[1]);
+    }
+
+    // ---- durability ----
+
+    private void writeAt(long position, byte[] bytes) throws IOException {
+        ByteBuffer src = ByteBuffer.wrap(bytes);
+        while (src.hasRemaining()) position += channel.write(src, position);
+    }
+
+    // Written after the fragment is fsynced; tmp + rename so the sidecar itself is never torn
+    private void writeProgress() throws IOException {
+        File tmp = new File(progress.getPath() + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmp);
+             DataOutputStream out = new DataOutputStream(fos)) {
+            out.writeInt(PROGRESS_MAGIC);
+            out.writeUTF(jobKey);
+            out.writeInt(sequence);
+            out.writeLong(channel.size());
+            out.writeInt(tracks.size());
+            for (Track track : tracks) {
+                out.writeLong(track.samplesWritten);
+                out.writeLong(track.lastDurationUs);
+            }
+            out.writeBoolean(complete);
+            out.flush();
+            fos.getFD().sync();
+        }
+        if (!tmp.renameTo(progress)) throw new IOException("Could not commit progress");
+    }
+
+    // Durable length of the resumable export, or -1 when starting fresh
+    private long readProgress() {
+        if (!progress.exists()) return -1;
+        try (DataInputStream in = new DataInputStream(new FileInputStream(progress))) {
+            if (in.readInt() != PROGRESS_MAGIC || !jobKey.equals(in.readUTF())) return -1;
+            int savedSequence = in.readInt();
+            long length = in.readLong();
+            if (in.readInt() != tracks.size()) return -1;
+            for (Track track : tracks) {
+                track.samplesWritten = in.readLong();
+                track.lastDurationUs = in.readLong();
+            }
+            sequence = savedSequence;
+            return length;
+        } catch (IOException e) {
+            Log.w(TAG, "Unreadable progress sidecar - starting over", e);
+            return -1;
+        }
+    }
+}
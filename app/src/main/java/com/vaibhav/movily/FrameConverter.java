@@ -0,0 +1,57 @@
+package com.vaibhav.movily;
+
+import android.graphics.Bitmap;
+import android.graphics.Rect;
+import android.media.Image;
+import java.nio.ByteBuffer;
+
+// 🔥 YUV_420_888 decoder output → ARGB bitmap, downsampled, into caller-owned buffers (no per-frame allocs)
+public class FrameConverter {
+
+    private FrameConverter() {}
+
+    // Integer subsampling step so the converted frame is at most maxWidth wide
+    public static int sampleStep(int width, int maxWidth) {
+        return Math.max(1, (width + maxWidth - 1) / maxWidth);
+    }
+
+    public static void toBitmap(Image image, int step, int[] scratch, Bitmap target) {
+        Rect crop = image.getCropRect();
+        Image.Plane[] planes = image.getPlanes();
+        ByteBuffer yBuf = planes[0].getBuffer();
+        ByteBuffer uBuf = planes[1].getBuffer();
+        ByteBuffer vBuf = planes[2].getBuffer();
+        int yRow = planes[0].getRowStride(), yPix = planes[0].getPixelStride();
+        int uvRow = planes[1].getRowStride(), uvPix = planes[1].getPixelStride();
+
+        int outW = target.getWidth();
+        int outH = target.getHeight();
+        int maxX = crop.width() - 1, maxY = crop.height() - 1;
+
+        for (int oy = 0; oy < outH; oy++) {
+            int sy = crop.top + Math.min(oy * step, maxY);
+            int yRowBase = sy * yRow;
+            int uvRowBase = (sy >> 1) * uvRow;
+            int outBase = oy * outW;
+            for (int ox = 0; ox < outW; ox++) {
+                int sx = crop.left + Math.min(ox * step, maxX);
+                int y = (yBuf.get(yRowBase + sx * yPix) & 0xFF) - 16;
+                int uvIndex = uvRowBase + (sx >> 1) * uvPix;
+                int u = (uBuf.get(uvIndex) & 0xFF) - 128;
+                int v = (vBuf.get(uvIndex) & 0xFF) - 128;
+
+                // BT.601 integer approximation
+                int y1192 = 1192 * Math.max(y, 0);
+                int r = clamp((y1192 + 1634 * v) >> 10);
+                int g = clamp((y1192 - 833 * v - 400 * u) >> 10);
+                int b = clamp((y1192 + 2066 * u) >> 10);
+                scratch[outBase + ox] = 0xFF000000 | (r << 16) | (g << 8) | b;
+            }
+        }
+        target.setPixels(scratch, 0, outW, 0, 0, outW, outH);
+    }
+
+    private static int clamp(int c) {
+        return c < 0 ? 0 : (c > 255 ? 255 : c);
+    }
+}
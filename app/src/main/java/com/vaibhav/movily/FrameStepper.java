@@ -0,0 +1,295 @@
+package com.vaibhav.movily;
+
+import android.graphics.Bitmap;
+import android.media.Image;
+import android.media.MediaCodec;
+import android.media.MediaCodecInfo;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// 🔥 Frame-accurate stepping: MediaCodec decoder + bounded ring of recently decoded frames.
+// Frames in the ring are contiguous in presentation order, so stepping back inside it is free.
+public class FrameStepper {
+
+    private static final String TAG = "FrameStepper";
+    private static final long TIMEOUT_US = 10000;
+    private static final int MAX_FRAME_WIDTH = 640;
+    public static final int DEFAULT_RING_SIZE = 32;
+
+    public interface Listener {
+        void onFrame(Bitmap frame, long ptsUs);
+        void onError(String message);
+    }
+
+    private final VideoTrackInfo track;
+    private final Listener listener;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService worker = Executors.newSingleThreadExecutor();
+
+    // Ring state - only touched on the worker thread
+    private final Bitmap[] ringFrames;
+    private final long[] ringPts;
+    private volatile int capacity;  // usable slots - may shrink under memory pressure
+    private int ringStart = 0;
+    private int ringCount = 0;
+    private int cursor = -1;  // logical index (0 = oldest) of the frame on screen
+    // Bitmaps handed to the UI - the newest post and the one it may still be drawing until then.
+    // The ring never decodes into these; their slot gets a fresh bitmap instead.
+    private Bitmap postedFrame, previousPostedFrame;
+
+    private final int sampleStep;
+    private final int frameWidth, frameHeight;
+    private final int[] scratchPixels;
+
+    private MediaExtractor extractor;
+    private MediaCodec decoder;
+    private final MediaCodec.BufferInfo bufferInfo = new MediaCodec.BufferInfo();
+    private boolean inputDone = false;
+    private boolean outputDone = false;
+    private volatile boolean released = false;
+
+    public FrameStepper(VideoTrackInfo track, int ringSize, Listener listener) {
+        this.track = track;
+        this.listener = listener;
+        this.ringFrames = new Bitmap[ringSize];
+        this.ringPts = new long[ringSize];
+        this.sampleStep = FrameConverter.sampleStep(track.width, MAX_FRAME_WIDTH);
+        this.frameWidth = Math.max(1, track.width / sampleStep);
+        this.frameHeight = Math.max(1, track.height / sampleStep);
+        this.scratchPixels = new int[frameWidth * frameHeight];
+        // 🧠 Ring sized to the shared budget - a low-end device holds fewer decoded frames
+        this.capacity = CacheBudgetCoordinator.fit(frameBytes(), ringSize, 2);
+        CacheBudgetCoordinator.register("frameRing", CacheBudgetCoordinator.PRIORITY_NORMAL, ringCache);
+    }
+
+    private final CacheBudgetCoordinator.ManagedCache ringCache = new CacheBudgetCoordinator.ManagedCache() {
+        @Override
+        public long sizeBytes() {
+            return (long) capacity * frameBytes();
+        }
+
+        @Override
+        public void trimTo(long maxBytes) {
+            worker.execute(() -> shrinkRing((int) Math.max(2, maxBytes / frameBytes())));
+        }
+    };
+
+    private long frameBytes() {
+        return (long) frameWidth * frameHeight * 4;
+    }
+
+    // Worker thread: drops every decoded frame and caps the ring (the shown bitmap stays valid)
+    private void shrinkRing(int maxFrames) {
+        if (maxFrames >= capacity) return;
+        capacity = maxFrames;
+        for (int i = 0; i < ringFrames.length; i++) ringFrames[i] = null;
+        ringStart = 0;
+        ringCount = 0;
+        cursor = -1;
+        Log.d(TAG, "🧠 Frame ring → " + capacity + " frames");
+    }
+
+    // direction: +1 next frame, -1 previous frame, 0 = show frame at position
+    public void step(int positionMs, int direction) {
+        worker.execute(() -> {
+            if (released) return;
+            try {
+                ensureDecoder();
+                stepInternal(positionMs * 1000L, direction);
+            } catch (Exception e) {
+                Log.e(TAG, "Step failed", e);
+                postError("Frame step failed");
+            }
+        });
+    }
+
+    private void stepInternal(long positionUs, int direction) {
+        // Re-anchor the cursor if the playhead moved away from the shown frame
+        if (cursor < 0 || ptsAt(cursor) / 1000 != positionUs / 1000) {
+            int found = findFrameAtOrBefore(positionUs);
+            if (found < 0 || (found == ringCount - 1 && positionUs > ptsAt(found) + frameGapUs())) {
+                seekAndDecodeUntil(positionUs);
+                found = findFrameAtOrBefore(positionUs);
+                if (found < 0 && ringCount > 0) found = 0;
+            }
+            cursor = found;
+        }
+        if (cursor < 0) {
+            postError("No frame at this position");
+            return;
+        }
+
+        if (direction > 0) {
+            if (cursor < ringCount - 1) {
+                cursor++;
+            } else if (decodeNextFrame()) {
+                cursor = ringCount - 1;
+            }
+        } else if (direction < 0) {
+            if (cursor > 0) {
+                cursor--;  // ✅ still inside the ring - no decode at all
+            } else {
+                long currentPts = ptsAt(cursor);
+                if (currentPts <= 0) {
+                    postFrame(cursor);
+                    return;
+                }
+                // Refill from the GOP holding the frame before this one - seeking to currentPts itself
+                // lands back on this frame when it's a keyframe, and the cursor never moves
+                seekAndDecodeUntil(currentPts - 1);
+                int previous = findFrameAtOrBefore(currentPts - 1);
+                cursor = previous >= 0 ? previous : 0;
+            }
+        }
+        postFrame(cursor);
+    }
+
+    private void ensureDecoder() throws Exception {
+        if (decoder != null) return;
+        extractor = track.openExtractor();
+        MediaFormat format = track.newDecoderFormat();
+        format.setInteger(MediaFormat.KEY_COLOR_FORMAT,
+                MediaCodecInfo.CodecCapabilities.COLOR_FormatYUV420Flexible);
+        decoder = track.createDecoder();
+        decoder.configure(format, null, null, 0);
+        decoder.start();
+        Log.d(TAG, "🎞️ Decoder ready: " + track.decoderName + " frame " + frameWidth + "x" + frameHeight);
+    }
+
+    // Seek to the sync sample before targetUs and decode forward until a frame reaches targetUs
+    private void seekAndDecodeUntil(long targetUs) {
+        decoder.flush();
+        extractor.seekTo(targetUs, MediaExtractor.SEEK_TO_PREVIOUS_SYNC);
+        inputDone = false;
+        outputDone = false;
+        ringStart = 0;
+        ringCount = 0;
+        cursor = -1;
+        while (decodeNextFrame()) {
+            if (ptsAt(ringCount - 1) >= targetUs) break;
+        }
+    }
+
+    // Decodes exactly one more frame into the ring; false at end of stream
+    private boolean decodeNextFrame() {
+        while (!outputDone) {
+            if (!inputDone) {
+                int inIndex = decoder.dequeueInputBuffer(TIMEOUT_US);
+                if (inIndex >= 0) {
+                    ByteBuffer input = decoder.getInputBuffer(inIndex);
+                    int size = extractor.readSampleData(input, 0);
+                    if (size < 0) {
+                        decoder.queueInputBuffer(inIndex, 0, 0, 0, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+                        inputDone = true;
+                    } else {
+                        decoder.queueInputBuffer(inIndex, 0, size, extractor.getSampleTime(), 0);
+                        extractor.advance();
+                    }
+                }
+            }
+
+            int outIndex = decoder.dequeueOutputBuffer(bufferInfo, TIMEOUT_US);
+            if (outIndex < 0) continue;
+
+            boolean appended = false;
+            if (bufferInfo.size > 0) {
+                Image image = decoder.getOutputImage(outIndex);
+                if (image != null) {
+                    appendFrame(image, bufferInfo.presentationTimeUs);
+                    image.close();
+                    appended = true;
+                }
+            }
+            // Output buffer goes straight back to the codec - the ring keeps only converted pixels
+            decoder.releaseOutputBuffer(outIndex, false);
+            if ((bufferInfo.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
+                outputDone = true;
+            }
+            if (appended) return true;
+        }
+        return false;
+    }
+
+    private void appendFrame(Image image, long ptsUs) {
+        int slot;
+        if (ringCount < capacity) {
+            slot = (ringStart + ringCount) % capacity;
+            ringCount++;
+        } else {
+            // Ring full → overwrite the oldest slot and reuse its bitmap
+            slot = ringStart;
+            ringStart = (ringStart + 1) % capacity;
+            if (cursor > 0) cursor--;
+        }
+        if (ringFrames[slot] == postedFrame || ringFrames[slot] == previousPostedFrame) {
+            ringFrames[slot] = null;  // 🖼️ on screen - the UI keeps it, the ring moves on
+        }
+        if (ringFrames[slot] == null) {
+            ringFrames[slot] = Bitmap.createBitmap(frameWidth, frameHeight, Bitmap.Config.ARGB_8888);
+        }
+        FrameConverter.toBitmap(image, sampleStep, scratchPixels, ringFrames[slot]);
+        ringPts[slot] = ptsUs;
+    }
+
+    private long ptsAt(int logicalIndex) {
+        return ringPts[(ringStart + logicalIndex) % capacity];
+    }
+
+    private int findFrameAtOrBefore(long ptsUs) {
+        int found = -1;
+        for (int i = 0; i < ringCount; i++) {
+            if (ptsAt(i) <= ptsUs) found = i;
+            else break;
+        }
+        return found;
+    }
+
+    private long frameGapUs() {
+        if (ringCount < 2) return 100000;
+        return Math.max(1, (ptsAt(ringCount - 1) - ptsAt(0)) / (ringCount - 1)) * 2;
+    }
+
+    private void postFrame(int logicalIndex) {
+        int slot = (ringStart + logicalIndex) % capacity;
+        Bitmap frame = ringFrames[slot];
+        long pts = ringPts[slot];
+        if (frame != postedFrame) {
+            previousPostedFrame = postedFrame;
+            postedFrame = frame;
+        }
+        mainHandler.post(() -> {
+            if (!released) listener.onFrame(frame, pts);
+        });
+    }
+
+    private void postError(String message) {
+        mainHandler.post(() -> {
+            if (!released) listener.onError(message);
+        });
+    }
+
+    public void release() {
+        released = true;
+        CacheBudgetCoordinator.unregister(ringCache);
+        worker.execute(() -> {
+            try {
+                if (decoder != null) {
+                    decoder.stop();
+                    decoder.release();
+                }
+                if (extractor != null) extractor.release();
+            } catch (Exception e) {
+                Log.e(TAG, "Release error", e);
+            }
+            decoder = null;
+            extractor = null;
+        });
+        worker.shutdown();
+    }
+}
@@ -0,0 +1,77 @@
+package com.vaibhav.movily;
+
+import android.util.Log;
+
+// 🚰 Token-bucket throttle for background media I/O (import copies, remux/concat sample loops).
+// While any foreground playback is active the bucket refills at PLAYBACK_RATE so the player keeps
+// its share of flash bandwidth; with nothing playing there is no one to protect and I/O runs
+// unthrottled. Requests larger than the bucket are allowed into debt and wait it off, so multi-MB
+// samples never deadlock.
+public class IoGovernor {
+
+    private static final String TAG = "IoGovernor";
+    public static final long PLAYBACK_RATE = 16L * 1024 * 1024;   // bytes/s
+    private static final double BURST_SECONDS = 0.25;
+
+    private static double tokens = PLAYBACK_RATE * BURST_SECONDS;
+    private static long lastRefillNs = System.nanoTime();
+    private static int foregroundPlayers = 0;
+
+    // Metrics
+    private static long bytesGranted = 0, throttledNs = 0;
+    private static long windowStartNs = System.nanoTime(), windowBytes = 0, observedRate = 0;
+
+    private IoGovernor() {}
+
+    // Blocks until `bytes` may be read/written; returns immediately for non-positive sizes
+    public static void acquire(int bytes) throws InterruptedException {
+        if (bytes <= 0) return;
+        long waitNs;
+        synchronized (IoGovernor.class) {
+            refill();
+            bytesGranted += bytes;
+            windowBytes += bytes;
+            if (foregroundPlayers == 0) return;
+            tokens -= bytes;
+            waitNs = tokens < 0 ? (long) (-tokens * 1e9 / PLAYBACK_RATE) : 0;
+            throttledNs += waitNs;
+        }
+        if (waitNs > 0) Thread.sleep(waitNs / 1_000_000, (int) (waitNs % 1_000_000));
+    }
+
+    // Balanced calls from each player: started when playback begins, stopped when it ends
+    public static synchronized void playbackStarted() {
+        if (++foregroundPlayers > 1) return;
+        refill();
+        tokens = PLAYBACK_RATE * BURST_SECONDS;  // a fresh playback starts from a full burst
+        Log.d(TAG, "🚰 Background I/O limit → " + PLAYBACK_RATE / (1024 * 1024) + " MB/s");
+    }
+
+    public static synchronized void playbackStopped() {
+        if (foregroundPlayers == 0) return;
+        if (--foregroundPlayers == 0) Log.d(TAG, "🚰 Background I/O unthrottled");
+    }
+
+    public static synchronized String stats() {
+        rollWindow();
+        String limit = foregroundPlayers > 0 ? PLAYBACK_RATE / (1024 * 1024) + " MB/s" : "none";
+        return "limit " + limit + ", observed " + observedRate / (1024 * 1024) + " MB/s, granted " + bytesGranted / (1024 * 1024) + " MB, throttled "
+                + throttledNs / 1_000_000 + "ms, players " + foregroundPlayers;
+    }
+
+    private static void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(PLAYBACK_RATE * BURST_SECONDS, tokens + (now - lastRefillNs) * PLAYBACK_RATE / 1e9);
+        lastRefillNs = now;
+        rollWindow();
+    }
+
+    private static void rollWindow() {
+        long now = System.nanoTime();
+        long elapsed = now - windowStartNs;
+        if (elapsed < 1_000_000_000L) return;
+        observedRate = (long) (windowBytes * 1e9 / elapsed);
+        windowBytes = 0;
+        windowStartNs = now;
+    }
+}
@@ -0,0 +1,55 @@
+package com.vaibhav.movily;
+
+import android.media.Image;
+import android.media.MediaCodec;
+import android.media.MediaExtractor;
+import java.util.function.Consumer;
+
+// 🔥 Keyframe-only decode: flush, feed the extractor's current (sync) sample + EOS, hand the single
+// output Image to the caller. Shared by the filmstrip and scene-cut confirmation.
+public class KeyframeDecoder {
+
+    private static final long TIMEOUT_US = 10000;
+    private static final int MAX_DRAIN_ATTEMPTS = 200;
+
+    private KeyframeDecoder() {}
+
+    // Decoder must be configured for ByteBuffer output (COLOR_FormatYUV420Flexible) and started
+    public static boolean decodeCurrentSample(MediaCodec decoder, MediaExtractor extractor,
+                                              Consumer<Image> onImage) {
+        decoder.flush();
+        MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+        boolean queued = false, eosQueued = false;
+        for (int attempt = 0; attempt < MAX_DRAIN_ATTEMPTS; attempt++) {
+            if (!eosQueued) {
+                int inIndex = decoder.dequeueInputBuffer(TIMEOUT_US);
+                if (inIndex >= 0) {
+                    int size = queued ? -1 : extractor.readSampleData(decoder.getInputBuffer(inIndex), 0);
+                    if (size < 0) {
+                        decoder.queueInputBuffer(inIndex, 0, 0, 0, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+                        eosQueued = true;
+                    } else {
+                        decoder.queueInputBuffer(inIndex, 0, size, extractor.getSampleTime(), 0);
+                        queued = true;
+                    }
+                }
+            }
+            int outIndex = decoder.dequeueOutputBuffer(info, TIMEOUT_US);
+            if (outIndex < 0) continue;
+
+            boolean delivered = false;
+            if (info.size > 0) {
+                Image image = decoder.getOutputImage(outIndex);
+                if (image != null) {
+                    onImage.accept(image);
+                    image.close();
+                    delivered = true;
+                }
+            }
+            decoder.releaseOutputBuffer(outIndex, false);
+            if (delivered) return true;
+            if ((info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) return false;
+        }
+        return false;
+    }
+}
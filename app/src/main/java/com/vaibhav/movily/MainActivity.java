@@ -1,13 +1,20 @@
 package com.vaibhav.movily;
 
 import android.content.Intent;
+import android.net.Uri;
 import android.os.Bundle;
+import android.os.Environment;
+import android.util.Log;
+import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
+import android.widget.Toast;
 import androidx.activity.EdgeToEdge;
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.ActionBarDrawerToggle;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.appcompat.view.ActionMode;
 import androidx.appcompat.widget.Toolbar;
 import androidx.core.graphics.Insets;
 import androidx.core.view.ViewCompat;
@@ -19,18 +26,33 @@ import com.google.android.material.navigation.NavigationView;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.WriteBatch;
+import java.io.File;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class MainActivity extends AppCompatActivity {
 
+    private static final String TAG = "MainActivity";
+    private static final int FIRESTORE_BATCH_LIMIT = 500;  // max writes per WriteBatch
+    private static final int MENU_SELECT_ALL = 1;
+    private static final int MENU_DELETE = 2;
+    private static final int MENU_DUPLICATE = 3;
+
     private DrawerLayout drawerLayout;
     private NavigationView navigationView;
     private Toolbar toolbar;
     private RecyclerView rvProjects;
+    private ProjectsAdapter projectsAdapter;
+    private ActionMode selectionMode;
+    private final Set<String> pendingDeletes = new HashSet<>();  // removed locally, batch not acked yet
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -44,6 +66,10 @@ public class MainActivity extends AppCompatActivity {
             return;
         }
 
+        DeviceConditions.init(this);
+        CacheBudgetCoordinator.init(this);
+        PerformanceProfile.init(this);
+
         // ✅ LOGGED IN → Edge-to-Edge UI
         EdgeToEdge.enable(this);
         setContentView(R.layout.activity_main);
@@ -59,6 +85,9 @@ public class MainActivity extends AppCompatActivity {
         drawerLayout = findViewById(R.id.drawerLayout);
         navigationView = findViewById(R.id.navigationView);
         rvProjects = findViewById(R.id.rvProjects); // Add this ID to XML
+        projectsAdapter = new ProjectsAdapter(this::onSelectionChanged);
+        rvProjects.setLayoutManager(new LinearLayoutManager(this));
+        rvProjects.setAdapter(projectsAdapter);
 
         // 🔹 Set Toolbar as ActionBar
         setSupportActionBar(toolbar);
@@ -106,8 +135,6 @@ public class MainActivity extends AppCompatActivity {
     private void loadProjects() {
         String userId = FirebaseAuth.getInstance().getCurrentUser().getUid();
 
-        rvProjects.setLayoutManager(new LinearLayoutManager(this));
-
         FirebaseFirestore.getInstance()
                 .collection("users").document(userId).collection("projects")
                 .orderBy("createdAt", Query.Direction.DESCENDING)
@@ -115,19 +142,240 @@ public class MainActivity extends AppCompatActivity {
                 .addOnCompleteListener(task -> {
                     if (task.isSuccessful()) {
                         List<Project> projects = new ArrayList<>();
+                        List<String> videoPaths = new ArrayList<>();
                         for (DocumentSnapshot doc : task.getResult()) {
+                            String videoPath = doc.getString("videoPath");
+                            if (videoPath != null) videoPaths.add(videoPath);
+                            if (pendingDeletes.contains(doc.getId())) continue;
                             Map<String, Object> data = doc.getData();
                             Project project = new Project();
                             project.name = (String) data.get("name");
                             project.projectId = doc.getId();
-                            project.videoUri = (String) data.get("videoUri");
+                            project.videoPath = videoPath;
+                            project.sourceUri = (String) data.get("sourceUri");
                             projects.add(project);
                         }
-                        rvProjects.setAdapter(new ProjectsAdapter(projects));
+                        projectsAdapter.submitList(projects);
+                        // 🧹 Complete project listing in hand - safe to collect orphans + trim caches.
+                        // An offline-cache answer can be missing projects saved elsewhere, so only a
+                        // server-confirmed listing may delete files.
+                        if (!task.getResult().getMetadata().isFromCache()) {
+                            StorageManager.reconcile(this, userId, videoPaths);
+                        }
                     }
                 });
     }
 
+    // ---- Multi-select delete ----
+
+    private void onSelectionChanged(int selectedCount) {
+        if (selectedCount == 0) {
+            if (selectionMode != null) selectionMode.finish();
+            return;
+        }
+        if (selectionMode == null) selectionMode = startSupportActionMode(selectionCallback);
+        if (selectionMode != null) selectionMode.setTitle(selectedCount + " selected");
+    }
+
+    private final ActionMode.Callback selectionCallback = new ActionMode.Callback() {
+        @Override
+        public boolean onCreateActionMode(ActionMode mode, Menu menu) {
+            menu.add(Menu.NONE, MENU_SELECT_ALL, Menu.NONE, "Select all")
+                    .setShowAsAction(MenuItem.SHOW_AS_ACTION_IF_ROOM);
+            menu.add(Menu.NONE, MENU_DUPLICATE, Menu.NONE, "🪞 Duplicate")
+                    .setShowAsAction(MenuItem.SHOW_AS_ACTION_IF_ROOM);
+            menu.add(Menu.NONE, MENU_DELETE, Menu.NONE, "🗑️ Delete")
+                    .setShowAsAction(MenuItem.SHOW_AS_ACTION_ALWAYS);
+            return true;
+        }
+
+        @Override
+        public boolean onPrepareActionMode(ActionMode mode, Menu menu) {
+            return false;
+        }
+
+        @Override
+        public boolean onActionItemClicked(ActionMode mode, MenuItem item) {
+            if (item.getItemId() == MENU_SELECT_ALL) {
+                projectsAdapter.selectAll();
+                return true;
+            }
+            if (item.getItemId() == MENU_DUPLICATE) {
+                duplicateProjects(projectsAdapter.getSelected());
+                return true;
+            }
+            if (item.getItemId() == MENU_DELETE) {
+                confirmDelete(projectsAdapter.getSelected());
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public void onDestroyActionMode(ActionMode mode) {
+            selectionMode = null;
+            projectsAdapter.clearSelection();
+        }
+    };
+
+    private void confirmDelete(List<Project> doomed) {
+        if (doomed.isEmpty()) return;
+        new AlertDialog.Builder(this)
+                .setTitle(doomed.size() == 1 ? "Delete project?" : "Delete " + doomed.size() + " projects?")
+                .setMessage("Their videos and edits are removed from this device.")
+                .setPositiveButton("🗑️ Delete", (dialog, which) -> deleteProjects(doomed))
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    // 🗑️ Rows vanish right away (DiffUtil animates the gaps); Firestore gets one WriteBatch per 500
+    // documents, and only acknowledged deletions hand their files to the reclamation queue
+    private void deleteProjects(List<Project> doomed) {
+        if (selectionMode != null) selectionMode.finish();
+        String userId = FirebaseAuth.getInstance().getCurrentUser().getUid();
+        FirebaseFirestore db = FirebaseFirestore.getInstance();
+
+        Set<String> doomedIds = new HashSet<>();
+        for (Project project : doomed) doomedIds.add(project.projectId);
+        pendingDeletes.addAll(doomedIds);
+        List<Project> remaining = new ArrayList<>();
+        for (Project project : projectsAdapter.getCurrentList()) {
+            if (!doomedIds.contains(project.projectId)) remaining.add(project);
+        }
+        projectsAdapter.submitList(remaining);
+
+        for (int from = 0; from < doomed.size(); from += FIRESTORE_BATCH_LIMIT) {
+            List<Project> chunk = doomed.subList(from, Math.min(doomed.size(), from + FIRESTORE_BATCH_LIMIT));
+            WriteBatch batch = db.batch();
+            for (Project project : chunk) {
+                batch.delete(db.collection("users").document(userId)
+                        .collection("projects").document(project.projectId));
+            }
+            batch.commit()
+                    .addOnSuccessListener(aVoid -> onProjectsDeleted(chunk))
+                    .addOnFailureListener(e -> {
+                        Log.e(TAG, "Firestore delete batch failed", e);
+                        for (Project project : chunk) pendingDeletes.remove(project.projectId);
+                        Toast.makeText(this, "Couldn't delete " + chunk.size() + " projects: " + e.getMessage(),
+                                Toast.LENGTH_LONG).show();
+                        loadProjects();  // bring the survivors back
+                    });
+        }
+    }
+
+    private void onProjectsDeleted(List<Project> deleted) {
+        // Duplicates of a linked project share its grant - keep it while any of them is left
+        Set<String> stillLinked = new HashSet<>();
+        for (Project project : projectsAdapter.getCurrentList()) {
+            if (project.sourceUri != null) stillLinked.add(project.sourceUri);
+        }
+        List<String> videoPaths = new ArrayList<>();
+        for (Project project : deleted) {
+            pendingDeletes.remove(project.projectId);
+            if (project.videoPath != null) videoPaths.add(project.videoPath);
+            if (project.sourceUri != null && !stillLinked.contains(project.sourceUri)) {
+                releaseLinkedOriginal(project.sourceUri);
+            }
+        }
+        StorageManager.reclaim(this, videoPaths);
+        Log.d(TAG, "🗑️ Deleted " + deleted.size() + " projects, reclaiming " + videoPaths.size() + " videos");
+    }
+
+    // ---- Duplicate ----
+
+    // 🪞 Duplicates hard-link the original video (milliseconds, no extra space) - the two part
+    // ways on the first in-place edit. Linked projects just share the same source URI.
+    private void duplicateProjects(List<Project> originals) {
+        if (originals.isEmpty()) return;
+        if (selectionMode != null) selectionMode.finish();
+        String userId = FirebaseAuth.getInstance().getCurrentUser().getUid();
+        File projectsDir = new File(getExternalFilesDir(Environment.DIRECTORY_MOVIES), "projects");
+        String stamp = String.valueOf(System.currentTimeMillis());
+
+        TaskScheduler.submit(TaskScheduler.Pool.IO, TaskScheduler.Priority.HIGH, TaskScheduler.UNCANCELLABLE, job -> {
+            long started = System.currentTimeMillis();
+            List<HashMap<String, Object>> documents = new ArrayList<>();
+            List<String> createdPaths = new ArrayList<>();
+            int linked = 0;
+            for (int i = 0; i < originals.size(); i++) {
+                Project original = originals.get(i);
+                String newId = userId + "_" + stamp + "_" + (i + 1);
+                HashMap<String, Object> project = new HashMap<>();
+                project.put("name", original.name + " (copy)");
+                project.put("projectId", newId);
+                project.put("createdAt", FieldValue.serverTimestamp());
+                project.put("thumbnail", "");
+                try {
+                    if (original.videoPath != null) {
+                        File dest = new File(projectsDir, newId + ".mp4");
+                        if (MediaLinks.linkOrCopy(new File(original.videoPath), dest)) linked++;
+                        createdPaths.add(dest.getAbsolutePath());
+                        project.put("videoPath", dest.getAbsolutePath());
+                    } else if (original.sourceUri != null) {
+                        project.put("sourceUri", original.sourceUri);
+                    } else {
+                        continue;
+                    }
+                    documents.add(project);
+                } catch (Exception e) {
+                    Log.e(TAG, "Duplicate failed for " + original.projectId, e);
+                }
+            }
+            Log.d(TAG, "🪞 Duplicated " + documents.size() + " projects (" + linked + " hard-linked) in "
+                    + (System.currentTimeMillis() - started) + "ms");
+            int failed = originals.size() - documents.size();
+            int copied = createdPaths.size() - linked;  // storage refused links - these cost full space
+            runOnUiThread(() -> saveDuplicates(userId, documents, createdPaths, failed, copied));
+        });
+    }
+
+    private void saveDuplicates(String userId, List<HashMap<String, Object>> documents, List<String> createdPaths,
+                                int failed, int copied) {
+        if (documents.isEmpty()) {
+            Toast.makeText(this, "❌ Couldn't duplicate", Toast.LENGTH_LONG).show();
+            return;
+        }
+        FirebaseFirestore db = FirebaseFirestore.getInstance();
+        for (int from = 0; from < documents.size(); from += FIRESTORE_BATCH_LIMIT) {
+            List<HashMap<String, Object>> chunk =
+                    documents.subList(from, Math.min(documents.size(), from + FIRESTORE_BATCH_LIMIT));
+            WriteBatch batch = db.batch();
+            for (HashMap<String, Object> project : chunk) {
+                batch.set(db.collection("users").document(userId)
+                        .collection("projects").document((String) project.get("projectId")), project);
+            }
+            batch.commit()
+                    .addOnSuccessListener(aVoid -> {
+                        String message = failed == 0 ? "🪞 Duplicated!" : "🪞 Duplicated, " + failed + " failed";
+                        if (copied > 0) {
+                            message += "\n⚠️ Storage can't share videos - " + copied
+                                    + (copied == 1 ? " copy uses" : " copies use") + " full space";
+                        }
+                        Toast.makeText(this, message, copied > 0 ? Toast.LENGTH_LONG : Toast.LENGTH_SHORT).show();
+                        loadProjects();
+                    })
+                    .addOnFailureListener(e -> {
+                        Log.e(TAG, "Firestore duplicate batch failed", e);
+                        // Links cost nothing to drop - remove the ones this batch would have owned
+                        for (HashMap<String, Object> project : chunk) {
+                            Object path = project.get("videoPath");
+                            if (path != null && createdPaths.contains(path)) new File((String) path).delete();
+                        }
+                        Toast.makeText(this, "Save error: " + e.getMessage(), Toast.LENGTH_LONG).show();
+                    });
+        }
+    }
+
+    // 🔗 Linked originals stay in the gallery - only our persisted read grant goes
+    private void releaseLinkedOriginal(String sourceUri) {
+        try {
+            getContentResolver().releasePersistableUriPermission(Uri.parse(sourceUri),
+                    Intent.FLAG_GRANT_READ_URI_PERMISSION);
+        } catch (SecurityException e) {
+            Log.w(TAG, "No grant to release for " + sourceUri);
+        }
+    }
+
     @Override
     protected void onResume() {
         super.onResume();
@@ -0,0 +1,83 @@
+package com.vaibhav.movily;
+
+import android.system.ErrnoException;
+import android.system.Os;
+import android.util.Log;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+
+// 🪞 Shared project media: a duplicated project hard-links the original video (no bytes copied),
+// and the two only part ways when one of them is edited in place. Edits that write a new file and
+// rename it over videoPath (remux, speed, faststart) never disturb the other link; in-place
+// patches (rotate, tail trim) call ensureExclusive() first. Filesystems that refuse links fall
+// back to a plain copy.
+public class MediaLinks {
+
+    private static final String TAG = "MediaLinks";
+
+    private MediaLinks() {}
+
+    // True if dest now shares source's data, false if it had to be copied
+    public static boolean linkOrCopy(File source, File dest) throws IOException {
+        try {
+            Os.link(source.getAbsolutePath(), dest.getAbsolutePath());
+            Log.d(TAG, "🪞 Linked " + dest.getName() + " → " + source.getName());
+            return true;
+        } catch (ErrnoException e) {
+            Log.w(TAG, "Hard link refused (" + e.getMessage() + ") - copying " + source.getName());
+        }
+        copy(source, dest);
+        return false;
+    }
+
+    public static boolean isShared(File file) {
+        try {
+            return Os.stat(file.getAbsolutePath()).st_nlink > 1;
+        } catch (ErrnoException e) {
+            return false;
+        }
+    }
+
+    // Copy-on-write: gives `file` its own data before an in-place edit. The private copy is written
+    // next to it and renamed over the path, so the other link keeps the untouched original.
+    public static void ensureExclusive(File file) throws IOException {
+        if (!isShared(file)) return;
+        long started = System.currentTimeMillis();
+        File tmp = new File(file.getPath() + ".cow");
+        try {
+            copy(file, tmp);
+            tmp.setLastModified(file.lastModified());  // same cache key - the content is identical
+            if (!tmp.renameTo(file)) throw new IOException("Couldn't replace " + file.getName());
+        } finally {
+            tmp.delete();
+        }
+        Log.d(TAG, "🪞 Unshared " + file.getName() + " (" + file.length() / (1024 * 1024) + " MB in "
+                + (System.currentTimeMillis() - started) + "ms)");
+    }
+
+    private static void copy(File source, File dest) throws IOException {
+        try (FileChannel in = new FileInputStream(source).getChannel();
+             FileOutputStream out = new FileOutputStream(dest)) {
+            FileChannel channel = out.getChannel();
+            long size = in.size();
+            long position = 0;
+            while (position < size) {
+                long chunk = Math.min(size - position, 4L * 1024 * 1024);
+                IoGovernor.acquire((int) chunk);
+                position += in.transferTo(position, chunk, channel);
+            }
+            out.getFD().sync();
+        } catch (InterruptedException e) {
+            dest.delete();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Copy interrupted");
+        } catch (IOException e) {
+            dest.delete();
+            throw e;
+        }
+    }
+}
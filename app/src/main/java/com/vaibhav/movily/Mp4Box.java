@@ -0,0 +1,129 @@
+package com.vaibhav.movily;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// 🔥 One ISO-BMFF box. Top-level boxes carry only position/size; boxes loaded through
+// Mp4Parser.readTree() also carry their children and leaf payload bytes, and can be
+// edited and serialized back with toBytes().
+public class Mp4Box {
+
+    private static final String[] CONTAINERS = {
+            "moov", "trak", "mdia", "minf", "stbl", "edts", "udta", "mvex", "dinf", "moof", "traf"
+    };
+
+    // Full boxes whose version/flags word is followed by child boxes
+    private static final String[] FULL_CONTAINERS = {"meta"};
+
+    public final String type;
+    public final long offset;      // file offset of the header (-1 for boxes built in memory)
+    public final long size;        // header + payload as found in the file
+    public final int headerSize;   // 8, or 16 with a 64-bit largesize
+    public byte[] payload;         // leaf payload, or version/flags of a full container (null otherwise)
+    public final List<Mp4Box> children = new ArrayList<>();
+
+    public Mp4Box(String type, long offset, long size, int headerSize) {
+        this.type = type;
+        this.offset = offset;
+        this.size = size;
+        this.headerSize = headerSize;
+    }
+
+    public static Mp4Box leaf(String type, byte[] payload) {
+        Mp4Box box = new Mp4Box(type, -1, 0, 8);
+        box.payload = payload;
+        return box;
+    }
+
+    public static Mp4Box container(String type) {
+        return new Mp4Box(type, -1, 0, 8);
+    }
+
+    public static boolean isFullContainer(String type) {
+        for (String container : FULL_CONTAINERS) {
+            if (container.equals(type)) return true;
+        }
+        return false;
+    }
+
+    public static boolean isContainer(String type) {
+        for (String container : CONTAINERS) {
+            if (container.equals(type)) return true;
+        }
+        return false;
+    }
+
+    public long payloadOffset() {
+        return offset + headerSize;
+    }
+
+    public long end() {
+        return offset + size;
+    }
+
+    public Mp4Box child(String childType) {
+        for (Mp4Box box : children) {
+            if (box.type.equals(childType)) return box;
+        }
+        return null;
+    }
+
+    public List<Mp4Box> childrenOf(String childType) {
+        List<Mp4Box> result = new ArrayList<>();
+        for (Mp4Box box : children) {
+            if (box.type.equals(childType)) result.add(box);
+        }
+        return result;
+    }
+
+    // Slash-separated path below this box, e.g. "mdia/minf/stbl/stsz"
+    public Mp4Box find(String path) {
+        Mp4Box current = this;
+        for (String part : path.split("/")) {
+            current = current.child(part);
+            if (current == null) return null;
+        }
+        return current;
+    }
+
+    public ByteBuffer payloadBuffer() {
+        return ByteBuffer.wrap(payload);
+    }
+
+    // Size after edits: header + payload + children (largesize header only when needed)
+    public long serializedSize() throws IOException {
+        if (payload == null && children.isEmpty() && !isContainer(type) && size > headerSize) {
+            throw new IOException("Box not loaded: " + type);
+        }
+        long body = payload != null ? payload.length : 0;
+        for (Mp4Box child : children) body += child.serializedSize();
+        return body + (body + 8 > 0xFFFFFFFFL ? 16 : 8);
+    }
+
+    public byte[] toBytes() throws IOException {
+        long total = serializedSize();
+        if (total > Integer.MAX_VALUE) throw new IOException("Box too large: " + type);
+        ByteBuffer out = ByteBuffer.allocate((int) total);
+        writeTo(out);
+        return out.array();
+    }
+
+    private void writeTo(ByteBuffer out) throws IOException {
+        long total = serializedSize();
+        byte[] typeBytes = type.getBytes(StandardCharsets.ISO_8859_1);
+        if (total > 0xFFFFFFFFL) {
+            out.putInt(1).put(typeBytes).putLong(total);
+        } else {
+            out.putInt((int) total).put(typeBytes);
+        }
+        if (payload != null) out.put(payload);
+        for (Mp4Box child : children) child.writeTo(out);
+    }
+
+    static String fourCC(byte[] bytes, int offset) {
+        return new String(bytes, offset, 4, StandardCharsets.ISO_8859_1);
+    }
+}
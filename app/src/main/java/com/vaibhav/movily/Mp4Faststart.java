@@ -0,0 +1,153 @@
+package com.vaibhav.movily;
+
+import android.util.Log;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+
+// 🚀 Faststart copy: moov-at-end files are written as [ftyp.. | moov | mdat..] so
+// MediaPlayer/MediaExtractor find the index in the first read instead of seeking to the tail.
+// Sample data is moved with transferTo (kernel-side copy); only moov passes through the heap.
+public class Mp4Faststart {
+
+    private static final String TAG = "Mp4Faststart";
+    private static final long TRANSFER_CHUNK = 4L * 1024 * 1024;  // governor granularity
+
+    private Mp4Faststart() {}
+
+    // Copies source → dest, relocating moov when it sits after mdat. Returns true if relocated.
+    public static boolean copy(FileChannel source, File dest) throws IOException {
+        long started = System.currentTimeMillis();
+        long size = source.size();
+        byte[] moovBytes = null;
+        Mp4Box moovHeader = null, mdat = null;
+        try {
+            List<Mp4Box> topLevel = Mp4Parser.readTopLevel(source);
+            moovHeader = Mp4Parser.findTopLevel(topLevel, "moov");
+            mdat = Mp4Parser.findTopLevel(topLevel, "mdat");
+            if (moovHeader != null && mdat != null && moovHeader.offset >= mdat.end()
+                    && isPlainLayout(topLevel, mdat)) {
+                moovBytes = relocatedMoov(Mp4Parser.readTree(source, moovHeader), mdat);
+            }
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Not a parseable MP4 - plain copy", e);
+        }
+
+        try (FileOutputStream out = new FileOutputStream(dest)) {
+            FileChannel target = out.getChannel();
+            if (moovBytes == null) {
+                transfer(source, 0, size, target);
+            } else {
+                // [0, mdat) holds ftyp/free etc., then moov, then mdat and anything but the old moov
+                transfer(source, 0, mdat.offset, target);
+                ByteBuffer moov = ByteBuffer.wrap(moovBytes);
+                while (moov.hasRemaining()) target.write(moov);
+                transfer(source, mdat.offset, moovHeader.offset, target);
+                transfer(source, moovHeader.end(), size, target);
+            }
+            out.getFD().sync();
+        }
+        Log.d(TAG, (moovBytes != null ? "🚀 moov relocated to front" : "📋 Already faststart / not MP4")
+                + " - " + size / 1024 + " KB in " + (System.currentTimeMillis() - started) + "ms");
+        return moovBytes != null;
+    }
+
+    // One mdat, no fragments, nothing between mdat and moov that chunk offsets could point into
+    private static boolean isPlainLayout(List<Mp4Box> topLevel, Mp4Box mdat) {
+        for (Mp4Box box : topLevel) {
+            if (box.type.equals("moof") || (box.type.equals("mdat") && box != mdat)) return false;
+        }
+        return true;
+    }
+
+    // moov with every stco/co64 entry shifted by moov's own size (it now precedes mdat)
+    static byte[] relocatedMoov(Mp4Box moov, Mp4Box mdat) throws IOException {
+        if (moov.child("mvex") != null) return null;
+        List<Mp4Box> traks = moov.childrenOf("trak");
+        for (Mp4Box trak : traks) {
+            Mp4Box stbl = trak.find("mdia/minf/stbl");
+            if (stbl == null) return null;
+            Mp4Box chunkOffsets = stbl.child("co64") != null ? stbl.child("co64") : stbl.child("stco");
+            if (chunkOffsets == null || !offsetsInside(chunkOffsets, mdat)) return null;
+        }
+
+        // Shifting can push stco past 4 GB; widening to co64 grows moov, so settle the size first
+        long shift = moov.serializedSize();
+        boolean widened;
+        do {
+            widened = false;
+            for (Mp4Box trak : traks) {
+                Mp4Box stbl = trak.find("mdia/minf/stbl");
+                Mp4Box stco = stbl.child("stco");
+                if (stco != null && maxOffset(stco) + shift > 0xFFFFFFFFL) {
+                    stbl.children.set(stbl.children.indexOf(stco), widen(stco));
+                    widened = true;
+                }
+            }
+            shift = moov.serializedSize();
+        } while (widened);
+
+        for (Mp4Box trak : traks) {
+            Mp4Box stbl = trak.find("mdia/minf/stbl");
+            Mp4Box co64 = stbl.child("co64");
+            Mp4Box stco = co64 != null ? co64 : stbl.child("stco");
+            ByteBuffer buf = stco.payloadBuffer();
+            int count = buf.getInt(4);
+            for (int i = 0; i < count; i++) {
+                if (co64 != null) {
+                    buf.putLong(8 + i * 8, buf.getLong(8 + i * 8) + shift);
+                } else {
+                    buf.putInt(8 + i * 4, (int) ((buf.getInt(8 + i * 4) & 0xFFFFFFFFL) + shift));
+                }
+            }
+        }
+        return moov.toBytes();
+    }
+
+    private static boolean offsetsInside(Mp4Box box, Mp4Box mdat) {
+        boolean wide = box.type.equals("co64");
+        ByteBuffer buf = box.payloadBuffer();
+        int count = buf.getInt(4);
+        for (int i = 0; i < count; i++) {
+            long offset = wide ? buf.getLong(8 + i * 8) : buf.getInt(8 + i * 4) & 0xFFFFFFFFL;
+            if (offset < mdat.payloadOffset() || offset >= mdat.end()) return false;
+        }
+        return true;
+    }
+
+    private static long maxOffset(Mp4Box stco) {
+        ByteBuffer buf = stco.payloadBuffer();
+        long max = 0;
+        for (int i = 0; i < buf.getInt(4); i++) max = Math.max(max, buf.getInt(8 + i * 4) & 0xFFFFFFFFL);
+        return max;
+    }
+
+    private static Mp4Box widen(Mp4Box stco) {
+        ByteBuffer in = stco.payloadBuffer();
+        int count = in.getInt(4);
+        ByteBuffer out = ByteBuffer.allocate(8 + count * 8);
+        out.putInt(in.getInt(0)).putInt(count);
+        for (int i = 0; i < count; i++) out.putLong(in.getInt(8 + i * 4) & 0xFFFFFFFFL);
+        return Mp4Box.leaf("co64", out.array());
+    }
+
+    private static void transfer(FileChannel source, long from, long to, FileChannel target) throws IOException {
+        long position = from;
+        while (position < to) {
+            long chunk = Math.min(to - position, TRANSFER_CHUNK);
+            try {
+                IoGovernor.acquire((int) chunk);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Copy interrupted at " + position);
+            }
+            long moved = source.transferTo(position, chunk, target);
+            if (moved <= 0) throw new IOException("transferTo stalled at " + position);
+            position += moved;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.vaibhav.movily;
+
+import android.util.Log;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+// 🔄 Lossless metadata edits on the project file - no decode, no remux.
+// The tkhd display matrix never changes size, so a rotation is a positional write of 36 bytes.
+public class Mp4MetadataEditor {
+
+    private static final String TAG = "Mp4MetadataEditor";
+
+    private static final int FIXED_ONE = 0x00010000;    // 1.0 in 16.16
+    private static final int FIXED_W_ONE = 0x40000000;  // 1.0 in 2.30
+
+    private Mp4MetadataEditor() {}
+
+    // Adds degrees (a multiple of 90) to the current rotation; returns the new rotation
+    public static int rotate(File file, int degrees) throws IOException {
+        long started = System.currentTimeMillis();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            FileChannel channel = raf.getChannel();
+            Mp4Box tkhd = videoTkhd(readMoov(channel));
+            int matrix = matrixOffset(tkhd);
+            ByteBuffer payload = tkhd.payloadBuffer();
+            int current = rotationOf(payload.getInt(matrix), payload.getInt(matrix + 4));
+            int rotation = ((current + degrees) % 360 + 360) % 360;
+
+            // 36 bytes in place - tkhd never changes size
+            ByteBuffer patch = rotationMatrix(rotation);
+            writeFully(channel, patch, tkhd.payloadOffset() + matrix);
+            channel.force(false);
+            Log.d(TAG, "🔄 Rotation " + current + "° → " + rotation + "° in "
+                    + (System.currentTimeMillis() - started) + "ms (" + file.length() + " bytes file)");
+            return rotation;
+        }
+    }
+
+    private static Mp4Box readMoov(FileChannel channel) throws IOException {
+        Mp4Box moov = Mp4Parser.findTopLevel(Mp4Parser.readTopLevel(channel), "moov");
+        if (moov == null) throw new IOException("No moov box");
+        return Mp4Parser.readTree(channel, moov);
+    }
+
+    private static Mp4Box videoTkhd(Mp4Box moov) throws IOException {
+        for (Mp4Box trak : moov.childrenOf("trak")) {
+            if ("vide".equals(Mp4SampleTable.handlerOf(trak))) {
+                Mp4Box tkhd = trak.child("tkhd");
+                if (tkhd != null && tkhd.payload != null) return tkhd;
+            }
+        }
+        throw new IOException("No video track");
+    }
+
+    // version 0: 4 + 4×5 + 8 + 2×4 = 40, version 1 has 64-bit times and duration: 52
+    private static int matrixOffset(Mp4Box tkhd) {
+        return tkhd.payload[0] == 1 ? 52 : 40;
+    }
+
+    private static int rotationOf(int a, int b) {
+        if (a == 0 && b == FIXED_ONE) return 90;
+        if (a == -FIXED_ONE && b == 0) return 180;
+        if (a == 0 && b == -FIXED_ONE) return 270;
+        return 0;
+    }
+
+    // Same matrices MediaMuxer.setOrientationHint() writes
+    static ByteBuffer rotationMatrix(int rotation) {
+        int a = FIXED_ONE, b = 0, c = 0, d = FIXED_ONE;
+        switch (rotation) {
+            case 90: a = 0; b = FIXED_ONE; c = -FIXED_ONE; d = 0; break;
+            case 180: a = -FIXED_ONE; d = -FIXED_ONE; break;
+            case 270: a = 0; b = -FIXED_ONE; c = FIXED_ONE; d = 0; break;
+        }
+        ByteBuffer matrix = ByteBuffer.allocate(36);
+        matrix.putInt(a).putInt(b).putInt(0)
+                .putInt(c).putInt(d).putInt(0)
+                .putInt(0).putInt(0).putInt(FIXED_W_ONE);
+        matrix.flip();
+        return matrix;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer src, long position) throws IOException {
+        while (src.hasRemaining()) {
+            position += channel.write(src, position);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.vaibhav.movily;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// 🔥 Minimal JVM-side MP4 container parser over a FileChannel.
+// Only headers are read for top-level boxes (mdat is never touched); moov is loaded as a tree.
+public class Mp4Parser {
+
+    private Mp4Parser() {}
+
+    public static List<Mp4Box> readTopLevel(FileChannel channel) throws IOException {
+        List<Mp4Box> boxes = new ArrayList<>();
+        long fileSize = channel.size();
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(16);
+        while (position + 8 <= fileSize) {
+            header.clear();
+            header.limit(16);
+            readFully(channel, header, position, (int) Math.min(16, fileSize - position));
+            header.flip();
+            long size = header.getInt() & 0xFFFFFFFFL;
+            byte[] typeBytes = new byte[4];
+            header.get(typeBytes);
+            int headerSize = 8;
+            if (size == 1) {
+                if (header.remaining() < 8) break;
+                size = header.getLong();
+                headerSize = 16;
+            } else if (size == 0) {
+                size = fileSize - position;  // box runs to end of file
+            }
+            if (size < headerSize || position + size > fileSize) {
+                // Truncated tail (e.g. interrupted write) - keep what parsed cleanly
+                boxes.add(new Mp4Box(Mp4Box.fourCC(typeBytes, 0), position, fileSize - position, headerSize));
+                break;
+            }
+            boxes.add(new Mp4Box(Mp4Box.fourCC(typeBytes, 0), position, size, headerSize));
+            position += size;
+        }
+        return boxes;
+    }
+
+    public static Mp4Box findTopLevel(List<Mp4Box> boxes, String type) {
+        for (Mp4Box box : boxes) {
+            if (box.type.equals(type)) return box;
+        }
+        return null;
+    }
+
+    // Loads a (small) box fully - containers become children, leaves keep their payload
+    public static Mp4Box readTree(FileChannel channel, Mp4Box box) throws IOException {
+        if (box.size > Integer.MAX_VALUE) throw new IOException("Box too large: " + box.type);
+        ByteBuffer bytes = ByteBuffer.allocate((int) (box.size - box.headerSize));
+        readFully(channel, bytes, box.payloadOffset(), bytes.capacity());
+        Mp4Box tree = new Mp4Box(box.type, box.offset, box.size, box.headerSize);
+        parseInto(tree, bytes.array(), 0, bytes.capacity(), box.payloadOffset());
+        return tree;
+    }
+
+    private static void parseInto(Mp4Box parent, byte[] data, int start, int end, long fileOffset)
+            throws IOException {
+        if (Mp4Box.isFullContainer(parent.type) && end - start >= 12) {
+            // QuickTime writes udta/meta without the version/flags word - hdlr follows directly
+            boolean fullBox = !"hdlr".equals(Mp4Box.fourCC(data, start + 4));
+            int childrenStart = fullBox ? start + 4 : start;
+            try {
+                parseChildren(parent, data, childrenStart, end, fileOffset + (childrenStart - start));
+                if (fullBox) parent.payload = Arrays.copyOfRange(data, start, start + 4);
+            } catch (IOException e) {
+                // Unrecognised layout - keep it opaque so it still round-trips
+                parent.children.clear();
+                parent.payload = Arrays.copyOfRange(data, start, end);
+            }
+            return;
+        }
+        if (!Mp4Box.isContainer(parent.type)) {
+            byte[] payload = new byte[end - start];
+            System.arraycopy(data, start, payload, 0, payload.length);
+            parent.payload = payload;
+            return;
+        }
+        parseChildren(parent, data, start, end, fileOffset);
+    }
+
+    private static void parseChildren(Mp4Box parent, byte[] data, int start, int end, long fileOffset)
+            throws IOException {
+        ByteBuffer buf = ByteBuffer.wrap(data);
+        int position = start;
+        while (position + 8 <= end) {
+            long size = buf.getInt(position) & 0xFFFFFFFFL;
+            String type = Mp4Box.fourCC(data, position + 4);
+            int headerSize = 8;
+            if (size == 1) {
+                size = buf.getLong(position + 8);
+                headerSize = 16;
+            } else if (size == 0) {
+                size = end - position;
+            }
+            if (size < headerSize || position + size > end) {
+                throw new IOException("Corrupt box " + type + " in " + parent.type);
+            }
+            Mp4Box child = new Mp4Box(type, fileOffset + (position - start), size, headerSize);
+            parseInto(child, data, position + headerSize, (int) (position + size),
+                    child.payloadOffset());
+            parent.children.add(child);
+            position += (int) size;
+        }
+    }
+
+    public static void readFully(FileChannel channel, ByteBuffer dst, long position, int length)
+            throws IOException {
+        int limit = dst.position() + length;
+        dst.limit(limit);
+        while (dst.position() < limit) {
+            int read = channel.read(dst, position);
+            if (read < 0) throw new IOException("Unexpected end of file");
+            position += read;
+        }
+    }
+}
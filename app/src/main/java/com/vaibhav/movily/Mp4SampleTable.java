@@ -0,0 +1,169 @@
+package com.vaibhav.movily;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// 🔥 Decoded sample tables (stts/stsz/stss/stsc/stco|co64/ctts) for one trak - pure arrays,
+// so whole-file analysis is a linear scan with no decoding and no MediaExtractor.
+public class Mp4SampleTable {
+
+    public final Mp4Box trak;
+    public final String handler;     // "vide", "soun", ...
+    public final long timescale;
+    public final int[] sampleSizes;
+    public final long[] decodeTimes; // in timescale units
+    public final int[] compositionOffsets; // null when there is no ctts
+    public final int[] syncSamples;  // 0-based, null = every sample is sync
+    public final long[] chunkOffsets;
+    public final int[] stscFirstChunk, stscSamplesPerChunk, stscDescriptionIndex; // 1-based chunks
+    public final boolean largeOffsets; // co64 instead of stco
+
+    private long[] sampleOffsets;
+
+    public Mp4SampleTable(Mp4Box trak) {
+        this.trak = trak;
+        handler = handlerOf(trak);
+
+        ByteBuffer mdhd = trak.find("mdia/mdhd").payloadBuffer();
+        int version = mdhd.get(0);
+        timescale = (version == 1 ? mdhd.getInt(20) : mdhd.getInt(12)) & 0xFFFFFFFFL;
+
+        Mp4Box stbl = trak.find("mdia/minf/stbl");
+
+        // stsz
+        ByteBuffer stsz = stbl.child("stsz").payloadBuffer();
+        int fixedSize = stsz.getInt(4);
+        int count = stsz.getInt(8);
+        sampleSizes = new int[count];
+        for (int i = 0; i < count; i++) {
+            sampleSizes[i] = fixedSize != 0 ? fixedSize : stsz.getInt(12 + i * 4);
+        }
+
+        // stts → absolute decode times
+        decodeTimes = new long[count];
+        ByteBuffer stts = stbl.child("stts").payloadBuffer();
+        int entries = stts.getInt(4);
+        long time = 0;
+        int sample = 0;
+        for (int e = 0; e < entries && sample < count; e++) {
+            int runLength = stts.getInt(8 + e * 8);
+            long delta = stts.getInt(12 + e * 8) & 0xFFFFFFFFL;
+            for (int r = 0; r < runLength && sample < count; r++) {
+                decodeTimes[sample++] = time;
+                time += delta;
+            }
+        }
+
+        // ctts (optional)
+        Mp4Box cttsBox = stbl.child("ctts");
+        if (cttsBox != null) {
+            ByteBuffer ctts = cttsBox.payloadBuffer();
+            compositionOffsets = new int[count];
+            int cttsEntries = ctts.getInt(4);
+            sample = 0;
+            for (int e = 0; e < cttsEntries && sample < count; e++) {
+                int runLength = ctts.getInt(8 + e * 8);
+                int offset = ctts.getInt(12 + e * 8);
+                for (int r = 0; r < runLength && sample < count; r++) {
+                    compositionOffsets[sample++] = offset;
+                }
+            }
+        } else {
+            compositionOffsets = null;
+        }
+
+        // stss (optional)
+        Mp4Box stssBox = stbl.child("stss");
+        if (stssBox != null) {
+            ByteBuffer stss = stssBox.payloadBuffer();
+            int syncCount = stss.getInt(4);
+            syncSamples = new int[syncCount];
+            for (int i = 0; i < syncCount; i++) {
+                syncSamples[i] = stss.getInt(8 + i * 4) - 1;
+            }
+        } else {
+            syncSamples = null;
+        }
+
+        // stsc
+        ByteBuffer stsc = stbl.child("stsc").payloadBuffer();
+        int stscEntries = stsc.getInt(4);
+        stscFirstChunk = new int[stscEntries];
+        stscSamplesPerChunk = new int[stscEntries];
+        stscDescriptionIndex = new int[stscEntries];
+        for (int e = 0; e < stscEntries; e++) {
+            stscFirstChunk[e] = stsc.getInt(8 + e * 12);
+            stscSamplesPerChunk[e] = stsc.getInt(12 + e * 12);
+            stscDescriptionIndex[e] = stsc.getInt(16 + e * 12);
+        }
+
+        // stco / co64
+        Mp4Box co64 = stbl.child("co64");
+        largeOffsets = co64 != null;
+        ByteBuffer stco = (largeOffsets ? co64 : stbl.child("stco")).payloadBuffer();
+        int chunkCount = stco.getInt(4);
+        chunkOffsets = new long[chunkCount];
+        for (int i = 0; i < chunkCount; i++) {
+            chunkOffsets[i] = largeOffsets ? stco.getLong(8 + i * 8) : stco.getInt(8 + i * 4) & 0xFFFFFFFFL;
+        }
+    }
+
+    public boolean isVideo() {
+        return "vide".equals(handler);
+    }
+
+    public boolean isAudio() {
+        return "soun".equals(handler);
+    }
+
+    public int sampleCount() {
+        return sampleSizes.length;
+    }
+
+    public long decodeTimeUs(int sample) {
+        return decodeTimes[sample] * 1000000L / timescale;
+    }
+
+    public long presentationTimeUs(int sample) {
+        long t = decodeTimes[sample] + (compositionOffsets != null ? compositionOffsets[sample] : 0);
+        return t * 1000000L / timescale;
+    }
+
+    public boolean isSync(int sample) {
+        if (syncSamples == null) return true;
+        return Arrays.binarySearch(syncSamples, sample) >= 0;
+    }
+
+    // Byte offset of every sample in the file (built once, on demand)
+    public long[] sampleOffsets() {
+        if (sampleOffsets != null) return sampleOffsets;
+        long[] offsets = new long[sampleSizes.length];
+        int sample = 0;
+        for (int e = 0; e < stscFirstChunk.length; e++) {
+            int firstChunk = stscFirstChunk[e] - 1;
+            int lastChunk = e + 1 < stscFirstChunk.length ? stscFirstChunk[e + 1] - 1 : chunkOffsets.length;
+            for (int chunk = firstChunk; chunk < lastChunk && sample < offsets.length; chunk++) {
+                long position = chunkOffsets[chunk];
+                for (int s = 0; s < stscSamplesPerChunk[e] && sample < offsets.length; s++) {
+                    offsets[sample] = position;
+                    position += sampleSizes[sample];
+                    sample++;
+                }
+            }
+        }
+        sampleOffsets = offsets;
+        return offsets;
+    }
+
+    public static String handlerOf(Mp4Box trak) {
+        Mp4Box hdlr = trak.find("mdia/hdlr");
+        return hdlr != null && hdlr.payload != null ? Mp4Box.fourCC(hdlr.payload, 8) : "";
+    }
+
+    public static Mp4SampleTable findTrack(Mp4Box moov, String handler) {
+        for (Mp4Box trak : moov.childrenOf("trak")) {
+            if (handler.equals(handlerOf(trak))) return new Mp4SampleTable(trak);
+        }
+        return null;
+    }
+}
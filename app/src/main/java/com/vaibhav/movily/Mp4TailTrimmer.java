@@ -0,0 +1,416 @@
+package com.vaibhav.movily;
+
+import android.util.Log;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+// ✂️ In-place tail trim: drops every sample presented at/after endUs by rewriting the sample
+// tables, never copying mdat. moov-at-end files get the new moov written right after the last
+// kept sample and are truncated there; moov-at-front files get the new moov + a "free" pad in
+// place, and the dropped mdat bytes stay as slack until the next full remux compacts them.
+// Every write is journalled first, so an interrupted trim is rolled forward on next open.
+// An undoable trim keeps the moov-at-end mdat as slack too, so its undo record is just the bytes
+// the plan overwrites or truncates (the old moov) - a few KB in the journal format.
+public class Mp4TailTrimmer {
+
+    private static final String TAG = "Mp4TailTrimmer";
+    private static final int JOURNAL_MAGIC = 0x4D56544A;  // "MVTJ"
+
+    // stbl children whose per-sample data this class knows how to cut (or that have none)
+    private static final Set<String> KNOWN_STBL = new HashSet<>(Arrays.asList(
+            "stsd", "stts", "ctts", "stss", "stsz", "stsc", "stco", "co64", "sdtp", "sgpd", "cslg", "stps"));
+
+    private Mp4TailTrimmer() {}
+
+    // Returns false when the layout isn't one this handles - caller falls back to a remux.
+    // With an undoRecord, the plan's inverse is written there (and synced) before the file changes.
+    public static boolean trimTail(File file, long endUs, File undoRecord) throws IOException {
+        long started = System.currentTimeMillis();
+        Plan plan;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            plan = plan(raf.getChannel(), endUs, undoRecord != null);
+            if (plan != null && undoRecord != null) writeJournal(undoRecord, inverse(raf.getChannel(), plan));
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Unexpected sample tables - not trimming in place", e);
+            return false;
+        }
+        if (plan == null) return false;
+
+        try {
+            applyJournalled(file, plan);
+        } catch (IOException e) {
+            // A journal that never made it whole means the file is untouched - nothing to undo
+            File journal = journalFile(file);
+            if (undoRecord != null && (!journal.exists() || readJournal(journal) == null)) undoRecord.delete();
+            throw e;
+        }
+        Log.d(TAG, "✂️ Tail trim at " + endUs / 1000 + "ms: " + plan.patchBytes() + " bytes written"
+                + (plan.truncateTo >= 0 ? ", truncated to " + plan.truncateTo : ", slack kept")
+                + (undoRecord != null ? ", " + undoRecord.length() + " bytes undo record" : "")
+                + " in " + (System.currentTimeMillis() - started) + "ms");
+        return true;
+    }
+
+    // ↩️ Applies an undo/redo record to file, first writing the record that reverses it to inverseRecord
+    public static void replay(File file, File record, File inverseRecord) throws IOException {
+        Plan plan = readJournal(record);
+        if (plan == null) throw new IOException("Damaged edit record " + record.getName());
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            writeJournal(inverseRecord, inverse(raf.getChannel(), plan));
+        }
+        applyJournalled(file, plan);
+    }
+
+    // Finishes a trim that was interrupted after its journal hit the disk
+    public static void recover(File file) {
+        File journal = journalFile(file);
+        if (!journal.exists()) return;
+        try {
+            Plan plan = readJournal(journal);
+            if (plan != null) {
+                apply(file, plan);
+                Log.d(TAG, "♻️ Rolled forward interrupted tail trim on " + file.getName());
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Journal replay failed", e);
+        }
+        journal.delete();
+    }
+
+    private static File journalFile(File file) {
+        return new File(file.getPath() + ".journal");
+    }
+
+    private static void applyJournalled(File file, Plan plan) throws IOException {
+        File journal = journalFile(file);
+        writeJournal(journal, plan);
+        apply(file, plan);
+        journal.delete();
+    }
+
+    // Positional writes + optional truncation - replaying it twice gives the same file
+    private static class Plan {
+        final List<Long> positions = new ArrayList<>();
+        final List<byte[]> patches = new ArrayList<>();
+        long truncateTo = -1;
+
+        void write(long position, byte[] bytes) {
+            positions.add(position);
+            patches.add(bytes);
+        }
+
+        long patchBytes() {
+            long total = 0;
+            for (byte[] patch : patches) total += patch.length;
+            return total;
+        }
+    }
+
+    // keepSlack: never drop mdat bytes, so the plan's inverse only has to restore moov
+    private static Plan plan(FileChannel channel, long endUs, boolean keepSlack) throws IOException {
+        List<Mp4Box> topLevel = Mp4Parser.readTopLevel(channel);
+        Mp4Box moovHeader = Mp4Parser.findTopLevel(topLevel, "moov");
+        Mp4Box mdat = Mp4Parser.findTopLevel(topLevel, "mdat");
+        if (moovHeader == null || mdat == null) return null;
+        for (Mp4Box box : topLevel) {
+            if (box.type.equals("moof") || (box.type.equals("mdat") && box != mdat)) return null;
+        }
+        Mp4Box moov = Mp4Parser.readTree(channel, moovHeader);
+        if (moov.child("mvex") != null) return null;
+
+        ByteBuffer mvhd = moov.child("mvhd").payloadBuffer();
+        boolean mvhdV1 = mvhd.get(0) == 1;
+        long movieTimescale = (mvhdV1 ? mvhd.getInt(20) : mvhd.getInt(12)) & 0xFFFFFFFFL;
+
+        long cutoff = mdat.payloadOffset();
+        long movieDuration = 0;
+        boolean changed = false;
+        for (Mp4Box trak : moov.childrenOf("trak")) {
+            Mp4Box stbl = trak.find("mdia/minf/stbl");
+            if (stbl == null) return null;
+            for (Mp4Box box : stbl.children) {
+                if (!KNOWN_STBL.contains(box.type)) return null;
+            }
+            Mp4SampleTable table = new Mp4SampleTable(trak);
+
+            // Decode-order prefix, same rule as RemuxEngine.copyTrack
+            int keep = 0;
+            while (keep < table.sampleCount() && table.presentationTimeUs(keep) < endUs) keep++;
+            if (keep == 0) return null;
+            changed |= keep < table.sampleCount();
+
+            long[] offsets = table.sampleOffsets();
+            cutoff = Math.max(cutoff, offsets[keep - 1] + table.sampleSizes[keep - 1]);
+
+            long mediaDuration = cutSampleTables(stbl, table, keep);
+            long trackDuration = mediaDuration * movieTimescale / table.timescale;
+            setDurations(trak, mediaDuration, trackDuration);
+            movieDuration = Math.max(movieDuration, trackDuration);
+        }
+        if (!changed || cutoff > mdat.end()) return null;
+        putDuration(moov.child("mvhd"), mvhdV1 ? 24 : 16, mvhdV1, movieDuration);
+
+        Plan plan = new Plan();
+        byte[] newMoov = moov.toBytes();
+        if (moovHeader.offset >= mdat.end()) {
+            // moov-at-end: [.. mdat(cut) | moov] and nothing but moov may follow mdat
+            if (mdat.end() != moovHeader.offset || moovHeader.end() != channel.size()) return null;
+            long moovAt = moovHeader.offset;
+            if (!keepSlack) {
+                plan.write(mdat.offset, mdatHeader(mdat, cutoff - mdat.offset));
+                moovAt = cutoff;
+            }
+            plan.write(moovAt, newMoov);
+            plan.truncateTo = moovAt + newMoov.length;
+        } else {
+            // moov-at-front: same slot, padded with a free box; mdat keeps its slack
+            long pad = moovHeader.size - newMoov.length;
+            if (pad != 0 && pad < 8) return null;
+            plan.write(moovHeader.offset, newMoov);
+            if (pad > 0) {
+                plan.write(moovHeader.offset + newMoov.length,
+                        ByteBuffer.allocate(8).putInt((int) pad).put(new byte[]{'f', 'r', 'e', 'e'}).array());
+            }
+        }
+        return plan;
+    }
+
+    // Cuts stts/ctts/stss/stsz/sdtp/stsc/stco to the first keep samples; returns media duration
+    private static long cutSampleTables(Mp4Box stbl, Mp4SampleTable table, int keep) {
+        long mediaDuration = 0;
+        Mp4Box stts = stbl.child("stts");
+        ByteBuffer in = stts.payloadBuffer();
+        ByteBuffer out = ByteBuffer.allocate(stts.payload.length);
+        out.putInt(in.getInt(0)).putInt(0);
+        int entries = 0, remaining = keep;
+        for (int e = 0; e < in.getInt(4) && remaining > 0; e++) {
+            int run = Math.min(in.getInt(8 + e * 8), remaining);
+            int delta = in.getInt(12 + e * 8);
+            out.putInt(run).putInt(delta);
+            mediaDuration += run * (delta & 0xFFFFFFFFL);
+            remaining -= run;
+            entries++;
+        }
+        stts.payload = finish(out, entries);
+
+        Mp4Box ctts = stbl.child("ctts");
+        if (ctts != null) {
+            in = ctts.payloadBuffer();
+            out = ByteBuffer.allocate(ctts.payload.length);
+            out.putInt(in.getInt(0)).putInt(0);
+            entries = 0;
+            remaining = keep;
+            for (int e = 0; e < in.getInt(4) && remaining > 0; e++) {
+                int run = Math.min(in.getInt(8 + e * 8), remaining);
+                out.putInt(run).putInt(in.getInt(12 + e * 8));
+                remaining -= run;
+                entries++;
+            }
+            ctts.payload = finish(out, entries);
+        }
+
+        Mp4Box stss = stbl.child("stss");
+        if (stss != null) {
+            in = stss.payloadBuffer();
+            out = ByteBuffer.allocate(stss.payload.length);
+            out.putInt(in.getInt(0)).putInt(0);
+            entries = 0;
+            for (int i = 0; i < in.getInt(4); i++) {
+                int sample = in.getInt(8 + i * 4);
+                if (sample > keep) break;
+                out.putInt(sample);
+                entries++;
+            }
+            stss.payload = finish(out, entries);
+        }
+
+        Mp4Box stsz = stbl.child("stsz");
+        in = stsz.payloadBuffer();
+        boolean fixedSize = in.getInt(4) != 0;
+        stsz.payload = Arrays.copyOf(stsz.payload, fixedSize ? 12 : 12 + keep * 4);
+        ByteBuffer.wrap(stsz.payload).putInt(8, keep);
+
+        Mp4Box sdtp = stbl.child("sdtp");
+        if (sdtp != null && sdtp.payload.length > 4 + keep) {
+            sdtp.payload = Arrays.copyOf(sdtp.payload, 4 + keep);
+        }
+
+        // Chunk holding the last kept sample, and how many kept samples it has
+        int lastChunk = 0, inLastChunk = 0, entry = 0;
+        int sample = 0;
+        for (int e = 0; e < table.stscFirstChunk.length && sample < keep; e++) {
+            int firstChunk = table.stscFirstChunk[e] - 1;
+            int endChunk = e + 1 < table.stscFirstChunk.length ?
+                    table.stscFirstChunk[e + 1] - 1 : table.chunkOffsets.length;
+            for (int chunk = firstChunk; chunk < endChunk && sample < keep; chunk++) {
+                lastChunk = chunk;
+                entry = e;
+                inLastChunk = Math.min(table.stscSamplesPerChunk[e], keep - sample);
+                sample += inLastChunk;
+            }
+        }
+        Mp4Box stsc = stbl.child("stsc");
+        out = ByteBuffer.allocate(stsc.payload.length + 12);
+        out.putInt(stsc.payloadBuffer().getInt(0)).putInt(0);
+        entries = 0;
+        for (int e = 0; e <= entry; e++) {
+            int samplesPerChunk = table.stscSamplesPerChunk[e];
+            if (e == entry && table.stscFirstChunk[e] - 1 == lastChunk) samplesPerChunk = inLastChunk;
+            out.putInt(table.stscFirstChunk[e]).putInt(samplesPerChunk).putInt(table.stscDescriptionIndex[e]);
+            entries++;
+        }
+        if (table.stscFirstChunk[entry] - 1 != lastChunk && inLastChunk != table.stscSamplesPerChunk[entry]) {
+            out.putInt(lastChunk + 1).putInt(inLastChunk).putInt(table.stscDescriptionIndex[entry]);
+            entries++;
+        }
+        stsc.payload = finish(out, entries);
+
+        Mp4Box stco = stbl.child(table.largeOffsets ? "co64" : "stco");
+        int chunks = lastChunk + 1;
+        stco.payload = Arrays.copyOf(stco.payload, 8 + chunks * (table.largeOffsets ? 8 : 4));
+        ByteBuffer.wrap(stco.payload).putInt(4, chunks);
+        return mediaDuration;
+    }
+
+    private static byte[] finish(ByteBuffer out, int entries) {
+        out.putInt(4, entries);
+        return Arrays.copyOf(out.array(), out.position());
+    }
+
+    private static void setDurations(Mp4Box trak, long mediaDuration, long trackDuration) {
+        Mp4Box mdhd = trak.find("mdia/mdhd");
+        boolean mdhdV1 = mdhd.payload[0] == 1;
+        putDuration(mdhd, mdhdV1 ? 24 : 16, mdhdV1, mediaDuration);
+
+        Mp4Box tkhd = trak.child("tkhd");
+        boolean tkhdV1 = tkhd.payload[0] == 1;
+        putDuration(tkhd, tkhdV1 ? 28 : 20, tkhdV1, trackDuration);
+
+        // Edit lists as MediaMuxer writes them: one segment, optionally after an empty edit
+        Mp4Box elst = trak.find("edts/elst");
+        if (elst != null) {
+            ByteBuffer buf = elst.payloadBuffer();
+            boolean elstV1 = elst.payload[0] == 1;
+            int entrySize = elstV1 ? 20 : 12;
+            int count = buf.getInt(4);
+            long firstMediaTime = count > 0 ? (elstV1 ? buf.getLong(16) : buf.getInt(12)) : 0;
+            int segment = count == 2 && firstMediaTime == -1 ? 1 : 0;
+            if (count == segment + 1) putDuration(elst, 8 + segment * entrySize, elstV1, trackDuration);
+        }
+    }
+
+    private static void putDuration(Mp4Box box, int offset, boolean wide, long value) {
+        ByteBuffer buf = box.payloadBuffer();
+        if (wide) {
+            buf.putLong(offset, value);
+        } else {
+            buf.putInt(offset, (int) Math.min(value, 0xFFFFFFFFL));
+        }
+    }
+
+    // The plan that puts back every byte `plan` overwrites or truncates, and the current length
+    private static Plan inverse(FileChannel channel, Plan plan) throws IOException {
+        long length = channel.size();
+        long lengthAfter = plan.truncateTo >= 0 ? plan.truncateTo : length;
+        Plan inverse = new Plan();
+        for (int i = 0; i < plan.patches.size(); i++) {
+            long position = plan.positions.get(i);
+            long end = position + plan.patches.get(i).length;
+            if (plan.truncateTo < 0) lengthAfter = Math.max(lengthAfter, end);
+            if (position < length) inverse.write(position, read(channel, position, Math.min(end, length)));
+        }
+        if (plan.truncateTo >= 0 && plan.truncateTo < length) {
+            inverse.write(plan.truncateTo, read(channel, plan.truncateTo, length));
+        }
+        if (lengthAfter > length) inverse.truncateTo = length;
+        return inverse;
+    }
+
+    private static byte[] read(FileChannel channel, long from, long to) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate((int) (to - from));
+        while (buf.hasRemaining()) {
+            if (channel.read(buf, from + buf.position()) < 0) throw new EOFException();
+        }
+        return buf.array();
+    }
+
+    private static byte[] mdatHeader(Mp4Box mdat, long size) {
+        ByteBuffer header = ByteBuffer.allocate(mdat.headerSize);
+        if (mdat.headerSize == 16) {
+            header.putInt(1).put(new byte[]{'m', 'd', 'a', 't'}).putLong(size);
+        } else {
+            header.putInt((int) size).put(new byte[]{'m', 'd', 'a', 't'});
+        }
+        return header.array();
+    }
+
+    private static void apply(File file, Plan plan) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            FileChannel channel = raf.getChannel();
+            for (int i = 0; i < plan.patches.size(); i++) {
+                ByteBuffer src = ByteBuffer.wrap(plan.patches.get(i));
+                long position = plan.positions.get(i);
+                while (src.hasRemaining()) position += channel.write(src, position);
+            }
+            if (plan.truncateTo >= 0) channel.truncate(plan.truncateTo);
+            channel.force(true);
+        }
+    }
+
+    private static void writeJournal(File journal, Plan plan) throws IOException {
+        CRC32 crc = new CRC32();
+        try (FileOutputStream fos = new FileOutputStream(journal);
+             DataOutputStream out = new DataOutputStream(fos)) {
+            out.writeInt(JOURNAL_MAGIC);
+            out.writeLong(plan.truncateTo);
+            out.writeInt(plan.patches.size());
+            for (int i = 0; i < plan.patches.size(); i++) {
+                byte[] patch = plan.patches.get(i);
+                out.writeLong(plan.positions.get(i));
+                out.writeInt(patch.length);
+                out.write(patch);
+                crc.update(patch);
+            }
+            out.writeLong(crc.getValue());
+            out.flush();
+            fos.getFD().sync();
+        }
+    }
+
+    // null when the journal is torn - the file itself was never touched in that case
+    private static Plan readJournal(File journal) throws IOException {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(journal))) {
+            if (in.readInt() != JOURNAL_MAGIC) return null;
+            Plan plan = new Plan();
+            plan.truncateTo = in.readLong();
+            int count = in.readInt();
+            CRC32 crc = new CRC32();
+            for (int i = 0; i < count; i++) {
+                long position = in.readLong();
+                int length = in.readInt();
+                if (length < 0 || length > journal.length()) return null;
+                byte[] patch = new byte[length];
+                in.readFully(patch);
+                crc.update(patch);
+                plan.write(position, patch);
+            }
+            return in.readLong() == crc.getValue() ? plan : null;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+}
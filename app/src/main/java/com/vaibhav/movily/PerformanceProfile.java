@@ -0,0 +1,177 @@
+package com.vaibhav.movily;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.media.MediaCodecInfo;
+import android.media.MediaCodecList;
+import android.media.MediaFormat;
+import android.util.Log;
+
+// 📶 Performance profile picked by a quick capability probe on first launch (RAM, heap class,
+// cores, hardware 1080p decode) and overridable in Settings. LITE previews through 480p
+// proxies, polls the UI less often, keeps smaller thumbnails, frame rings and buffers,
+// runs fewer workers and skips automatic scene-cut/waveform analysis.
+public class PerformanceProfile {
+
+    private static final String TAG = "PerformanceProfile";
+    private static final String PREFS = "performance";
+    private static final String KEY_MODE = "mode";
+    private static final String KEY_PROBED = "probedTier";
+    private static final String KEY_PROBE_DETAILS = "probeDetails";
+
+    public enum Tier { LITE, FULL }
+
+    public enum Mode {
+        AUTO("🤖 Automatic"),
+        LITE("🐢 Lite - smoother on older phones"),
+        FULL("🚀 Full quality");
+
+        public final String label;
+
+        Mode(String label) {
+            this.label = label;
+        }
+    }
+
+    private static boolean initialized = false;
+    private static Tier probed = Tier.FULL;
+    private static Mode mode = Mode.AUTO;
+    private static String probeDetails = "";
+
+    private PerformanceProfile() {}
+
+    // Idempotent; the probe itself runs once per install and is remembered. It enumerates the
+    // codec list, so it runs on the IO pool - FULL applies until it lands.
+    public static synchronized void init(Context context) {
+        if (initialized) return;
+        initialized = true;
+        SharedPreferences prefs = prefs(context);
+        mode = Mode.valueOf(prefs.getString(KEY_MODE, Mode.AUTO.name()));
+        if (prefs.contains(KEY_PROBED)) {
+            probed = Tier.valueOf(prefs.getString(KEY_PROBED, Tier.FULL.name()));
+            probeDetails = prefs.getString(KEY_PROBE_DETAILS, "");
+        } else {
+            probeDetails = "probing…";
+            Context app = context.getApplicationContext();
+            TaskScheduler.submit(TaskScheduler.Pool.IO, TaskScheduler.Priority.HIGH,
+                    TaskScheduler.UNCANCELLABLE, job -> {
+                        probe(app);
+                        prefs.edit().putString(KEY_PROBED, probedTier().name())
+                                .putString(KEY_PROBE_DETAILS, probeDetails()).apply();
+                        Log.d(TAG, "📶 Probed " + probedTier() + ": " + probeDetails() + " → " + tier());
+                        TaskScheduler.adaptToDevice();
+                    });
+        }
+        Log.d(TAG, "📶 Profile " + tier() + " (mode " + mode + ", probed " + probed + ": " + probeDetails + ")");
+        TaskScheduler.adaptToDevice();
+    }
+
+    public static synchronized Tier tier() {
+        return mode == Mode.AUTO ? probed : (mode == Mode.LITE ? Tier.LITE : Tier.FULL);
+    }
+
+    public static synchronized Tier probedTier() {
+        return probed;
+    }
+
+    public static synchronized Mode mode() {
+        return mode;
+    }
+
+    public static synchronized String probeDetails() {
+        return probeDetails;
+    }
+
+    public static void setMode(Context context, Mode newMode) {
+        synchronized (PerformanceProfile.class) {
+            mode = newMode;
+        }
+        prefs(context).edit().putString(KEY_MODE, newMode.name()).apply();
+        TaskScheduler.adaptToDevice();
+        Log.d(TAG, "📶 Profile override → " + newMode + " (" + tier() + ")");
+    }
+
+    public static boolean isLite() {
+        return tier() == Tier.LITE;
+    }
+
+    // ---- Knobs ----
+
+    public static boolean useProxies() {
+        return isLite();
+    }
+
+    public static boolean autoAnalysis() {
+        return !isLite();
+    }
+
+    public static int uiPollMs() {
+        return isLite() ? 200 : 50;
+    }
+
+    public static int filmstripTileHeight() {
+        return isLite() ? 64 : 96;
+    }
+
+    public static int frameRingSize() {
+        return isLite() ? 12 : FrameStepper.DEFAULT_RING_SIZE;
+    }
+
+    public static int pipelineDepth() {
+        return isLite() ? 4 : 8;
+    }
+
+    // Sample buffer when the container doesn't declare a max size - grows on demand anyway
+    public static int defaultSampleBuffer() {
+        return isLite() ? 256 * 1024 : 1024 * 1024;
+    }
+
+    public static int maxWorkers(int wanted) {
+        return isLite() ? Math.min(wanted, 2) : wanted;
+    }
+
+    // ---- Probe ----
+
+    private static void probe(Context context) {
+        ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        ActivityManager.MemoryInfo memory = new ActivityManager.MemoryInfo();
+        boolean lowRam = false;
+        int heapMb = 0;
+        if (activityManager != null) {
+            activityManager.getMemoryInfo(memory);
+            lowRam = activityManager.isLowRamDevice();
+            heapMb = activityManager.getMemoryClass();
+        }
+        long totalMb = memory.totalMem / (1024 * 1024);
+        int cores = Runtime.getRuntime().availableProcessors();
+        boolean hardware1080p = hardwareDecodes(1920, 1080);
+
+        boolean constrained = lowRam || totalMb < 3 * 1024 || heapMb < 192 || cores < 6 || !hardware1080p;
+        String details = totalMb + " MB RAM, heap " + heapMb + " MB, " + cores + " cores"
+                + (lowRam ? ", low-RAM" : "") + (hardware1080p ? "" : ", no HW 1080p decode");
+        synchronized (PerformanceProfile.class) {
+            probed = constrained ? Tier.LITE : Tier.FULL;
+            probeDetails = details;
+        }
+    }
+
+    private static boolean hardwareDecodes(int width, int height) {
+        MediaCodecList codecs = new MediaCodecList(MediaCodecList.REGULAR_CODECS);
+        for (MediaCodecInfo info : codecs.getCodecInfos()) {
+            if (info.isEncoder() || info.getName().startsWith("OMX.google.") || info.getName().startsWith("c2.android.")) {
+                continue;
+            }
+            for (String type : info.getSupportedTypes()) {
+                if (!type.equalsIgnoreCase(MediaFormat.MIMETYPE_VIDEO_AVC)) continue;
+                MediaCodecInfo.VideoCapabilities video = info.getCapabilitiesForType(type).getVideoCapabilities();
+                if (video != null && video.isSizeSupported(width, height)) return true;
+            }
+        }
+        return false;
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+    }
+}
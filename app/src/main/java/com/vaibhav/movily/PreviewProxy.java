@@ -0,0 +1,60 @@
+package com.vaibhav.movily;
+
+import android.content.Context;
+import android.util.Log;
+import java.io.File;
+import java.util.HashSet;
+import java.util.Set;
+
+// 🐢 480p preview proxies for the LITE profile: MediaPlayer plays the proxy while every edit still
+// reads the original (same timeline, so positions carry over). Built once per video version in
+// the background, on charge/cool, and keyed like every other derived cache.
+public class PreviewProxy {
+
+    private static final String TAG = "PreviewProxy";
+    private static final Set<String> building = new HashSet<>();
+
+    private PreviewProxy() {}
+
+    public static File cacheFileFor(File cacheRoot, File videoFile) {
+        return CacheKeys.cacheFile(cacheRoot, "proxies", videoFile, ".mp4");
+    }
+
+    // What to hand MediaPlayer: the proxy when one is ready, otherwise the original
+    public static String playbackPath(File cacheRoot, String videoPath) {
+        File proxy = cacheFileFor(cacheRoot, new File(videoPath));
+        return proxy.exists() ? proxy.getAbsolutePath() : videoPath;
+    }
+
+    // Not tied to the editor's lifetime - a finished proxy helps the next session too
+    public static void ensure(Context context, String videoPath) {
+        Context appContext = context.getApplicationContext();
+        File cacheRoot = appContext.getCacheDir();
+        File videoFile = new File(videoPath);
+        File proxy = cacheFileFor(cacheRoot, videoFile);
+        synchronized (building) {
+            if (proxy.exists() || !building.add(proxy.getPath())) return;
+        }
+        DeviceConditions.runWhenFavourable(TaskScheduler.UNCANCELLABLE, () -> TaskScheduler.submit(TaskScheduler.Pool.IO,
+                TaskScheduler.Priority.LOW, TaskScheduler.UNCANCELLABLE, job -> {
+                    File tmp = new File(proxy.getPath() + ".tmp");
+                    try {
+                        VideoTrackInfo track = VideoTrackInfo.probe(videoPath);
+                        if (Math.min(track.width, track.height) <= ChunkedTranscoder.Preset.SD_480.shortSide) {
+                            return;  // already small - the original is the proxy
+                        }
+                        long started = System.currentTimeMillis();
+                        if (ChunkedTranscoder.export(appContext, videoPath, tmp.getPath(),
+                                ChunkedTranscoder.Preset.SD_480, cacheRoot) && tmp.renameTo(proxy)) {
+                            Log.d(TAG, "🐢 Proxy ready: " + proxy.length() / 1024 + " KB in "
+                                    + (System.currentTimeMillis() - started) + "ms");
+                        }
+                    } finally {
+                        tmp.delete();
+                        synchronized (building) {
+                            building.remove(proxy.getPath());
+                        }
+                    }
+                }));
+    }
+}
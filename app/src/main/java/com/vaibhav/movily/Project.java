@@ -1,7 +1,17 @@
 package com.vaibhav.movily;
 
+import java.util.Objects;
+
 public class Project {
-    public String name, projectId, videoUri, createdAt;
+    public String name, projectId, videoPath, sourceUri, createdAt;
 
     public Project() {} // Firestore needs empty constructor
+
+    // DiffUtil: same projectId = same row, equal contents = no rebind
+    public boolean sameContents(Project other) {
+        return Objects.equals(name, other.name)
+                && Objects.equals(videoPath, other.videoPath)
+                && Objects.equals(sourceUri, other.sourceUri)
+                && Objects.equals(createdAt, other.createdAt);
+    }
 }
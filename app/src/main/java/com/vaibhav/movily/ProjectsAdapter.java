@@ -6,14 +6,41 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.widget.TextView;
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
+import com.google.android.material.card.MaterialCardView;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
-public class ProjectsAdapter extends RecyclerView.Adapter<ProjectsAdapter.ViewHolder> {
-    private List<Project> projects;
+// 🔥 Project list - DiffUtil-backed so deletes/refreshes animate only the rows that changed.
+// Long-press starts multi-select; while selecting, taps toggle instead of opening the editor.
+public class ProjectsAdapter extends ListAdapter<Project, ProjectsAdapter.ViewHolder> {
 
-    public ProjectsAdapter(List<Project> projects) {
-        this.projects = projects;
+    public interface SelectionListener {
+        void onSelectionChanged(int selectedCount);
+    }
+
+    private static final DiffUtil.ItemCallback<Project> DIFF = new DiffUtil.ItemCallback<Project>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Project oldItem, @NonNull Project newItem) {
+            return oldItem.projectId.equals(newItem.projectId);
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Project oldItem, @NonNull Project newItem) {
+            return oldItem.sameContents(newItem);
+        }
+    };
+
+    private final Set<String> selectedIds = new HashSet<>();
+    private final SelectionListener selectionListener;
+
+    public ProjectsAdapter(SelectionListener selectionListener) {
+        super(DIFF);
+        this.selectionListener = selectionListener;
     }
 
     @NonNull
@@ -26,21 +53,69 @@ public class ProjectsAdapter extends RecyclerView.Adapter<ProjectsAdapter.ViewHo
 
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        Project project = projects.get(position);
+        Project project = getItem(position);
         holder.tvName.setText(project.name);
         holder.tvDate.setText("Created today"); // Format later
+        if (holder.itemView instanceof MaterialCardView) {
+            ((MaterialCardView) holder.itemView).setChecked(selectedIds.contains(project.projectId));
+        }
 
         holder.itemView.setOnClickListener(v -> {
+            if (!selectedIds.isEmpty()) {
+                toggle(holder.getBindingAdapterPosition());
+                return;
+            }
             // Open editor with project ID
             Intent intent = new Intent(holder.itemView.getContext(), VideoEditorActivity.class);
             intent.putExtra("projectId", project.projectId);
             holder.itemView.getContext().startActivity(intent);
         });
+        holder.itemView.setOnLongClickListener(v -> {
+            toggle(holder.getBindingAdapterPosition());
+            return true;
+        });
+    }
+
+    public boolean isSelecting() {
+        return !selectedIds.isEmpty();
+    }
+
+    public void selectAll() {
+        for (Project project : getCurrentList()) selectedIds.add(project.projectId);
+        notifyItemRangeChanged(0, getItemCount());
+        selectionListener.onSelectionChanged(selectedIds.size());
+    }
+
+    public void clearSelection() {
+        if (selectedIds.isEmpty()) return;
+        selectedIds.clear();
+        notifyItemRangeChanged(0, getItemCount());
+        selectionListener.onSelectionChanged(0);
     }
 
+    public List<Project> getSelected() {
+        List<Project> selected = new ArrayList<>();
+        for (Project project : getCurrentList()) {
+            if (selectedIds.contains(project.projectId)) selected.add(project);
+        }
+        return selected;
+    }
+
+    // Drops selections whose rows are gone (e.g. after a refresh)
     @Override
-    public int getItemCount() {
-        return projects.size();
+    public void onCurrentListChanged(@NonNull List<Project> previousList, @NonNull List<Project> currentList) {
+        if (selectedIds.isEmpty()) return;
+        Set<String> present = new HashSet<>();
+        for (Project project : currentList) present.add(project.projectId);
+        if (selectedIds.retainAll(present)) selectionListener.onSelectionChanged(selectedIds.size());
+    }
+
+    private void toggle(int position) {
+        if (position == RecyclerView.NO_POSITION) return;
+        String id = getItem(position).projectId;
+        if (!selectedIds.remove(id)) selectedIds.add(id);
+        notifyItemChanged(position);
+        selectionListener.onSelectionChanged(selectedIds.size());
     }
 
     static class ViewHolder extends RecyclerView.ViewHolder {
@@ -0,0 +1,675 @@
+package com.vaibhav.movily;
+
+import android.media.MediaCodec;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.media.MediaMuxer;
+import android.util.Log;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// 🔥 Stream-copy trim engine (no re-encode). Copies one or more keep-ranges back to back;
+// each range starts on the video sync sample at/before its start so the output always decodes.
+public class RemuxEngine {
+
+    private static final String TAG = "RemuxEngine";
+    // Parallel split jobs - past this, parts only queue on flash write bandwidth
+    private static final int MAX_SPLIT_WORKERS = 4;
+
+    public static class Range {
+        public final long startUs, endUs;
+
+        public Range(long startUs, long endUs) {
+            this.startUs = startUs;
+            this.endUs = endUs;
+        }
+
+        public long durationUs() {
+            return endUs - startUs;
+        }
+    }
+
+    // What happens to the audio track when the video timeline is rescaled
+    public enum AudioMode { COPY, DROP, STRETCH }
+
+    // Where samples are read from: a file path, or an open descriptor (linked content:// originals)
+    private static class Source {
+        final String path;
+        final FileDescriptor fd;
+
+        Source(String path, FileDescriptor fd) {
+            this.path = path;
+            this.fd = fd;
+        }
+
+        void open(MediaExtractor extractor) throws IOException {
+            if (fd != null) {
+                extractor.setDataSource(fd);
+            } else {
+                extractor.setDataSource(path);
+            }
+        }
+    }
+
+    private RemuxEngine() {}
+
+    public static boolean remux(String inputPath, String outputPath, List<Range> keepRanges) {
+        return remux(new Source(inputPath, null), outputPath, keepRanges, 1f, AudioMode.COPY, null);
+    }
+
+    // 🔗 Reads straight from a descriptor (e.g. the user's gallery file) - only the result is written
+    public static boolean remux(FileDescriptor input, String outputPath, List<Range> keepRanges) {
+        return remux(new Source(null, input), outputPath, keepRanges, 1f, AudioMode.COPY, null);
+    }
+
+    // ⚡ Speed change: video samples are stream-copied with presentationTimeUs / speed;
+    // audio is dropped, or time-stretched + re-encoded on its own (the only transcoded part)
+    public static boolean changeSpeed(String inputPath, String outputPath, List<Range> keepRanges,
+                                      float speed, boolean keepAudio, File tempDir) {
+        return remux(new Source(inputPath, null), outputPath, keepRanges, speed,
+                keepAudio ? AudioMode.STRETCH : AudioMode.DROP, tempDir);
+    }
+
+    private static boolean remux(Source source, String outputPath, List<Range> keepRanges,
+                                 float speed, AudioMode audioMode, File tempDir) {
+        MediaMuxer muxer = null;
+        MediaExtractor extractor = null;
+        File stretchedAudio = null;
+        try {
+            new File(outputPath).delete();
+
+            extractor = new MediaExtractor();
+            source.open(extractor);
+
+            int videoTrackIndex = -1, audioTrackIndex = -1;
+            MediaFormat videoFormat = null, audioFormat = null;
+
+            for (int i = 0; i < extractor.getTrackCount(); i++) {
+                MediaFormat format = extractor.getTrackFormat(i);
+                String mime = format.getString(MediaFormat.KEY_MIME);
+                if (mime.startsWith("video/")) {
+                    videoTrackIndex = i;
+                    videoFormat = format;
+                } else if (mime.startsWith("audio/")) {
+                    audioTrackIndex = i;
+                    audioFormat = format;
+                }
+            }
+
+            if (videoTrackIndex == -1) {
+                Log.e(TAG, "No video track found");
+                return false;
+            }
+
+            List<Range> ranges = mergeAnchored(keepRanges, syncAnchors(extractor, videoTrackIndex, keepRanges));
+            List<Long> anchors = startsOf(ranges);
+
+            if (audioMode == AudioMode.DROP) {
+                audioTrackIndex = -1;
+            } else if (audioMode == AudioMode.STRETCH && audioTrackIndex != -1 && source.path != null) {
+                // Stretch from the same anchors the video uses so both tracks start together
+                stretchedAudio = new File(tempDir, "stretch_" + System.currentTimeMillis() + ".m4a");
+                if (AudioSpeedTranscoder.transcode(source.path, ranges, speed, stretchedAudio.getPath())) {
+                    audioFormat = firstTrackFormat(stretchedAudio.getPath());
+                } else {
+                    Log.w(TAG, "Audio stretch failed - exporting without audio");
+                    audioTrackIndex = -1;
+                }
+            }
+
+            muxer = new MediaMuxer(outputPath, MediaMuxer.OutputFormat.MUXER_OUTPUT_MPEG_4);
+            if (videoFormat.containsKey("rotation-degrees")) {
+                muxer.setOrientationHint(videoFormat.getInteger("rotation-degrees"));
+            }
+            int videoOutputTrack = muxer.addTrack(videoFormat);
+            int audioOutputTrack = audioTrackIndex != -1 ? muxer.addTrack(audioFormat) : -1;
+            muxer.start();
+
+            int bufferSize = Math.max(maxInputSize(videoFormat),
+                    audioOutputTrack != -1 ? maxInputSize(audioFormat) : 0);
+            long copyStarted = System.currentTimeMillis();
+
+            extractor.release();
+            extractor = null;
+            long bytes = copyTrack(source, videoTrackIndex, muxer, videoOutputTrack, ranges, anchors, speed,
+                    bufferSize);
+            if (audioOutputTrack != -1 && stretchedAudio != null) {
+                // Already on the output timeline - plain copy
+                bytes += copyTrack(new Source(stretchedAudio.getPath(), null), 0, muxer, audioOutputTrack,
+                        Collections.singletonList(new Range(0, Long.MAX_VALUE)),
+                        Collections.singletonList(0L), 1f, bufferSize);
+            } else if (audioOutputTrack != -1) {
+                bytes += copyTrack(source, audioTrackIndex, muxer, audioOutputTrack, ranges, anchors, speed,
+                        bufferSize);
+            }
+            logThroughput(bytes, copyStarted);
+
+            muxer.stop();
+            muxer.release();
+            muxer = null;
+
+            File outputFile = new File(outputPath);
+            boolean success = outputFile.exists() && outputFile.length() > 1024;
+            Log.d(TAG, "Remux result: " + success + " ranges: " + ranges.size()
+                    + " speed: " + speed + " size: " + outputFile.length());
+            return success;
+
+        } catch (Exception e) {
+            Log.e(TAG, "Remux error", e);
+            return false;
+        } finally {
+            try {
+                if (extractor != null) extractor.release();
+                if (muxer != null) muxer.release();
+            } catch (Exception ignored) {}
+            if (stretchedAudio != null) stretchedAudio.delete();
+        }
+    }
+
+    // Where each range really starts: the video sync sample at/before its start
+    private static List<Long> syncAnchors(MediaExtractor extractor, int videoTrackIndex, List<Range> ranges) {
+        List<Long> anchors = new ArrayList<>();
+        extractor.selectTrack(videoTrackIndex);
+        for (Range range : ranges) {
+            extractor.seekTo(range.startUs, MediaExtractor.SEEK_TO_PREVIOUS_SYNC);
+            long anchor = extractor.getSampleTime();
+            anchors.add(anchor >= 0 ? Math.min(anchor, range.startUs) : range.startUs);
+        }
+        extractor.unselectTrack(videoTrackIndex);
+        return anchors;
+    }
+
+    // Ranges as they will really be copied: each starts at its anchor, and a range whose anchor
+    // lands at/before the previous range's end (the keyframe sits inside the gap just removed)
+    // is merged into it - otherwise the gap, or the same GOP twice, would come back in the output
+    static List<Range> mergeAnchored(List<Range> ranges, List<Long> anchors) {
+        List<Range> merged = new ArrayList<>();
+        for (int i = 0; i < ranges.size(); i++) {
+            long start = anchors.get(i);
+            long end = ranges.get(i).endUs;
+            Range last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && start <= last.endUs) {
+                merged.set(merged.size() - 1, new Range(last.startUs, Math.max(last.endUs, end)));
+            } else {
+                merged.add(new Range(start, end));
+            }
+        }
+        return merged;
+    }
+
+    // The ranges remux() will really copy for these keep ranges - lets the UI report what a cut
+    // removes (and skip one that removes nothing) before running it
+    public static List<Range> effectiveRanges(String inputPath, List<Range> keepRanges) throws IOException {
+        MediaExtractor extractor = new MediaExtractor();
+        try {
+            extractor.setDataSource(inputPath);
+            int videoTrackIndex = trackIndex(extractor, "video/");
+            if (videoTrackIndex == -1) throw new IOException("No video track found");
+            return mergeAnchored(keepRanges, syncAnchors(extractor, videoTrackIndex, keepRanges));
+        } finally {
+            extractor.release();
+        }
+    }
+
+    private static List<Long> startsOf(List<Range> ranges) {
+        List<Long> starts = new ArrayList<>();
+        for (Range range : ranges) starts.add(range.startUs);
+        return starts;
+    }
+
+    // 🧩 Crash-safe variant of remux(): writes fragmented MP4 into workDir first (durable per
+    // fragment, resumed if the same job was interrupted), then defragments into outputPath.
+    // Falls back to plain remux() for codecs the fragment writer doesn't handle.
+    public static boolean remuxResumable(String inputPath, String outputPath, List<Range> keepRanges,
+                                         File workDir) {
+        String jobKey = jobKey(inputPath, keepRanges);
+        File fragmented = new File(workDir, "export_" + Integer.toHexString(jobKey.hashCode()) + ".fmp4");
+        try {
+            if (FragmentedMp4Writer.isComplete(fragmented, jobKey)) {
+                // ♻️ Interrupted during the rewrite - every fragment is already there
+                Log.d(TAG, "♻️ " + fragmented.getName() + " complete - defragmenting only");
+            } else if (!remuxFragmented(inputPath, fragmented, jobKey, keepRanges)) {
+                return remux(inputPath, outputPath, keepRanges);
+            }
+            // The finished fragments (and their sidecar) stay until the rewrite succeeds
+            if (!defragment(fragmented.getPath(), outputPath)) return false;
+            FragmentedMp4Writer.discard(fragmented);
+            return true;
+        } catch (Exception e) {
+            // Fragments written so far stay on disk for the next attempt
+            Log.e(TAG, "Fragmented remux error", e);
+            return false;
+        }
+    }
+
+    private static String jobKey(String inputPath, List<Range> keepRanges) {
+        File input = new File(inputPath);
+        StringBuilder key = new StringBuilder(CacheKeys.forVideo(input));
+        for (Range range : keepRanges) key.append('|').append(range.startUs).append('-').append(range.endUs);
+        return key.toString();
+    }
+
+    // ✂️ SPLIT: cut points snapped back to video sync samples, so part i ends exactly where
+    // part i+1 starts (no duplicated GOPs). Cuts that land on the same keyframe collapse.
+    public static List<Range> splitRanges(String inputPath, List<Long> cutsUs, long durationUs)
+            throws IOException {
+        List<Long> sorted = new ArrayList<>(cutsUs);
+        Collections.sort(sorted);
+        MediaExtractor extractor = new MediaExtractor();
+        try {
+            extractor.setDataSource(inputPath);
+            int videoTrackIndex = trackIndex(extractor, "video/");
+            if (videoTrackIndex == -1) throw new IOException("No video track found");
+
+            List<Range> cuts = new ArrayList<>();
+            for (long cut : sorted) cuts.add(new Range(cut, durationUs));
+            List<Long> anchors = syncAnchors(extractor, videoTrackIndex, cuts);
+
+            List<Range> parts = new ArrayList<>();
+            long partStart = 0;
+            for (long anchor : anchors) {
+                if (anchor <= partStart || anchor >= durationUs) continue;
+                parts.add(new Range(partStart, anchor));
+                partStart = anchor;
+            }
+            parts.add(new Range(partStart, durationUs));
+            return parts;
+        } finally {
+            extractor.release();
+        }
+    }
+
+    // N equal parts, before keyframe snapping
+    public static List<Long> equalCuts(long durationUs, int partCount) {
+        List<Long> cuts = new ArrayList<>();
+        for (int i = 1; i < partCount; i++) cuts.add(durationUs * i / partCount);
+        return cuts;
+    }
+
+    // Each part is its own extractor/muxer pair on a bounded pool. Parts read disjoint byte
+    // ranges of the source, so N parts cost about one sequential read, not N trims.
+    // Returns one flag per part; a failed part's output is deleted.
+    public static boolean[] split(String inputPath, List<Range> parts, List<String> outputPaths) {
+        int workers = Math.max(1, Math.min(parts.size(), DeviceConditions.parallelism(PerformanceProfile.maxWorkers(
+                Math.min(Runtime.getRuntime().availableProcessors(), MAX_SPLIT_WORKERS)))));
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        boolean[] results = new boolean[parts.size()];
+        long started = System.currentTimeMillis();
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int i = 0; i < parts.size(); i++) {
+                Range part = parts.get(i);
+                String outputPath = outputPaths.get(i);
+                futures.add(executor.submit(() ->
+                        remux(inputPath, outputPath, Collections.singletonList(part))));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    results[i] = futures.get(i).get();
+                } catch (ExecutionException e) {
+                    Log.e(TAG, "Split part " + i + " failed", e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+            for (int i = 0; i < results.length; i++) {
+                if (!results[i]) new File(outputPaths.get(i)).delete();
+            }
+        }
+        Log.d(TAG, "✂️ Split into " + parts.size() + " parts on " + workers + " workers in "
+                + (System.currentTimeMillis() - started) + "ms");
+        return results;
+    }
+
+    // 🧵 Stream-copy concat of files that share one codec config (e.g. chunks from the same
+    // encoder settings), each laid at the running sum of durationsUs. Returns false without
+    // writing when the configs differ - their samples couldn't share one sample description.
+    public static boolean concat(List<String> inputPaths, List<Long> durationsUs, String outputPath) {
+        MediaMuxer muxer = null;
+        try {
+            MediaFormat videoFormat = trackFormat(inputPaths.get(0), "video/");
+            MediaFormat audioFormat = trackFormat(inputPaths.get(0), "audio/");
+            if (videoFormat == null) return false;
+            for (String path : inputPaths) {
+                if (!sameConfig(videoFormat, trackFormat(path, "video/"))
+                        || !sameConfig(audioFormat, trackFormat(path, "audio/"))) {
+                    Log.w(TAG, "Codec config differs in " + path + " - can't concat");
+                    return false;
+                }
+            }
+
+            new File(outputPath).delete();
+            muxer = new MediaMuxer(outputPath, MediaMuxer.OutputFormat.MUXER_OUTPUT_MPEG_4);
+            if (videoFormat.containsKey("rotation-degrees")) {
+                muxer.setOrientationHint(videoFormat.getInteger("rotation-degrees"));
+            }
+            int videoOutputTrack = muxer.addTrack(videoFormat);
+            int audioOutputTrack = audioFormat != null ? muxer.addTrack(audioFormat) : -1;
+            muxer.start();
+
+            long copyStarted = System.currentTimeMillis();
+            long bytes = concatTrack(inputPaths, durationsUs, "video/", muxer, videoOutputTrack,
+                    maxInputSize(videoFormat));
+            if (audioOutputTrack != -1) {
+                bytes += concatTrack(inputPaths, durationsUs, "audio/", muxer, audioOutputTrack,
+                        maxInputSize(audioFormat));
+            }
+            logThroughput(bytes, copyStarted);
+
+            muxer.stop();
+            muxer.release();
+            muxer = null;
+            return new File(outputPath).length() > 1024;
+        } catch (Exception e) {
+            Log.e(TAG, "Concat error", e);
+            new File(outputPath).delete();
+            return false;
+        } finally {
+            try {
+                if (muxer != null) muxer.release();
+            } catch (Exception ignored) {}
+        }
+    }
+
+    private static long concatTrack(List<String> inputPaths, List<Long> durationsUs, String mimePrefix,
+                                    MediaMuxer muxer, int outputTrack, int bufferSize) throws Exception {
+        MediaCodec.BufferInfo bufferInfo = new MediaCodec.BufferInfo();
+        return SamplePipeline.run(bufferSize, output -> {
+            long baseUs = 0;
+            for (int i = 0; i < inputPaths.size(); i++) {
+                MediaExtractor extractor = new MediaExtractor();
+                try {
+                    extractor.setDataSource(inputPaths.get(i));
+                    extractor.selectTrack(trackIndex(extractor, mimePrefix));
+                    long pts;
+                    while ((pts = extractor.getSampleTime()) >= 0) {
+                        SamplePipeline.Sample sample = output.obtain(0);
+                        sample.size = SamplePipeline.readSample(extractor, sample);
+                        sample.presentationTimeUs = baseUs + Math.max(0, pts);
+                        sample.flags = extractor.getSampleFlags();
+                        output.publish(sample);
+                        extractor.advance();
+                    }
+                } finally {
+                    extractor.release();
+                }
+                baseUs += durationsUs.get(i);
+            }
+        }, sample -> {
+            bufferInfo.set(0, sample.size, sample.presentationTimeUs, sample.flags);
+            muxer.writeSampleData(outputTrack, sample.buffer, bufferInfo);
+        });
+    }
+
+    private static MediaFormat trackFormat(String path, String mimePrefix) throws IOException {
+        MediaExtractor extractor = new MediaExtractor();
+        try {
+            extractor.setDataSource(path);
+            int index = trackIndex(extractor, mimePrefix);
+            return index != -1 ? extractor.getTrackFormat(index) : null;
+        } finally {
+            extractor.release();
+        }
+    }
+
+    private static int trackIndex(MediaExtractor extractor, String mimePrefix) {
+        for (int i = 0; i < extractor.getTrackCount(); i++) {
+            if (extractor.getTrackFormat(i).getString(MediaFormat.KEY_MIME).startsWith(mimePrefix)) return i;
+        }
+        return -1;
+    }
+
+    private static boolean sameConfig(MediaFormat a, MediaFormat b) {
+        if (a == null || b == null) return a == b;
+        if (!a.getString(MediaFormat.KEY_MIME).equals(b.getString(MediaFormat.KEY_MIME))) return false;
+        for (String key : new String[]{"csd-0", "csd-1", "csd-2"}) {
+            ByteBuffer csdA = a.containsKey(key) ? a.getByteBuffer(key) : null;
+            ByteBuffer csdB = b.containsKey(key) ? b.getByteBuffer(key) : null;
+            if (csdA == null ? csdB != null : !csdA.equals(csdB)) return false;
+        }
+        return true;
+    }
+
+    // Single extractor with every track selected, so fragments interleave in file order.
+    // Returns false (nothing written) when a track's codec isn't supported by the fragment writer.
+    private static boolean remuxFragmented(String inputPath, File output, String jobKey,
+                                           List<Range> keepRanges) throws Exception {
+        MediaExtractor extractor = new MediaExtractor();
+        FragmentedMp4Writer writer = new FragmentedMp4Writer(output, jobKey);
+        try {
+            extractor.setDataSource(inputPath);
+            int trackCount = extractor.getTrackCount();
+            int[] outputTracks = new int[trackCount];
+            int videoTrackIndex = -1, selected = 0;
+            for (int i = 0; i < trackCount; i++) {
+                outputTracks[i] = -1;
+                MediaFormat format = extractor.getTrackFormat(i);
+                String mime = format.getString(MediaFormat.KEY_MIME);
+                boolean video = mime.startsWith("video/");
+                if (!video && !mime.startsWith("audio/")) continue;
+                if ((video && videoTrackIndex != -1) || !FragmentedMp4Writer.supports(format)) return false;
+                if (video) videoTrackIndex = i;
+                outputTracks[i] = writer.addTrack(format);
+                selected++;
+            }
+            if (videoTrackIndex == -1) return false;
+
+            List<Range> ranges = mergeAnchored(keepRanges, syncAnchors(extractor, videoTrackIndex, keepRanges));
+            List<Long> anchors = startsOf(ranges);
+            for (int i = 0; i < trackCount; i++) {
+                if (outputTracks[i] != -1) extractor.selectTrack(i);
+            }
+            writer.start();
+
+            // A resumed export replays the same deterministic walk and skips what is durable
+            long[] skip = new long[trackCount];
+            long[] lastWrittenUs = new long[trackCount];
+            for (int i = 0; i < trackCount; i++) {
+                skip[i] = outputTracks[i] != -1 ? writer.samplesWritten(outputTracks[i]) : 0;
+                lastWrittenUs[i] = -1;
+            }
+
+            int bufferSize = 0;
+            for (int i = 0; i < trackCount; i++) {
+                if (outputTracks[i] != -1) bufferSize = Math.max(bufferSize, maxInputSize(extractor.getTrackFormat(i)));
+            }
+            MediaCodec.BufferInfo bufferInfo = new MediaCodec.BufferInfo();
+            final int selectedTracks = selected;
+            long copyStarted = System.currentTimeMillis();
+            long bytes = SamplePipeline.run(bufferSize, out -> {
+                long outputBaseUs = 0;
+                for (int r = 0; r < ranges.size(); r++) {
+                    Range range = ranges.get(r);
+                    long anchorUs = anchors.get(r);
+                    extractor.seekTo(anchorUs, MediaExtractor.SEEK_TO_PREVIOUS_SYNC);
+                    boolean[] finished = new boolean[trackCount];
+                    int finishedCount = 0;
+
+                    while (finishedCount < selectedTracks) {
+                        int track = extractor.getSampleTrackIndex();
+                        if (track < 0) break;
+                        long pts = extractor.getSampleTime();
+                        if (pts >= range.endUs) {
+                            if (!finished[track]) {
+                                finished[track] = true;
+                                finishedCount++;
+                            }
+                        } else if (pts >= anchorUs && !finished[track]) {
+                            long outPts = outputBaseUs + (pts - anchorUs);
+                            int flags = extractor.getSampleFlags();
+                            if (outPts <= lastWrittenUs[track] && (flags & MediaExtractor.SAMPLE_FLAG_SYNC) != 0) {
+                                outPts = lastWrittenUs[track] + 1;  // keep sync samples strictly increasing across joins
+                            }
+                            lastWrittenUs[track] = Math.max(lastWrittenUs[track], outPts);
+                            if (skip[track] > 0) {
+                                skip[track]--;
+                            } else {
+                                SamplePipeline.Sample sample = out.obtain(0);
+                                sample.size = SamplePipeline.readSample(extractor, sample);
+                                sample.presentationTimeUs = outPts;
+                                sample.flags = flags;
+                                sample.track = outputTracks[track];
+                                out.publish(sample);
+                            }
+                        }
+                        extractor.advance();
+                    }
+                    outputBaseUs += range.endUs - anchorUs;
+                }
+            }, sample -> {
+                bufferInfo.set(0, sample.size, sample.presentationTimeUs, sample.flags);
+                writer.writeSampleData(sample.track, sample.buffer, bufferInfo);
+            });
+            writer.stop();
+            logThroughput(bytes, copyStarted);
+            return true;
+        } finally {
+            writer.release();
+            extractor.release();
+        }
+    }
+
+    // Optional compatibility pass: fragmented → regular moov/mdat MP4 (stream copy)
+    public static boolean defragment(String fragmentedPath, String outputPath) {
+        MediaExtractor extractor = new MediaExtractor();
+        MediaMuxer muxer = null;
+        try {
+            new File(outputPath).delete();
+            extractor.setDataSource(fragmentedPath);
+            muxer = new MediaMuxer(outputPath, MediaMuxer.OutputFormat.MUXER_OUTPUT_MPEG_4);
+            int[] outputTracks = new int[extractor.getTrackCount()];
+            for (int i = 0; i < outputTracks.length; i++) {
+                MediaFormat format = extractor.getTrackFormat(i);
+                if (format.containsKey("rotation-degrees")) {
+                    muxer.setOrientationHint(format.getInteger("rotation-degrees"));
+                }
+                outputTracks[i] = muxer.addTrack(format);
+                extractor.selectTrack(i);
+            }
+            muxer.start();
+
+            int bufferSize = 0;
+            for (int i = 0; i < outputTracks.length; i++) {
+                bufferSize = Math.max(bufferSize, maxInputSize(extractor.getTrackFormat(i)));
+            }
+            MediaCodec.BufferInfo bufferInfo = new MediaCodec.BufferInfo();
+            MediaMuxer target = muxer;
+            long copyStarted = System.currentTimeMillis();
+            long bytes = SamplePipeline.run(bufferSize, output -> {
+                int track;
+                while ((track = extractor.getSampleTrackIndex()) >= 0) {
+                    SamplePipeline.Sample sample = output.obtain(0);
+                    sample.size = SamplePipeline.readSample(extractor, sample);
+                    sample.presentationTimeUs = extractor.getSampleTime();
+                    sample.flags = extractor.getSampleFlags();
+                    sample.track = outputTracks[track];
+                    output.publish(sample);
+                    extractor.advance();
+                }
+            }, sample -> {
+                bufferInfo.set(0, sample.size, sample.presentationTimeUs, sample.flags);
+                target.writeSampleData(sample.track, sample.buffer, bufferInfo);
+            });
+            logThroughput(bytes, copyStarted);
+            muxer.stop();
+            muxer.release();
+            muxer = null;
+
+            File outputFile = new File(outputPath);
+            Log.d(TAG, "🧩 Defragmented " + new File(fragmentedPath).length() + " → " + outputFile.length() + " bytes");
+            return outputFile.exists() && outputFile.length() > 1024;
+        } catch (Exception e) {
+            Log.e(TAG, "Defragment error", e);
+            return false;
+        } finally {
+            try {
+                extractor.release();
+                if (muxer != null) muxer.release();
+            } catch (Exception ignored) {}
+        }
+    }
+
+    private static MediaFormat firstTrackFormat(String path) throws Exception {
+        MediaExtractor extractor = new MediaExtractor();
+        try {
+            extractor.setDataSource(path);
+            return extractor.getTrackFormat(0);
+        } finally {
+            extractor.release();
+        }
+    }
+
+    // Copies every range of one track, laying the ranges end to end on the output timeline.
+    // Reading runs on the pipeline's reader thread; muxer writes stay on this thread.
+    private static long copyTrack(Source source, int trackIndex, MediaMuxer muxer, int outputTrack,
+                                  List<Range> ranges, List<Long> anchors, float speed,
+                                  int bufferSize) throws Exception {
+        MediaExtractor extractor = new MediaExtractor();
+        MediaCodec.BufferInfo bufferInfo = new MediaCodec.BufferInfo();
+        try {
+            source.open(extractor);
+            extractor.selectTrack(trackIndex);
+
+            return SamplePipeline.run(bufferSize, output -> {
+                long outputBaseUs = 0;
+                long lastWrittenUs = -1;
+                for (int r = 0; r < ranges.size(); r++) {
+                    Range range = ranges.get(r);
+                    long anchorUs = anchors.get(r);
+                    extractor.seekTo(anchorUs, MediaExtractor.SEEK_TO_PREVIOUS_SYNC);
+
+                    while (true) {
+                        long pts = extractor.getSampleTime();
+                        if (pts < 0 || pts >= range.endUs) break;
+                        if (pts < anchorUs) {
+                            extractor.advance();
+                            continue;
+                        }
+
+                        long outPts = outputBaseUs + (long) ((pts - anchorUs) / speed);
+                        int flags = extractor.getSampleFlags();
+                        if (outPts <= lastWrittenUs && (flags & MediaExtractor.SAMPLE_FLAG_SYNC) != 0) {
+                            outPts = lastWrittenUs + 1;  // keep sync samples strictly increasing across joins
+                        }
+                        SamplePipeline.Sample sample = output.obtain(0);
+                        sample.size = SamplePipeline.readSample(extractor, sample);
+                        sample.presentationTimeUs = outPts;
+                        sample.flags = flags;
+                        output.publish(sample);
+                        lastWrittenUs = Math.max(lastWrittenUs, outPts);
+                        extractor.advance();
+                    }
+                    outputBaseUs += (long) ((range.endUs - anchorUs) / speed);
+                }
+            }, sample -> {
+                bufferInfo.set(0, sample.size, sample.presentationTimeUs, sample.flags);
+                muxer.writeSampleData(outputTrack, sample.buffer, bufferInfo);
+            });
+        } finally {
+            extractor.release();
+        }
+    }
+
+    // Largest sample the track declares; the profile's default when the container doesn't say
+    private static int maxInputSize(MediaFormat format) {
+        return format.containsKey(MediaFormat.KEY_MAX_INPUT_SIZE) ?
+                format.getInteger(MediaFormat.KEY_MAX_INPUT_SIZE) : PerformanceProfile.defaultSampleBuffer();
+    }
+
+    private static void logThroughput(long bytes, long startedMs) {
+        long elapsed = Math.max(1, System.currentTimeMillis() - startedMs);
+        Log.d(TAG, "🚚 Copied " + bytes / 1024 + " KB in " + elapsed + "ms ("
+                + (bytes * 1000 / elapsed) / (1024 * 1024) + " MB/s), pool " + DirectBufferPool.stats());
+    }
+}
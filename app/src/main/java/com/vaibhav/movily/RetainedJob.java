@@ -0,0 +1,103 @@
+package com.vaibhav.movily;
+
+import android.app.Activity;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// 🔁 Background work that outlives one Activity instance. A rotation destroys and recreates the
+// screen: the job keeps running on its own token and its UI updates go to whichever instance is
+// attached (queued while none is). Only leaving the screen - isFinishing() - cancels it.
+public final class RetainedJob<A extends Activity> {
+
+    private static final String TAG = "RetainedJob";
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Registry and all job state below - main thread only
+    private static final Map<String, RetainedJob<?>> running = new HashMap<>();
+
+    public interface Step<A> {
+        void apply(A host);
+    }
+
+    public final TaskScheduler.CancellationToken token;
+    private final String key;
+    private final Step<A> busy;  // puts a freshly attached instance into the job's busy UI
+    private final List<Step<A>> pending = new ArrayList<>();
+    private A host;
+    private boolean done = false;
+    private boolean abandoned = false;
+
+    private RetainedJob(String key, A host, TaskScheduler.CancellationToken token, Step<A> busy) {
+        this.key = key;
+        this.host = host;
+        this.token = token;
+        this.busy = busy;
+    }
+
+    // Main thread. The caller has already shown its busy UI; `busy` replays it after a rotation.
+    // Pass TaskScheduler.UNCANCELLABLE for work that must finish even when the screen is left.
+    public static <A extends Activity> RetainedJob<A> start(String key, A host,
+                                                            TaskScheduler.CancellationToken token, Step<A> busy) {
+        RetainedJob<A> job = new RetainedJob<>(key, host, token, busy);
+        running.put(key, job);
+        return job;
+    }
+
+    public static <A extends Activity> RetainedJob<A> start(String key, A host, Step<A> busy) {
+        return start(key, host, new TaskScheduler.CancellationToken(), busy);
+    }
+
+    // Main thread, from onCreate once the views exist: the new instance takes over a running job
+    // and receives what was posted while it was being recreated. Null when nothing is running.
+    @SuppressWarnings("unchecked")
+    public static <A extends Activity> RetainedJob<A> attach(String key, A host) {
+        RetainedJob<A> job = (RetainedJob<A>) running.get(key);
+        if (job == null) return null;
+        job.host = host;
+        Log.d(TAG, "🔁 " + key + " re-attached, " + job.pending.size() + " updates queued");
+        job.busy.apply(host);
+        job.flush();
+        return job.done ? null : job;
+    }
+
+    // Main thread, from onDestroy. A configuration change just detaches; leaving cancels.
+    public void detach(A host) {
+        if (this.host != host) return;
+        this.host = null;
+        if (host.isFinishing() && running.get(key) == this) {
+            running.remove(key);
+            abandoned = true;
+            pending.clear();
+            token.cancel();
+            Log.d(TAG, "🛑 " + key + " cancelled - screen left");
+        }
+    }
+
+    // Any thread: runs the step on the attached instance, or queues it for the next one
+    public void post(Step<A> step) {
+        deliver(step, false);
+    }
+
+    // Any thread: the job's last update - once it's delivered the key is free again
+    public void finish(Step<A> step) {
+        deliver(step, true);
+    }
+
+    private void deliver(Step<A> step, boolean last) {
+        mainHandler.post(() -> {
+            if (abandoned) return;
+            pending.add(step);
+            if (last) done = true;
+            flush();
+        });
+    }
+
+    private void flush() {
+        while (host != null && !pending.isEmpty()) pending.remove(0).apply(host);
+        if (done && pending.isEmpty() && running.get(key) == this) running.remove(key);
+    }
+}
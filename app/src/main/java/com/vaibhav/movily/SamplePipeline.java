@@ -0,0 +1,184 @@
+package com.vaibhav.movily;
+
+import android.media.MediaExtractor;
+import android.os.Build;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// 🚚 Two-stage sample copy: a reader thread fills pooled direct buffers while the calling
+// thread drains them into the muxer. A fixed set of Sample holders circulates through two
+// lock-free single-producer/single-consumer rings (free → reader → filled → writer → free).
+public class SamplePipeline {
+
+    private static final int RING_SIZE = 8;           // ring capacity (power of two), max holders in flight
+    private static final long PARK_NANOS = 50_000;
+
+    public static class Sample {
+        public ByteBuffer buffer;
+        public int size;
+        public long presentationTimeUs;
+        public int flags;
+        public int track;
+        boolean end;
+
+        // Swaps in a larger pooled buffer when this sample won't fit
+        void ensureCapacity(int capacity) {
+            if (buffer.capacity() >= capacity) return;
+            DirectBufferPool.release(buffer);
+            buffer = DirectBufferPool.acquire(capacity);
+        }
+    }
+
+    public interface Output {
+        Sample obtain(int minCapacity) throws InterruptedException;
+
+        void publish(Sample sample) throws InterruptedException;
+    }
+
+    public interface Reader {
+        void read(Output output) throws Exception;
+    }
+
+    public interface Writer {
+        void write(Sample sample) throws Exception;
+    }
+
+    private SamplePipeline() {}
+
+    // Returns bytes moved; reader/writer exceptions are rethrown on the calling thread
+    public static long run(int bufferSize, Reader reader, Writer writer) throws Exception {
+        SpscRing<Sample> freeRing = new SpscRing<>(RING_SIZE);
+        SpscRing<Sample> filledRing = new SpscRing<>(RING_SIZE);
+        Sample[] holders = new Sample[Math.min(DeviceConditions.pipelineDepth(RING_SIZE),
+                PerformanceProfile.pipelineDepth())];
+        for (int i = 0; i < holders.length; i++) {
+            holders[i] = new Sample();
+            holders[i].buffer = DirectBufferPool.acquire(bufferSize);
+            freeRing.offer(holders[i]);
+        }
+
+        Exception[] readerError = new Exception[1];
+        AtomicBoolean aborted = new AtomicBoolean(false);
+        Thread writerThread = Thread.currentThread();
+        Output output = new Output() {
+            @Override
+            public Sample obtain(int minCapacity) throws InterruptedException {
+                Sample sample = take(freeRing);
+                sample.ensureCapacity(minCapacity);
+                sample.buffer.clear();
+                sample.end = false;
+                return sample;
+            }
+
+            @Override
+            public void publish(Sample sample) throws InterruptedException {
+                put(filledRing, sample);
+                LockSupport.unpark(writerThread);
+            }
+        };
+
+        Thread readerThread = new Thread(() -> {
+            try {
+                reader.read(output);
+            } catch (Exception e) {
+                readerError[0] = e;
+            } finally {
+                try {
+                    if (aborted.get()) return;  // writer failed - nobody is draining any more
+                    Sample end = take(freeRing);
+                    end.end = true;
+                    put(filledRing, end);
+                } catch (InterruptedException ignored) {}
+                LockSupport.unpark(writerThread);
+            }
+        }, "RemuxReader");
+        readerThread.start();
+
+        long bytes = 0;
+        try {
+            while (true) {
+                Sample sample = take(filledRing);
+                if (sample.end) break;
+                IoGovernor.acquire(sample.size);  // 🚰 yields bandwidth to foreground playback
+                writer.write(sample);
+                bytes += sample.size;
+                put(freeRing, sample);
+                LockSupport.unpark(readerThread);
+            }
+        } catch (Exception e) {
+            aborted.set(true);
+            readerThread.interrupt();
+            throw e;
+        } finally {
+            readerThread.join();
+            for (Sample holder : holders) DirectBufferPool.release(holder.buffer);
+        }
+        if (readerError[0] != null) throw readerError[0];
+        return bytes;
+    }
+
+    // Reads the extractor's current sample, growing the holder if the sample doesn't fit
+    public static int readSample(MediaExtractor extractor, Sample sample) {
+        if (Build.VERSION.SDK_INT >= 28) {
+            sample.ensureCapacity((int) Math.max(0, extractor.getSampleSize()));
+        }
+        while (true) {
+            try {
+                sample.buffer.clear();
+                return extractor.readSampleData(sample.buffer, 0);
+            } catch (IllegalArgumentException tooSmall) {
+                sample.ensureCapacity(sample.buffer.capacity() * 2);
+            }
+        }
+    }
+
+    private static <T> T take(SpscRing<T> ring) throws InterruptedException {
+        T item;
+        while ((item = ring.poll()) == null) {
+            if (Thread.interrupted()) throw new InterruptedException();
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+        return item;
+    }
+
+    private static <T> void put(SpscRing<T> ring, T item) throws InterruptedException {
+        while (!ring.offer(item)) {
+            if (Thread.interrupted()) throw new InterruptedException();
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+    }
+
+    // Bounded lock-free queue for exactly one producer thread and one consumer thread
+    static final class SpscRing<T> {
+        private final Object[] slots;
+        private final int mask;
+        private final AtomicLong head = new AtomicLong();  // next slot to poll
+        private final AtomicLong tail = new AtomicLong();  // next slot to offer
+
+        SpscRing(int capacity) {
+            slots = new Object[capacity];
+            mask = capacity - 1;
+        }
+
+        boolean offer(T item) {
+            long t = tail.get();
+            if (t - head.get() == slots.length) return false;
+            slots[(int) (t & mask)] = item;
+            tail.lazySet(t + 1);  // publishes the slot write
+            return true;
+        }
+
+        @SuppressWarnings("unchecked")
+        T poll() {
+            long h = head.get();
+            if (h == tail.get()) return null;
+            int index = (int) (h & mask);
+            T item = (T) slots[index];
+            slots[index] = null;
+            head.lazySet(h + 1);
+            return item;
+        }
+    }
+}
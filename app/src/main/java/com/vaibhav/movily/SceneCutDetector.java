@@ -0,0 +1,237 @@
+package com.vaibhav.movily;
+
+import android.media.Image;
+import android.media.MediaCodec;
+import android.media.MediaCodecInfo;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.util.Log;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// 🔥 Suggested cut points straight from the sample tables - no pixel decoding for the scan.
+//  - sync samples off the regular GOP cadence = encoder-inserted scene-cut keyframes (trusted)
+//  - sample-size spikes = likely cuts, confirmed by a keyframe-only decode + luma histogram diff
+public class SceneCutDetector {
+
+    private static final String TAG = "SceneCutDetector";
+    private static final int CACHE_VERSION = 1;
+    private static final float IRREGULAR_GOP_RATIO = 0.75f;
+    private static final float SPIKE_RATIO = 3.0f;
+    private static final int SPIKE_WINDOW = 30;
+    private static final long MIN_CUT_GAP_US = 1000000;
+    private static final int MAX_CONFIRMATIONS = 16;
+    private static final int HISTOGRAM_BINS = 32;
+    private static final float HISTOGRAM_CUT_DISTANCE = 0.35f;
+
+    private SceneCutDetector() {}
+
+    public static File cacheFileFor(File cacheRoot, File videoFile) {
+        return CacheKeys.cacheFile(cacheRoot, "scenecuts", videoFile, ".cuts");
+    }
+
+    // Blocking - returns cut points in ms, sorted. Cached per video version.
+    public static int[] load(VideoTrackInfo track, File cacheRoot) throws IOException {
+        File videoFile = new File(track.path);
+        File cached = cacheFileFor(cacheRoot, videoFile);
+        int[] cuts = readCache(cached);
+        if (cuts != null) return cuts;
+
+        long started = System.currentTimeMillis();
+        cuts = detect(track);
+        writeCache(cached, cuts);
+        Log.d(TAG, "✂️ " + cuts.length + " cut points in " + (System.currentTimeMillis() - started) + "ms");
+        return cuts;
+    }
+
+    private static int[] detect(VideoTrackInfo track) throws IOException {
+        Mp4SampleTable table;
+        try (RandomAccessFile file = new RandomAccessFile(track.path, "r")) {
+            FileChannel channel = file.getChannel();
+            Mp4Box moovHeader = Mp4Parser.findTopLevel(Mp4Parser.readTopLevel(channel), "moov");
+            if (moovHeader == null) return new int[0];
+            table = Mp4SampleTable.findTrack(Mp4Parser.readTree(channel, moovHeader), "vide");
+        }
+        if (table == null || table.sampleCount() == 0) return new int[0];
+
+        List<Long> trusted = new ArrayList<>();
+        List<Long> suspects = new ArrayList<>();
+
+        // 1️⃣ Keyframe placement
+        int[] sync = table.syncSamples;
+        if (sync != null && sync.length > 2) {
+            int[] intervals = new int[sync.length - 1];
+            for (int i = 1; i < sync.length; i++) intervals[i - 1] = sync[i] - sync[i - 1];
+            int[] sorted = intervals.clone();
+            Arrays.sort(sorted);
+            int typicalGop = sorted[sorted.length / 2];
+            for (int i = 1; i < sync.length; i++) {
+                if (intervals[i - 1] < typicalGop * IRREGULAR_GOP_RATIO) {
+                    trusted.add(table.presentationTimeUs(sync[i]));
+                }
+            }
+        }
+
+        // 2️⃣ Size spikes against a rolling average of the preceding non-sync samples
+        int[] sizes = table.sampleSizes;
+        int[] window = new int[SPIKE_WINDOW];
+        int filled = 0, next = 0;
+        long windowSum = 0;
+        for (int i = 0; i < sizes.length; i++) {
+            if (table.isSync(i)) continue;
+            if (filled == SPIKE_WINDOW && sizes[i] > SPIKE_RATIO * windowSum / SPIKE_WINDOW) {
+                suspects.add(table.presentationTimeUs(i));
+            }
+            if (filled == SPIKE_WINDOW) {
+                windowSum -= window[next];
+            } else {
+                filled++;
+            }
+            window[next] = sizes[i];
+            windowSum += sizes[i];
+            next = (next + 1) % SPIKE_WINDOW;
+        }
+
+        List<Long> confirmed = confirmWithHistograms(track, dropNear(suspects, trusted));
+
+        List<Long> all = new ArrayList<>(trusted);
+        all.addAll(confirmed);
+        long[] times = new long[all.size()];
+        for (int i = 0; i < times.length; i++) times[i] = all.get(i);
+        Arrays.sort(times);
+
+        List<Integer> cutsMs = new ArrayList<>();
+        long last = Long.MIN_VALUE;
+        for (long t : times) {
+            if (t <= 0 || t - last < MIN_CUT_GAP_US) continue;
+            cutsMs.add((int) (t / 1000));
+            last = t;
+        }
+        int[] result = new int[cutsMs.size()];
+        for (int i = 0; i < result.length; i++) result[i] = cutsMs.get(i);
+        return result;
+    }
+
+    private static List<Long> dropNear(List<Long> candidates, List<Long> existing) {
+        List<Long> result = new ArrayList<>();
+        for (long c : candidates) {
+            boolean near = false;
+            for (long e : existing) {
+                if (Math.abs(c - e) < MIN_CUT_GAP_US) {
+                    near = true;
+                    break;
+                }
+            }
+            if (!near) result.add(c);
+        }
+        return result;
+    }
+
+    // Compare the keyframes either side of each suspect - only a handful of single-frame decodes
+    private static List<Long> confirmWithHistograms(VideoTrackInfo track, List<Long> suspects)
+            throws IOException {
+        List<Long> confirmed = new ArrayList<>();
+        if (suspects.isEmpty()) return confirmed;
+        if (suspects.size() > MAX_CONFIRMATIONS) {
+            // Spread the decode budget over the whole timeline
+            List<Long> sampled = new ArrayList<>();
+            for (int i = 0; i < MAX_CONFIRMATIONS; i++) {
+                sampled.add(suspects.get(i * suspects.size() / MAX_CONFIRMATIONS));
+            }
+            suspects = sampled;
+        }
+
+        MediaExtractor extractor = track.openExtractor();
+        MediaCodec decoder = track.createDecoder();
+        try {
+            MediaFormat format = track.newDecoderFormat();
+            format.setInteger(MediaFormat.KEY_COLOR_FORMAT,
+                    MediaCodecInfo.CodecCapabilities.COLOR_FormatYUV420Flexible);
+            decoder.configure(format, null, null, 0);
+            decoder.start();
+
+            float[] before = new float[HISTOGRAM_BINS];
+            float[] after = new float[HISTOGRAM_BINS];
+            for (long suspectUs : suspects) {
+                extractor.seekTo(suspectUs, MediaExtractor.SEEK_TO_PREVIOUS_SYNC);
+                if (!KeyframeDecoder.decodeCurrentSample(decoder, extractor, image -> lumaHistogram(image, before))) {
+                    continue;
+                }
+                extractor.seekTo(suspectUs, MediaExtractor.SEEK_TO_NEXT_SYNC);
+                if (extractor.getSampleTime() <= suspectUs) continue;
+                if (!KeyframeDecoder.decodeCurrentSample(decoder, extractor, image -> lumaHistogram(image, after))) {
+                    continue;
+                }
+                float distance = 0;
+                for (int b = 0; b < HISTOGRAM_BINS; b++) distance += Math.abs(before[b] - after[b]);
+                if (distance / 2f >= HISTOGRAM_CUT_DISTANCE) confirmed.add(suspectUs);
+            }
+        } finally {
+            try {
+                decoder.stop();
+            } catch (Exception ignored) {}
+            decoder.release();
+            extractor.release();
+        }
+        return confirmed;
+    }
+
+    // Normalised luma histogram over a sparse grid of the Y plane
+    private static void lumaHistogram(Image image, float[] histogram) {
+        Arrays.fill(histogram, 0f);
+        Image.Plane y = image.getPlanes()[0];
+        ByteBuffer buffer = y.getBuffer();
+        int rowStride = y.getRowStride(), pixelStride = y.getPixelStride();
+        int width = image.getCropRect().width(), height = image.getCropRect().height();
+        int left = image.getCropRect().left, top = image.getCropRect().top;
+        int stepX = Math.max(1, width / 64), stepY = Math.max(1, height / 36);
+        int samples = 0;
+        for (int row = 0; row < height; row += stepY) {
+            int base = (top + row) * rowStride;
+            for (int col = 0; col < width; col += stepX) {
+                int luma = buffer.get(base + (left + col) * pixelStride) & 0xFF;
+                histogram[luma * HISTOGRAM_BINS / 256]++;
+                samples++;
+            }
+        }
+        if (samples == 0) return;
+        for (int b = 0; b < HISTOGRAM_BINS; b++) histogram[b] /= samples;
+    }
+
+    private static int[] readCache(File cached) {
+        if (!cached.exists()) return null;
+        try (DataInputStream in = new DataInputStream(new FileInputStream(cached))) {
+            if (in.readInt() != CACHE_VERSION) return null;
+            int[] cuts = new int[in.readInt()];
+            for (int i = 0; i < cuts.length; i++) cuts[i] = in.readInt();
+            return cuts;
+        } catch (IOException e) {
+            cached.delete();
+            return null;
+        }
+    }
+
+    private static void writeCache(File cached, int[] cuts) {
+        File tmp = new File(cached.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(tmp))) {
+            out.writeInt(CACHE_VERSION);
+            out.writeInt(cuts.length);
+            for (int cut : cuts) out.writeInt(cut);
+        } catch (IOException e) {
+            Log.e(TAG, "Cut cache write failed", e);
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(cached)) tmp.delete();
+    }
+}
@@ -1,4 +1,91 @@
 package com.vaibhav.movily;
 
-public class SettingsActivity {
+import android.os.Bundle;
+import android.util.Log;
+import android.widget.RadioButton;
+import android.widget.RadioGroup;
+import android.widget.TextView;
+import android.widget.Toast;
+import androidx.appcompat.app.AppCompatActivity;
+
+public class SettingsActivity extends AppCompatActivity {
+
+    private static final String TAG = "SettingsActivity";
+
+    // ↩️ Undo history presets: label, depth (steps per project), byte budget (per project)
+    private static final String[] HISTORY_LABELS = {"🚫 Off", "🪶 Light - 5 steps, 1 GB", "↩️ Standard - 10 steps, 2 GB",
+            "🗄️ Deep - 30 steps, 8 GB"};
+    private static final int[] HISTORY_DEPTHS = {0, 5, EditHistory.DEFAULT_DEPTH, 30};
+    private static final long[] HISTORY_BUDGETS = {0, 1L << 30, EditHistory.DEFAULT_BUDGET, 8L << 30};
+    private static final int HISTORY_ID_BASE = 100;  // clear of the performance mode ids
+
+    private TextView tvDetectedProfile;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_settings);
+        PerformanceProfile.init(this);
+
+        tvDetectedProfile = findViewById(R.id.tvDetectedProfile);
+        RadioGroup rgPerformance = findViewById(R.id.rgPerformance);
+        if (rgPerformance != null) setupPerformanceModes(rgPerformance);
+        RadioGroup rgHistory = findViewById(R.id.rgHistory);
+        if (rgHistory != null) setupHistoryLimits(rgHistory);
+        updateDetectedProfile();
+    }
+
+    // 📶 One radio button per mode; AUTO follows the startup probe, the others override it
+    private void setupPerformanceModes(RadioGroup group) {
+        PerformanceProfile.Mode current = PerformanceProfile.mode();
+        for (PerformanceProfile.Mode mode : PerformanceProfile.Mode.values()) {
+            RadioButton button = new RadioButton(this);
+            button.setId(mode.ordinal() + 1);
+            button.setText(mode.label);
+            button.setTextColor(0xFFFFFFFF);
+            button.setTextSize(16);
+            button.setPadding(8, 16, 8, 16);
+            group.addView(button);
+            if (mode == current) button.setChecked(true);
+        }
+        group.setOnCheckedChangeListener((g, checkedId) -> {
+            PerformanceProfile.Mode mode = PerformanceProfile.Mode.values()[checkedId - 1];
+            PerformanceProfile.setMode(this, mode);
+            updateDetectedProfile();
+            Toast.makeText(this, "Applies to the next video you open 🎬", Toast.LENGTH_SHORT).show();
+        });
+    }
+
+    // Closest preset to the stored depth is checked; picking one only affects edits from now on
+    private void setupHistoryLimits(RadioGroup group) {
+        int depth = EditHistory.maxDepth(this);
+        int current = 0;
+        for (int i = 0; i < HISTORY_DEPTHS.length; i++) {
+            if (Math.abs(HISTORY_DEPTHS[i] - depth) < Math.abs(HISTORY_DEPTHS[current] - depth)) current = i;
+        }
+        for (int i = 0; i < HISTORY_LABELS.length; i++) {
+            RadioButton button = new RadioButton(this);
+            button.setId(HISTORY_ID_BASE + i);
+            button.setText(HISTORY_LABELS[i]);
+            button.setTextColor(0xFFFFFFFF);
+            button.setTextSize(16);
+            button.setPadding(8, 16, 8, 16);
+            group.addView(button);
+            if (i == current) button.setChecked(true);
+        }
+        group.setOnCheckedChangeListener((g, checkedId) -> {
+            int preset = checkedId - HISTORY_ID_BASE;
+            EditHistory.setLimits(this, HISTORY_DEPTHS[preset], HISTORY_BUDGETS[preset]);
+            Log.d(TAG, "↩️ Undo history → " + HISTORY_DEPTHS[preset] + " steps, "
+                    + HISTORY_BUDGETS[preset] / (1024 * 1024) + " MB");
+            Toast.makeText(this, preset == 0 ? "Edits won't be undoable 🚫" : "Applies to your next edit ↩️",
+                    Toast.LENGTH_SHORT).show();
+        });
+    }
+
+    private void updateDetectedProfile() {
+        if (tvDetectedProfile == null) return;
+        tvDetectedProfile.setText("Detected: " + PerformanceProfile.probedTier()
+                + " (" + PerformanceProfile.probeDetails() + ")\nActive: " + PerformanceProfile.tier());
+    }
 }
@@ -0,0 +1,155 @@
+package com.vaibhav.movily;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// 🔇 Streaming dead-air detection: RMS per short window over chunked PCM, silent runs longer
+// than minSilenceMs become proposed removals (ready for RemuxEngine's multi-range path).
+public class SilenceDetector {
+
+    private static final String TAG = "SilenceDetector";
+
+    public static final int DEFAULT_THRESHOLD_DB = -42;
+    public static final int DEFAULT_MIN_SILENCE_MS = 1200;
+    public static final int WINDOW_MS = 50;
+    public static final int PADDING_MS = 150;   // breathing room kept either side of a cut
+
+    public interface Listener {
+        void onProgress(int percent);
+
+        void onComplete(List<RemuxEngine.Range> silentRanges);
+
+        void onError(String message);
+    }
+
+    private final int thresholdDb;
+    private final int minSilenceMs;
+    private final AtomicBoolean cancelled = new AtomicBoolean(false);
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    public SilenceDetector(int thresholdDb, int minSilenceMs) {
+        this.thresholdDb = thresholdDb;
+        this.minSilenceMs = minSilenceMs;
+    }
+
+    public void cancel() {
+        cancelled.set(true);
+    }
+
+    public void start(Executor executor, String videoPath, Listener listener) {
+        executor.execute(() -> {
+            long started = System.currentTimeMillis();
+            try {
+                Accumulator accumulator = new Accumulator();
+                boolean hasAudio = AudioPcmStreamer.stream(videoPath, accumulator,
+                        fraction -> mainHandler.post(() -> listener.onProgress((int) (fraction * 100))),
+                        cancelled);
+                if (cancelled.get()) return;
+                if (!hasAudio) {
+                    mainHandler.post(() -> listener.onError("No audio track"));
+                    return;
+                }
+                List<RemuxEngine.Range> ranges = accumulator.finish();
+                Log.d(TAG, "🔇 " + ranges.size() + " silent ranges, analysed "
+                        + accumulator.framesSeen / Math.max(1, accumulator.sampleRate) + "s of audio in "
+                        + (System.currentTimeMillis() - started) + "ms");
+                mainHandler.post(() -> listener.onComplete(ranges));
+            } catch (Exception e) {
+                Log.e(TAG, "Silence analysis failed", e);
+                mainHandler.post(() -> listener.onError("Silence analysis failed"));
+            }
+        });
+    }
+
+    // Keep-ranges for the remux engine: [0, duration] minus the silent ranges. The engine merges a
+    // range into its predecessor when the keyframe it must start from lies inside the removed gap.
+    public static List<RemuxEngine.Range> keepRanges(List<RemuxEngine.Range> silent, long durationUs) {
+        List<RemuxEngine.Range> keep = new ArrayList<>();
+        long cursor = 0;
+        for (RemuxEngine.Range range : silent) {
+            if (range.startUs > cursor) keep.add(new RemuxEngine.Range(cursor, range.startUs));
+            cursor = Math.max(cursor, range.endUs);
+        }
+        if (cursor < durationUs) keep.add(new RemuxEngine.Range(cursor, durationUs));
+        return keep;
+    }
+
+    private class Accumulator implements AudioPcmStreamer.Sink {
+        final List<RemuxEngine.Range> ranges = new ArrayList<>();
+        int sampleRate = 44100;
+        int channels = 1;
+        int windowFrames = 44100 * WINDOW_MS / 1000;
+        double thresholdMeanSquare;
+
+        long framesSeen = 0;
+        int framesInWindow = 0;
+        long sumSquares = 0;
+        long silenceStartFrame = -1;
+
+        Accumulator() {
+            updateThreshold();
+        }
+
+        private void updateThreshold() {
+            double amplitude = 32768.0 * Math.pow(10, thresholdDb / 20.0);
+            thresholdMeanSquare = amplitude * amplitude;
+        }
+
+        @Override
+        public void onFormat(int sampleRate, int channels) {
+            this.sampleRate = sampleRate;
+            this.channels = Math.max(1, channels);
+            this.windowFrames = Math.max(1, sampleRate * WINDOW_MS / 1000);
+        }
+
+        // Hot loop: primitives only, no allocation per sample or per window
+        @Override
+        public void onPcm(short[] samples, int count) {
+            final int ch = channels;
+            final int window = windowFrames;
+            final double threshold = thresholdMeanSquare * ch;
+            long sum = sumSquares;
+            int inWindow = framesInWindow;
+            long frame = framesSeen;
+            for (int i = 0; i + ch <= count; i += ch) {
+                for (int c = 0; c < ch; c++) {
+                    int s = samples[i + c];
+                    sum += s * s;
+                }
+                frame++;
+                if (++inWindow == window) {
+                    boolean silent = sum < threshold * window;
+                    if (silent) {
+                        if (silenceStartFrame < 0) silenceStartFrame = frame - window;
+                    } else if (silenceStartFrame >= 0) {
+                        closeSilence(frame - window);
+                    }
+                    sum = 0;
+                    inWindow = 0;
+                }
+            }
+            sumSquares = sum;
+            framesInWindow = inWindow;
+            framesSeen = frame;
+        }
+
+        private void closeSilence(long endFrame) {
+            long startUs = silenceStartFrame * 1000000L / sampleRate;
+            long endUs = endFrame * 1000000L / sampleRate;
+            silenceStartFrame = -1;
+            if (endUs - startUs < minSilenceMs * 1000L) return;
+            long padUs = PADDING_MS * 1000L;
+            ranges.add(new RemuxEngine.Range(startUs + padUs, endUs - padUs));
+        }
+
+        List<RemuxEngine.Range> finish() {
+            if (silenceStartFrame >= 0) closeSilence(framesSeen);
+            return ranges;
+        }
+    }
+}
@@ -0,0 +1,346 @@
+package com.vaibhav.movily;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Environment;
+import android.util.Log;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// 🧹 Storage inventory + garbage collector. Reconciles Movies/projects against the user's
+// project documents (orphans, interrupted trim swaps) and keeps the regenerable caches
+// (filmstrips, scene cuts, waveforms) under a byte budget, least recently used first.
+// Runs as a low-priority I/O task, a small batch of files at a time. Deleted projects' files go
+// through a journaled reclamation queue that survives crashes.
+public class StorageManager {
+
+    private static final String TAG = "StorageManager";
+    private static final String PREFS = "storage";
+    private static final String KEY_CACHE_BUDGET = "cacheBudgetBytes";
+    public static final long DEFAULT_CACHE_BUDGET = 200L * 1024 * 1024;
+
+    private static final long GRACE_MS = 60 * 60 * 1000;               // imports/exports still in flight
+    private static final long RESUME_WINDOW_MS = 7L * 24 * 60 * 60 * 1000;  // keep resumable exports this long
+    private static final int BATCH_SIZE = 64;
+    private static final long BATCH_PAUSE_MS = 20;
+    private static final String[] DERIVED_CACHES = {"filmstrips", "scenecuts", "waveforms", "proxies"};
+    private static final String RECLAIM_QUEUE = "reclaim.queue";
+
+    private static final Object sweepLock = new Object();  // one sweep at a time
+    private static final Object queueLock = new Object();  // guards the reclaim journal
+
+    public static class Inventory {
+        public long projectBytes, cacheBytes, reclaimedBytes;
+        public int filesDeleted;
+
+        @Override
+        public String toString() {
+            return "projects " + projectBytes / 1024 + " KB, caches " + cacheBytes / 1024 + " KB, reclaimed "
+                    + reclaimedBytes / 1024 + " KB in " + filesDeleted + " files";
+        }
+    }
+
+    private StorageManager() {}
+
+    public static long getCacheBudget(Context context) {
+        return prefs(context).getLong(KEY_CACHE_BUDGET, DEFAULT_CACHE_BUDGET);
+    }
+
+    public static void setCacheBudget(Context context, long bytes) {
+        prefs(context).edit().putLong(KEY_CACHE_BUDGET, bytes).apply();
+        File cacheDir = context.getCacheDir();
+        TaskScheduler.submit(TaskScheduler.Pool.IO, TaskScheduler.Priority.LOW, TaskScheduler.UNCANCELLABLE, job -> {
+            synchronized (sweepLock) {
+                enforceBudget(cacheDir, bytes, new Inventory());
+            }
+        });
+    }
+
+    // knownVideoPaths = every videoPath in the user's project documents (a complete listing)
+    public static void reconcile(Context context, String userId, Collection<String> knownVideoPaths) {
+        Context appContext = context.getApplicationContext();
+        Set<String> known = new HashSet<>(knownVideoPaths);
+        drainReclaimQueue(appContext);  // finishes deletions a crash interrupted
+        TaskScheduler.submit(TaskScheduler.Pool.IO, TaskScheduler.Priority.LOW, TaskScheduler.UNCANCELLABLE, job -> {
+            long started = System.currentTimeMillis();
+            synchronized (sweepLock) {
+                Inventory inventory = new Inventory();
+                File projectsDir = new File(appContext.getExternalFilesDir(Environment.DIRECTORY_MOVIES), "projects");
+                sweepProjects(projectsDir, userId, known, inventory);
+                sweepCaches(appContext.getCacheDir(), known, getCacheBudget(appContext), inventory);
+                Log.d(TAG, "🧹 " + inventory + " (" + (System.currentTimeMillis() - started) + "ms)");
+            }
+        });
+    }
+
+    // ---- Reclamation queue ----
+
+    // 🗑️ Files of deleted projects: the paths are journaled (fsync'd) first, then removed in the
+    // background. Deleting is idempotent, so a crash mid-drain just replays the journal next launch.
+    public static void reclaim(Context context, Collection<String> videoPaths) {
+        if (videoPaths.isEmpty()) return;
+        Context appContext = context.getApplicationContext();
+        File queue = new File(appContext.getFilesDir(), RECLAIM_QUEUE);
+        StringBuilder lines = new StringBuilder();
+        for (String path : videoPaths) lines.append(path).append('\n');
+        synchronized (queueLock) {
+            try (FileOutputStream out = new FileOutputStream(queue, true)) {
+                out.write(lines.toString().getBytes(StandardCharsets.UTF_8));
+                out.getFD().sync();
+            } catch (IOException e) {
+                // The files become orphans instead - the next reconcile still collects them
+                Log.e(TAG, "Reclaim journal write failed", e);
+                return;
+            }
+        }
+        drainReclaimQueue(appContext);
+    }
+
+    private static void drainReclaimQueue(Context appContext) {
+        File queue = new File(appContext.getFilesDir(), RECLAIM_QUEUE);
+        File projectsDir = new File(appContext.getExternalFilesDir(Environment.DIRECTORY_MOVIES), "projects");
+        File cacheDir = appContext.getCacheDir();
+        TaskScheduler.submit(TaskScheduler.Pool.IO, TaskScheduler.Priority.LOW, TaskScheduler.UNCANCELLABLE, job -> {
+            synchronized (sweepLock) {
+                List<String> paths;
+                synchronized (queueLock) {
+                    paths = readLines(queue);
+                }
+                if (paths.isEmpty()) return;
+                Inventory inventory = new Inventory();
+                int processed = 0;
+                for (String path : paths) {
+                    if (++processed % BATCH_SIZE == 0) Thread.sleep(BATCH_PAUSE_MS);
+                    reclaimVideo(new File(path), projectsDir, cacheDir, inventory);
+                }
+                synchronized (queueLock) {
+                    // Paths appended while we drained stay queued for the drain they scheduled
+                    List<String> current = readLines(queue);
+                    List<String> rest = new ArrayList<>(current.subList(Math.min(paths.size(), current.size()),
+                            current.size()));
+                    rewriteQueue(queue, rest);
+                }
+                Log.d(TAG, "🗑️ Reclaimed " + paths.size() + " projects: " + inventory);
+            }
+        });
+    }
+
+    // The video plus everything derived from it: trim journal/backup and its cache entries
+    private static void reclaimVideo(File video, File projectsDir, File cacheDir, Inventory inventory) {
+        // Paths come from project documents - never delete outside our own projects folder
+        if (!projectsDir.equals(video.getParentFile())) {
+            Log.w(TAG, "Not reclaiming outside projects/: " + video);
+            return;
+        }
+        if (video.exists()) {
+            String key = CacheKeys.forVideo(video);
+            for (String kind : DERIVED_CACHES) {
+                File[] entries = new File(cacheDir, kind).listFiles();
+                if (entries == null) continue;
+                for (File entry : entries) {
+                    if (entry.getName().startsWith(key)) delete(entry, inventory);
+                }
+            }
+        }
+        delete(new File(video.getPath() + ".journal"), inventory);
+        delete(new File(video.getPath() + ".bak"), inventory);
+        delete(EditHistory.historyDir(video), inventory);
+        delete(video, inventory);
+    }
+
+    private static List<String> readLines(File file) {
+        List<String> lines = new ArrayList<>();
+        if (!file.exists()) return lines;
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) lines.add(line);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Reclaim journal read failed", e);
+        }
+        return lines;
+    }
+
+    // Write-then-rename so a crash leaves either the old journal or the new one
+    private static void rewriteQueue(File queue, List<String> lines) throws IOException {
+        if (lines.isEmpty()) {
+            queue.delete();
+            return;
+        }
+        File tmp = new File(queue.getPath() + ".tmp");
+        StringBuilder text = new StringBuilder();
+        for (String line : lines) text.append(line).append('\n');
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            out.write(text.toString().getBytes(StandardCharsets.UTF_8));
+            out.getFD().sync();
+        }
+        if (!tmp.renameTo(queue)) throw new IOException("Couldn't replace " + queue);
+    }
+
+    // ---- Movies/projects ----
+
+    private static void sweepProjects(File projectsDir, String userId, Set<String> known, Inventory inventory)
+            throws InterruptedException {
+        // An interrupted runRemuxJob swap leaves the original as .bak with nothing at videoPath
+        for (String path : known) {
+            File video = new File(path);
+            File backup = new File(path + ".bak");
+            if (!video.exists() && backup.exists() && backup.renameTo(video)) {
+                Log.w(TAG, "Restored interrupted swap: " + video.getName());
+            }
+        }
+
+        File[] files = projectsDir.listFiles();
+        if (files == null) return;
+        long now = System.currentTimeMillis();
+        int processed = 0;
+        for (File file : files) {
+            if (++processed % BATCH_SIZE == 0) Thread.sleep(BATCH_PAUSE_MS);
+            String name = file.getName();
+            // Other accounts on this device own their files - never touch them
+            if (!file.isFile() || !name.startsWith(userId + "_")) continue;
+            if (now - file.lastModified() < GRACE_MS) {
+                inventory.projectBytes += file.length();
+                continue;
+            }
+            String owner = ownerVideo(file);
+            if (owner != null && known.contains(owner)) {
+                inventory.projectBytes += file.length();
+            } else {
+                delete(file, inventory);
+            }
+        }
+
+        // ↩️ Undo history belongs to a live project video or to nobody
+        Set<String> liveHistories = new HashSet<>();
+        for (String path : known) liveHistories.add(EditHistory.historyDir(new File(path)).getName());
+        File[] histories = new File(projectsDir, "history").listFiles();
+        if (histories == null) return;
+        for (File history : histories) {
+            if (!history.getName().startsWith(userId + "_")) continue;
+            if (liveHistories.contains(history.getName()) || now - history.lastModified() < GRACE_MS) {
+                inventory.projectBytes += sizeOf(history);
+            } else {
+                delete(history, inventory);
+            }
+        }
+    }
+
+    // The project video a file in projects/ belongs to, or null for leftovers (_trimmed_, .bak)
+    private static String ownerVideo(File file) {
+        String path = file.getAbsolutePath();
+        if (path.endsWith(".journal")) return path.substring(0, path.lastIndexOf('.'));  // rolled forward on load
+        if (path.endsWith(".bak") || file.getName().contains("_trimmed_")) return null;
+        return path;
+    }
+
+    // ---- Caches ----
+
+    private static void sweepCaches(File cacheDir, Set<String> known, long budget, Inventory inventory)
+            throws InterruptedException {
+        // Derived caches are keyed by name+size+mtime - anything not matching a live video is stale
+        Set<String> liveKeys = new HashSet<>();
+        for (String path : known) {
+            File video = new File(path);
+            if (video.exists()) liveKeys.add(CacheKeys.forVideo(video));
+        }
+        long now = System.currentTimeMillis();
+        int processed = 0;
+        for (String kind : DERIVED_CACHES) {
+            File[] entries = new File(cacheDir, kind).listFiles();
+            if (entries == null) continue;
+            for (File entry : entries) {
+                if (++processed % BATCH_SIZE == 0) Thread.sleep(BATCH_PAUSE_MS);
+                if (now - entry.lastModified() < GRACE_MS || matchesKey(entry.getName(), liveKeys)) continue;
+                delete(entry, inventory);
+            }
+        }
+
+        // Export leftovers: resumable fragments live a week, everything else was only ever temporary
+        File[] temps = cacheDir.listFiles();
+        if (temps != null) {
+            for (File file : temps) {
+                String name = file.getName();
+                long age = now - file.lastModified();
+                boolean resumable = name.startsWith("export_");
+                boolean temporary = name.startsWith("chunk_") || name.startsWith("stretch_");
+                if ((resumable && age > RESUME_WINDOW_MS) || (temporary && age > GRACE_MS)) {
+                    delete(file, inventory);
+                }
+            }
+        }
+
+        enforceBudget(cacheDir, budget, inventory);
+    }
+
+    private static boolean matchesKey(String name, Set<String> liveKeys) {
+        for (String key : liveKeys) {
+            if (name.startsWith(key)) return true;
+        }
+        return false;
+    }
+
+    // LRU eviction over the regenerable caches (loaders touch entries on every hit)
+    private static void enforceBudget(File cacheDir, long budget, Inventory inventory) {
+        List<File> entries = new ArrayList<>();
+        long total = 0;
+        for (String kind : DERIVED_CACHES) {
+            File[] files = new File(cacheDir, kind).listFiles();
+            if (files == null) continue;
+            for (File file : files) {
+                entries.add(file);
+                total += sizeOf(file);
+            }
+        }
+        Collections.sort(entries, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File entry : entries) {
+            if (total <= budget) break;
+            long size = sizeOf(entry);
+            delete(entry, inventory);
+            total -= size;
+        }
+        inventory.cacheBytes = total;
+    }
+
+    private static long sizeOf(File file) {
+        if (!file.isDirectory()) return file.length();
+        long size = 0;
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) size += sizeOf(child);
+        }
+        return size;
+    }
+
+    private static void delete(File file, Inventory inventory) {
+        if (file.isDirectory()) {
+            File[] children = file.listFiles();
+            if (children != null) {
+                for (File child : children) delete(child, inventory);
+            }
+            file.delete();
+            return;
+        }
+        long size = file.length();
+        if (file.delete()) {
+            inventory.filesDeleted++;
+            inventory.reclaimedBytes += size;
+            Log.d(TAG, "🗑️ " + file.getName());
+        }
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+    }
+}
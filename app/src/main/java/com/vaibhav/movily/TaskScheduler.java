@@ -0,0 +1,247 @@
+package com.vaibhav.movily;
+
+import android.os.Process;
+import android.util.Log;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// 🚦 App-wide scheduler: three pools so background imports/exports can never starve the
+// editor's preview work. Each pool drains a priority queue (FIFO within a priority) and keeps
+// its own metrics. Tasks carry a CancellationToken, usually bound to an Activity's lifecycle.
+public class TaskScheduler {
+
+    private static final String TAG = "TaskScheduler";
+
+    public enum Pool {
+        LATENCY(2, Process.THREAD_PRIORITY_DEFAULT),                 // visible thumbnails, probes
+        CPU(Math.max(1, Runtime.getRuntime().availableProcessors() - 1),
+                Process.THREAD_PRIORITY_BACKGROUND),                // analysis, hashing
+        IO(2, Process.THREAD_PRIORITY_BACKGROUND);                   // copy, remux, transcode
+
+        final int threads;
+        final int threadPriority;
+
+        Pool(int threads, int threadPriority) {
+            this.threads = threads;
+            this.threadPriority = threadPriority;
+        }
+    }
+
+    public enum Priority { HIGH, NORMAL, LOW }
+
+    public interface Task {
+        void run(CancellationToken token) throws Exception;
+    }
+
+    // Cancelled tasks are skipped if still queued and interrupted if running
+    public static class CancellationToken {
+        private volatile boolean cancelled = false;
+        private final List<Future<?>> futures = new ArrayList<>();
+        private final List<Runnable> onCancel = new ArrayList<>();
+
+        public static CancellationToken bind(LifecycleOwner owner) {
+            CancellationToken token = new CancellationToken();
+            owner.getLifecycle().addObserver((LifecycleEventObserver) (source, event) -> {
+                if (event == Lifecycle.Event.ON_DESTROY) token.cancel();
+            });
+            return token;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        public void cancel() {
+            List<Future<?>> running;
+            List<Runnable> actions;
+            synchronized (this) {
+                if (cancelled) return;
+                cancelled = true;
+                running = new ArrayList<>(futures);
+                futures.clear();
+                actions = new ArrayList<>(onCancel);
+                onCancel.clear();
+            }
+            for (Future<?> future : running) future.cancel(true);
+            for (Runnable action : actions) action.run();
+        }
+
+        // Runs once the token is cancelled (right away if it already is) - lets work parked
+        // outside the scheduler, e.g. DeviceConditions' deferred list, drop its references
+        public void whenCancelled(Runnable action) {
+            synchronized (this) {
+                if (!cancelled) {
+                    onCancel.add(action);
+                    return;
+                }
+            }
+            action.run();
+        }
+
+        synchronized void track(Future<?> future) {
+            if (cancelled) {
+                future.cancel(true);
+            } else {
+                futures.add(future);
+            }
+        }
+
+        synchronized void untrack(Future<?> future) {
+            futures.remove(future);
+        }
+    }
+
+    // Not tied to any lifecycle - for in-place edits that must run to completion
+    public static final CancellationToken UNCANCELLABLE = new CancellationToken() {
+        @Override
+        public void cancel() {}
+
+        @Override
+        public void whenCancelled(Runnable action) {}
+    };
+
+    public static class Metrics {
+        final AtomicLong submitted = new AtomicLong(), completed = new AtomicLong();
+        final AtomicLong failed = new AtomicLong(), cancelled = new AtomicLong();
+        final AtomicLong waitMs = new AtomicLong(), runMs = new AtomicLong();
+        final AtomicInteger maxQueued = new AtomicInteger();
+
+        @Override
+        public String toString() {
+            long finished = Math.max(1, completed.get() + failed.get());
+            return submitted + " submitted, " + completed + " ok, " + failed + " failed, " + cancelled
+                    + " cancelled, avg wait " + waitMs.get() / finished + "ms, avg run " + runMs.get() / finished
+                    + "ms, max queued " + maxQueued;
+        }
+    }
+
+    private static final ThreadPoolExecutor[] executors = new ThreadPoolExecutor[Pool.values().length];
+    private static final Metrics[] metrics = new Metrics[Pool.values().length];
+    private static final AtomicLong sequence = new AtomicLong();
+
+    static {
+        for (Pool pool : Pool.values()) {
+            AtomicInteger threadCount = new AtomicInteger();
+            executors[pool.ordinal()] = new ThreadPoolExecutor(pool.threads, pool.threads,
+                    30, TimeUnit.SECONDS, new PriorityBlockingQueue<>(), runnable -> {
+                Thread thread = new Thread(() -> {
+                    Process.setThreadPriority(pool.threadPriority);
+                    runnable.run();
+                }, "Sched-" + pool + "-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            executors[pool.ordinal()].allowCoreThreadTimeOut(true);
+            metrics[pool.ordinal()] = new Metrics();
+        }
+    }
+
+    private TaskScheduler() {}
+
+    public static Future<?> submit(Pool pool, Priority priority, CancellationToken token, Task task) {
+        Metrics poolMetrics = metrics[pool.ordinal()];
+        ScheduledTask scheduled = new ScheduledTask(priority, token, task, poolMetrics);
+        token.track(scheduled);
+        poolMetrics.submitted.incrementAndGet();
+        ThreadPoolExecutor executor = executors[pool.ordinal()];
+        executor.execute(scheduled);
+        int queued = executor.getQueue().size();
+        poolMetrics.maxQueued.accumulateAndGet(queued, Math::max);
+        return scheduled;
+    }
+
+    // 🌡️ CPU/IO pools shrink when the device is hot, on low battery or on the LITE profile
+    // (LATENCY never does)
+    static void adaptToDevice() {
+        for (Pool pool : new Pool[]{Pool.CPU, Pool.IO}) {
+            int size = DeviceConditions.parallelism(PerformanceProfile.maxWorkers(pool.threads));
+            ThreadPoolExecutor executor = executors[pool.ordinal()];
+            if (size == executor.getCorePoolSize()) continue;
+            if (size > executor.getMaximumPoolSize()) {
+                executor.setMaximumPoolSize(size);
+                executor.setCorePoolSize(size);
+            } else {
+                executor.setCorePoolSize(size);
+                executor.setMaximumPoolSize(size);
+            }
+            Log.d(TAG, "🌡️ " + pool + " pool → " + size + " threads");
+        }
+    }
+
+    // Adapter for APIs that take a plain Executor (e.g. SilenceDetector.start)
+    public static Executor executor(Pool pool, Priority priority, CancellationToken token) {
+        return runnable -> submit(pool, priority, token, t -> runnable.run());
+    }
+
+    public static String stats() {
+        StringBuilder out = new StringBuilder();
+        for (Pool pool : Pool.values()) {
+            out.append(pool).append(": ").append(metrics[pool.ordinal()]).append('\n');
+        }
+        return out.toString();
+    }
+
+    public static void logStats() {
+        Log.d(TAG, "🚦 Scheduler\n" + stats());
+    }
+
+    private static final class ScheduledTask extends FutureTask<Void> implements Comparable<ScheduledTask> {
+        private final Priority priority;
+        private final long seq = sequence.getAndIncrement();
+        private final long enqueuedMs = System.currentTimeMillis();
+        private final CancellationToken token;
+        private final Metrics poolMetrics;
+
+        ScheduledTask(Priority priority, CancellationToken token, Task task, Metrics poolMetrics) {
+            super(() -> {
+                task.run(token);
+                return null;
+            });
+            this.priority = priority;
+            this.token = token;
+            this.poolMetrics = poolMetrics;
+        }
+
+        @Override
+        public void run() {
+            if (token.isCancelled()) cancel(false);
+            long startedMs = System.currentTimeMillis();
+            if (!isCancelled()) poolMetrics.waitMs.addAndGet(startedMs - enqueuedMs);
+            super.run();
+            if (!isCancelled()) poolMetrics.runMs.addAndGet(System.currentTimeMillis() - startedMs);
+        }
+
+        @Override
+        protected void done() {
+            token.untrack(this);
+            if (isCancelled()) {
+                poolMetrics.cancelled.incrementAndGet();
+                return;
+            }
+            try {
+                get();
+                poolMetrics.completed.incrementAndGet();
+            } catch (Exception e) {
+                poolMetrics.failed.incrementAndGet();
+                Log.e(TAG, "Task failed", e.getCause() != null ? e.getCause() : e);
+            }
+        }
+
+        @Override
+        public int compareTo(ScheduledTask other) {
+            int byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(seq, other.seq);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.vaibhav.movily;
+
+// ⚡ Streaming WSOLA time-stretch for interleaved 16-bit PCM: changes tempo, keeps pitch.
+// Each output hop cross-fades from the natural continuation of the previous segment into the
+// best-correlated input segment near the ideal analysis position (speed × output time).
+public class TimeStretcher {
+
+    private static final int HOP_MS = 20;
+    private static final int SEEK_MS = 10;
+    private static final int CORRELATION_STRIDE = 4;
+
+    public interface Output {
+        void write(short[] samples, int count);
+    }
+
+    private final int channels;
+    private final float speed;
+    private final int hop;    // frames per output block
+    private final int seek;   // ± search range in frames
+    private final Output output;
+    private final short[] block;
+
+    private short[] input = new short[0];
+    private int inputFrames = 0;
+    private long inputOffset = 0;     // absolute frame index of input[0]
+    private double analysisPos = 0;   // ideal absolute frame of the next segment
+    private long previousPos = -1;    // absolute frame of the previous segment
+
+    public TimeStretcher(int sampleRate, int channels, float speed, Output output) {
+        this.channels = Math.max(1, channels);
+        this.speed = speed;
+        this.hop = Math.max(16, sampleRate * HOP_MS / 1000);
+        this.seek = Math.max(4, sampleRate * SEEK_MS / 1000);
+        this.output = output;
+        this.block = new short[hop * this.channels];
+    }
+
+    public void process(short[] samples, int count) {
+        append(samples, count);
+        while (produceBlock()) {
+            // keep going while enough input is buffered
+        }
+        compact();
+    }
+
+    private void append(short[] samples, int count) {
+        int needed = (inputFrames * channels) + count;
+        if (input.length < needed) {
+            short[] grown = new short[Math.max(needed, input.length * 2)];
+            System.arraycopy(input, 0, grown, 0, inputFrames * channels);
+            input = grown;
+        }
+        System.arraycopy(samples, 0, input, inputFrames * channels, count);
+        inputFrames += count / channels;
+    }
+
+    private boolean produceBlock() {
+        long ideal = (long) analysisPos;
+        long end = inputOffset + inputFrames;
+
+        if (previousPos < 0) {
+            if (ideal + hop > end) return false;
+            copyFrames(ideal, 0, hop);
+            previousPos = ideal;
+        } else {
+            long natural = previousPos + hop;
+            long from = Math.max(inputOffset, ideal - seek);
+            long to = ideal + seek;
+            if (to + hop > end || natural + hop > end) return false;
+
+            long best = bestMatch(natural, from, to);
+            crossFade(natural, best);
+            previousPos = best;
+        }
+        output.write(block, block.length);
+        analysisPos += hop * (double) speed;
+        return true;
+    }
+
+    // Candidate start in [from, to] whose first hop frames best match the natural continuation
+    private long bestMatch(long natural, long from, long to) {
+        int naturalIndex = (int) (natural - inputOffset) * channels;
+        long best = from;
+        long bestScore = Long.MIN_VALUE;
+        for (long candidate = from; candidate <= to; candidate += 2) {
+            int candidateIndex = (int) (candidate - inputOffset) * channels;
+            long score = 0;
+            for (int f = 0; f < hop; f += CORRELATION_STRIDE) {
+                int o = f * channels;
+                score += (long) input[naturalIndex + o] * input[candidateIndex + o];
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                best = candidate;
+            }
+        }
+        return best;
+    }
+
+    private void crossFade(long natural, long candidate) {
+        int naturalIndex = (int) (natural - inputOffset) * channels;
+        int candidateIndex = (int) (candidate - inputOffset) * channels;
+        for (int f = 0; f < hop; f++) {
+            int fadeIn = f, fadeOut = hop - f;
+            for (int c = 0; c < channels; c++) {
+                int o = f * channels + c;
+                block[o] = (short) ((input[naturalIndex + o] * fadeOut + input[candidateIndex + o] * fadeIn) / hop);
+            }
+        }
+    }
+
+    private void copyFrames(long fromFrame, int blockFrame, int frames) {
+        System.arraycopy(input, (int) (fromFrame - inputOffset) * channels,
+                block, blockFrame * channels, frames * channels);
+    }
+
+    // Drop frames nothing will look at again
+    private void compact() {
+        long keepFrom = Math.min(previousPos < 0 ? (long) analysisPos : previousPos, (long) analysisPos - seek);
+        int drop = (int) Math.max(0, Math.min(keepFrom - inputOffset, inputFrames));
+        if (drop == 0) return;
+        System.arraycopy(input, drop * channels, input, 0, (inputFrames - drop) * channels);
+        inputFrames -= drop;
+        inputOffset += drop;
+    }
+}
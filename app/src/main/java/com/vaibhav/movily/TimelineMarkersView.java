@@ -0,0 +1,52 @@
+package com.vaibhav.movily;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.util.AttributeSet;
+import android.view.View;
+
+// 📍 Tick marks drawn behind a SeekBar (suggested cut points / snap targets)
+public class TimelineMarkersView extends View {
+
+    private final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private int[] markersMs = new int[0];
+    private int durationMs = 0;
+    private int insetStart = 0, insetEnd = 0;
+
+    public TimelineMarkersView(Context context) {
+        this(context, null);
+    }
+
+    public TimelineMarkersView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        paint.setColor(Color.parseColor("#FFB300"));
+        paint.setStrokeWidth(3f);
+    }
+
+    public void setMarkers(int[] markersMs, int durationMs) {
+        this.markersMs = markersMs != null ? markersMs : new int[0];
+        this.durationMs = durationMs;
+        invalidate();
+    }
+
+    // Match the SeekBar's track padding so ticks line up with the thumb
+    public void setInsets(int start, int end) {
+        insetStart = start;
+        insetEnd = end;
+        invalidate();
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        if (durationMs <= 0 || markersMs.length == 0) return;
+        float trackWidth = getWidth() - insetStart - insetEnd;
+        float top = getHeight() * 0.2f, bottom = getHeight() * 0.8f;
+        for (int marker : markersMs) {
+            float x = insetStart + trackWidth * marker / durationMs;
+            canvas.drawLine(x, top, x, bottom, paint);
+        }
+    }
+}
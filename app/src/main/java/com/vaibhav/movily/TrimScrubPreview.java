@@ -0,0 +1,216 @@
+package com.vaibhav.movily;
+
+import android.graphics.SurfaceTexture;
+import android.media.MediaCodec;
+import android.media.MediaExtractor;
+import android.util.Log;
+import android.view.Surface;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// 🔥 Second, lightweight decoder for the trim handles - renders straight into a small Surface
+// so dragging never touches the main MediaPlayer. Keyframe-only while dragging, exact on release.
+public class TrimScrubPreview {
+
+    private static final String TAG = "TrimScrubPreview";
+    private static final long TIMEOUT_US = 10000;
+    private static final int MAX_DRAIN_ATTEMPTS = 100;
+    private static final int MAX_EXACT_FRAMES = 300;     // long GOPs / broken timestamps
+    private static final long MAX_EXACT_MS = 500;
+    // Shared by every instance: a released preview's teardown is queued ahead of the next one's
+    // decoder, so a surface is never handed on while the old codec still holds it
+    private static final ExecutorService worker = Executors.newSingleThreadExecutor();
+
+    private final VideoTrackInfo track;
+
+    // Latest request wins - drags fire far faster than a decoder can keep up
+    private final Object lock = new Object();
+    private long pendingTargetUs = -1;
+    private boolean pendingExact = false;
+    private boolean drainScheduled = false;
+
+    private Surface surface;
+    private MediaExtractor extractor;
+    private MediaCodec decoder;
+    private final MediaCodec.BufferInfo bufferInfo = new MediaCodec.BufferInfo();
+    private volatile boolean released = false;
+    private volatile boolean detaching = false;  // makes a running decode bail out
+
+    public TrimScrubPreview(VideoTrackInfo track) {
+        this.track = track;
+    }
+
+    public void setSurface(Surface newSurface) {
+        worker.execute(() -> {
+            releaseDecoder();
+            surface = newSurface;
+        });
+    }
+
+    // Takes ownership of the surface and its texture: both are released on the worker once the
+    // decoder has let go of them - the main thread never waits on codec teardown
+    public void releaseSurface(Surface target, SurfaceTexture texture) {
+        detaching = true;
+        worker.execute(() -> {
+            if (surface == target) {
+                releaseDecoder();
+                surface = null;
+            }
+            target.release();
+            texture.release();
+            detaching = false;
+        });
+    }
+
+    public void showKeyframe(int positionMs) {
+        request(positionMs * 1000L, false);
+    }
+
+    public void showExactFrame(int positionMs) {
+        request(positionMs * 1000L, true);
+    }
+
+    private void request(long targetUs, boolean exact) {
+        synchronized (lock) {
+            pendingTargetUs = targetUs;
+            pendingExact = exact;
+            if (drainScheduled || released) return;
+            drainScheduled = true;
+        }
+        worker.execute(this::drainRequests);
+    }
+
+    private void drainRequests() {
+        while (true) {
+            long targetUs;
+            boolean exact;
+            synchronized (lock) {
+                if (pendingTargetUs < 0 || released) {
+                    drainScheduled = false;
+                    return;
+                }
+                targetUs = pendingTargetUs;
+                exact = pendingExact;
+                pendingTargetUs = -1;
+            }
+            try {
+                if (surface == null || !surface.isValid() || detaching) continue;
+                ensureDecoder();
+                if (exact) {
+                    renderExact(targetUs);
+                } else {
+                    renderKeyframe(targetUs);
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Scrub preview failed", e);
+                releaseDecoder();
+            }
+        }
+    }
+
+    private void ensureDecoder() throws Exception {
+        if (decoder != null) return;
+        extractor = track.openExtractor();
+        decoder = track.createDecoder();
+        decoder.configure(track.newDecoderFormat(), surface, null, 0);
+        decoder.start();
+    }
+
+    // Single sync sample + EOS → decoder emits that frame immediately
+    private void renderKeyframe(long targetUs) {
+        decoder.flush();
+        extractor.seekTo(targetUs, MediaExtractor.SEEK_TO_CLOSEST_SYNC);
+        boolean queued = false, eosQueued = false;
+        for (int attempt = 0; attempt < MAX_DRAIN_ATTEMPTS && !detaching; attempt++) {
+            if (!eosQueued) {
+                int inIndex = decoder.dequeueInputBuffer(TIMEOUT_US);
+                if (inIndex >= 0) {
+                    int size = queued ? -1 : extractor.readSampleData(decoder.getInputBuffer(inIndex), 0);
+                    if (size < 0) {
+                        decoder.queueInputBuffer(inIndex, 0, 0, 0, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+                        eosQueued = true;
+                    } else {
+                        decoder.queueInputBuffer(inIndex, 0, size, extractor.getSampleTime(), 0);
+                        queued = true;
+                    }
+                }
+            }
+            int outIndex = decoder.dequeueOutputBuffer(bufferInfo, TIMEOUT_US);
+            if (outIndex >= 0) {
+                boolean eos = (bufferInfo.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0;
+                decoder.releaseOutputBuffer(outIndex, bufferInfo.size > 0);
+                if (bufferInfo.size > 0 || eos) return;
+            }
+        }
+    }
+
+    // Decode forward from the previous sync sample, render only the frame at the handle.
+    // Bounded in frames and time - past either cap the keyframe is shown instead.
+    private void renderExact(long targetUs) {
+        decoder.flush();
+        extractor.seekTo(targetUs, MediaExtractor.SEEK_TO_PREVIOUS_SYNC);
+        boolean inputDone = false;
+        int decoded = 0;
+        long deadline = System.currentTimeMillis() + MAX_EXACT_MS;
+        while (true) {
+            if (detaching || released) return;
+            if (decoded > MAX_EXACT_FRAMES || System.currentTimeMillis() > deadline) {
+                Log.w(TAG, "Exact frame too far from its keyframe - showing the keyframe");
+                renderKeyframe(targetUs);
+                return;
+            }
+            if (!inputDone) {
+                int inIndex = decoder.dequeueInputBuffer(TIMEOUT_US);
+                if (inIndex >= 0) {
+                    ByteBuffer input = decoder.getInputBuffer(inIndex);
+                    int size = extractor.readSampleData(input, 0);
+                    if (size < 0) {
+                        decoder.queueInputBuffer(inIndex, 0, 0, 0, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+                        inputDone = true;
+                    } else {
+                        decoder.queueInputBuffer(inIndex, 0, size, extractor.getSampleTime(), 0);
+                        extractor.advance();
+                    }
+                }
+            }
+            int outIndex = decoder.dequeueOutputBuffer(bufferInfo, TIMEOUT_US);
+            if (outIndex < 0) continue;
+
+            decoded++;
+            boolean eos = (bufferInfo.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0;
+            boolean reached = bufferInfo.presentationTimeUs >= targetUs;
+            decoder.releaseOutputBuffer(outIndex, bufferInfo.size > 0 && (reached || eos));
+            if (reached || eos) return;
+
+            // A newer drag position arrived - abandon this decode
+            synchronized (lock) {
+                if (pendingTargetUs >= 0) return;
+            }
+        }
+    }
+
+    private void releaseDecoder() {
+        try {
+            if (decoder != null) {
+                decoder.stop();
+                decoder.release();
+            }
+            if (extractor != null) extractor.release();
+        } catch (Exception e) {
+            Log.e(TAG, "Release error", e);
+        }
+        decoder = null;
+        extractor = null;
+    }
+
+    // Returns at once - decodes bail out on `released` and the codec is torn down on the worker,
+    // ahead of anything queued later (releaseSurface, the next preview's decoder)
+    public void release() {
+        released = true;
+        worker.execute(() -> {
+            releaseDecoder();
+            surface = null;
+        });
+    }
+}
@@ -1,51 +1,74 @@
 package com.vaibhav.movily;
 
 import android.Manifest;
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.Intent;
 import android.content.pm.PackageManager;
+import android.graphics.Bitmap;
 import android.graphics.SurfaceTexture;
-import android.media.MediaCodec;
-import android.media.MediaExtractor;
-import android.media.MediaFormat;
-import android.media.MediaMuxer;
 import android.media.MediaPlayer;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.Environment;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.ParcelFileDescriptor;
+import android.os.SystemClock;
 import android.util.Log;
 import android.view.Surface;
 import android.view.TextureView;
 import android.view.View;
 import android.widget.Button;
 import android.widget.ImageButton;
+import android.widget.ImageView;
 import android.widget.LinearLayout;
 import android.widget.ProgressBar;
 import android.widget.SeekBar;
 import android.widget.TextView;
 import android.widget.Toast;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.WriteBatch;
+import com.vaibhav.movily.TaskScheduler.Pool;
+import com.vaibhav.movily.TaskScheduler.Priority;
 import java.io.File;
 import java.io.IOException;
-import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class VideoEditorActivity extends AppCompatActivity {
 
     private static final String TAG = "VideoEditor";
     private static final int STORAGE_PERMISSION_CODE = 100;
     private static final int VIDEO_LOAD_TIMEOUT = 15000;
+    private static final int FILMSTRIP_TILES = 12;
+    private static final int MIN_SNAP_DISTANCE_MS = 300;
+    private static final float[] SPEED_OPTIONS = {0.25f, 0.5f, 2f, 4f, 8f};
+    private static final int[] SPLIT_OPTIONS = {2, 3, 4, 6, 12};
 
     // 🔥 ALL VIEWS - NOW TextureView!
     private TextureView videoTextureView;
-    private ImageButton btnPlayPause, btnBack;
+    private ImageButton btnPlayPause, btnBack, btnStepBack, btnStepForward, btnRotate;
+    private ImageView ivFrameOverlay, ivFilmstrip;
     private ProgressBar progressBar;
     private SeekBar seekBar, seekBarTrimStart, seekBarTrimEnd;
-    private TextView tvTime, tvTrimStart, tvTrimEnd;
-    private Button btnTrim, btnToggleTrim, btnCancelTrim;
+    private TextView tvTime, tvTrimStart, tvTrimEnd, tvTrimPreviewLabel;
+    private TextureView trimPreviewView;
+    private WaveformView waveformView;
+    private TimelineMarkersView trimStartMarkers, trimEndMarkers;
+    private Button btnTrim, btnToggleTrim, btnCancelTrim, btnRemoveSilence, btnSpeed, btnSplit, btnCompress;
+    private Button btnUndo, btnRedo;
     private LinearLayout trimControlsContainer;
 
     // 🔥 MediaPlayer instead of VideoView
@@ -53,7 +76,9 @@ public class VideoEditorActivity extends AppCompatActivity {
 
     // State
     private String projectId, videoPath;
+    private Uri sourceUri;  // 🔗 linked original - set until the first trim makes a private copy
     private boolean isPrepared = false;
+    private long prepareStartedMs = 0;
     private boolean isVideoReady = false;
     private int videoDuration = 0;
     private int currentPosition = 0;
@@ -62,16 +87,46 @@ public class VideoEditorActivity extends AppCompatActivity {
     private final Handler handler = new Handler(Looper.getMainLooper());
     private Runnable progressRunnable;
     private boolean isPlaying = false;
+    private boolean holdsPlaybackIo = false;  // 🚰 registered with IoGovernor as a foreground player
     private boolean isTrimming = false;
     private boolean isReloadingVideo = false;
     private Runnable loadTimeoutRunnable;
     private Runnable stateMonitorRunnable;
     private Surface videoSurface;
 
+    // 🎞️ Frame stepping (decoder + ring of recent frames)
+    private VideoTrackInfo videoTrack;
+    private FrameStepper frameStepper;
+    private AtomicBoolean toolsCancelled = new AtomicBoolean(false);
+    private TaskScheduler.CancellationToken toolsToken = new TaskScheduler.CancellationToken();  // per load
+    private int[] cutPoints = new int[0];
+
+    // 🚦 Reads (probes, analysis) are cancelled with the activity
+    private TaskScheduler.CancellationToken lifetime;
+
+    // 🔁 The running write (trim, remux, split, rotate, undo) - survives rotation, see RetainedJob.
+    // A load requested while it runs waits for it: the job still owns the file.
+    private RetainedJob<VideoEditorActivity> editJob;
+    private String deferredLoad;
+
+    // 🔇 Audio analysis (silence detection) runs off the UI thread
+    private Executor analysisExecutor;
+    private SilenceDetector silenceDetector;
+
+    // 🔍 Trim handle preview (own decoder + surface, never touches mediaPlayer)
+    private TrimScrubPreview trimScrubPreview;
+    private Surface trimPreviewSurface;
+    private TrimScrubPreview scrubSurfaceOwner;  // last preview handed the surface - may be released
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_video_editor);
+        lifetime = TaskScheduler.CancellationToken.bind(this);
+        DeviceConditions.init(this);
+        CacheBudgetCoordinator.init(this);
+        PerformanceProfile.init(this);
+        analysisExecutor = TaskScheduler.executor(Pool.CPU, Priority.NORMAL, lifetime);
 
         projectId = getIntent().getStringExtra("projectId");
         if (projectId == null) {
@@ -83,6 +138,7 @@ public class VideoEditorActivity extends AppCompatActivity {
         initViews();
         checkStoragePermission();
         loadProjectData();
+        editJob = RetainedJob.attach(projectId, this);
     }
 
     private void initViews() {
@@ -93,6 +149,14 @@ public class VideoEditorActivity extends AppCompatActivity {
         progressBar = findViewById(R.id.progressBar);
         seekBar = findViewById(R.id.seekBar);
         tvTime = findViewById(R.id.tvTime);
+        btnStepBack = findViewById(R.id.btnStepBack);
+        btnStepForward = findViewById(R.id.btnStepForward);
+        btnRotate = findViewById(R.id.btnRotate);
+        ivFrameOverlay = findViewById(R.id.ivFrameOverlay);
+        ivFilmstrip = findViewById(R.id.ivFilmstrip);
+        waveformView = findViewById(R.id.waveformView);
+        trimStartMarkers = findViewById(R.id.trimStartMarkers);
+        trimEndMarkers = findViewById(R.id.trimEndMarkers);
 
         trimControlsContainer = findViewById(R.id.trimControlsContainer);
         btnToggleTrim = findViewById(R.id.btnToggleTrim);
@@ -102,6 +166,14 @@ public class VideoEditorActivity extends AppCompatActivity {
         seekBarTrimEnd = findViewById(R.id.seekBarTrimEnd);
         tvTrimEnd = findViewById(R.id.tvTrimEnd);
         btnTrim = findViewById(R.id.btnTrim);
+        btnRemoveSilence = findViewById(R.id.btnRemoveSilence);
+        btnSpeed = findViewById(R.id.btnSpeed);
+        btnSplit = findViewById(R.id.btnSplit);
+        btnCompress = findViewById(R.id.btnCompress);
+        btnUndo = findViewById(R.id.btnUndo);
+        btnRedo = findViewById(R.id.btnRedo);
+        trimPreviewView = findViewById(R.id.trimPreviewView);
+        tvTrimPreviewLabel = findViewById(R.id.tvTrimPreviewLabel);
 
         // 🔥 CRITICAL: Setup TextureView Surface
         if (videoTextureView != null) {
@@ -110,8 +182,9 @@ public class VideoEditorActivity extends AppCompatActivity {
                 public void onSurfaceTextureAvailable(SurfaceTexture surfaceTexture, int width, int height) {
                     Log.d(TAG, "🎥 Surface available: " + width + "x" + height);
                     videoSurface = new Surface(surfaceTexture);
-                    if (mediaPlayer != null && videoPath != null) {
+                    if (mediaPlayer != null && (videoPath != null || sourceUri != null)) {
                         mediaPlayer.setSurface(videoSurface);
+                        prepareStartedMs = SystemClock.elapsedRealtime();
                         mediaPlayer.prepareAsync();
                     }
                 }
@@ -134,6 +207,40 @@ public class VideoEditorActivity extends AppCompatActivity {
             });
         }
 
+        if (trimPreviewView != null) {
+            trimPreviewView.setSurfaceTextureListener(new TextureView.SurfaceTextureListener() {
+                @Override
+                public void onSurfaceTextureAvailable(SurfaceTexture surfaceTexture, int width, int height) {
+                    trimPreviewSurface = new Surface(surfaceTexture);
+                    if (trimScrubPreview != null) {
+                        trimScrubPreview.setSurface(trimPreviewSurface);
+                        scrubSurfaceOwner = trimScrubPreview;
+                        trimScrubPreview.showExactFrame(trimStart);
+                    }
+                }
+
+                @Override
+                public void onSurfaceTextureSizeChanged(SurfaceTexture surfaceTexture, int width, int height) {}
+
+                @Override
+                public boolean onSurfaceTextureDestroyed(SurfaceTexture surfaceTexture) {
+                    Surface surface = trimPreviewSurface;
+                    trimPreviewSurface = null;
+                    if (surface != null && scrubSurfaceOwner != null) {
+                        // 🔥 Decoder off it first - on the scrub worker, the UI thread doesn't wait
+                        scrubSurfaceOwner.releaseSurface(surface, surfaceTexture);
+                        scrubSurfaceOwner = null;
+                        return false;
+                    }
+                    if (surface != null) surface.release();
+                    return true;
+                }
+
+                @Override
+                public void onSurfaceTextureUpdated(SurfaceTexture surfaceTexture) {}
+            });
+        }
+
         // Initial states
         if (btnPlayPause != null) {
             btnPlayPause.setEnabled(false);
@@ -150,9 +257,18 @@ public class VideoEditorActivity extends AppCompatActivity {
         // Listeners
         if (btnPlayPause != null) btnPlayPause.setOnClickListener(v -> togglePlayPause());
         if (btnBack != null) btnBack.setOnClickListener(v -> finish());
+        if (btnStepBack != null) btnStepBack.setOnClickListener(v -> stepFrame(-1));
+        if (btnStepForward != null) btnStepForward.setOnClickListener(v -> stepFrame(1));
+        if (btnRotate != null) btnRotate.setOnClickListener(v -> rotateVideo());
         if (btnToggleTrim != null) btnToggleTrim.setOnClickListener(v -> toggleTrimControls());
         if (btnCancelTrim != null) btnCancelTrim.setOnClickListener(v -> hideTrimControls());
         if (btnTrim != null) btnTrim.setOnClickListener(v -> performRealTrim());
+        if (btnRemoveSilence != null) btnRemoveSilence.setOnClickListener(v -> detectSilence());
+        if (btnSpeed != null) btnSpeed.setOnClickListener(v -> chooseSpeed());
+        if (btnSplit != null) btnSplit.setOnClickListener(v -> chooseSplit());
+        if (btnCompress != null) btnCompress.setOnClickListener(v -> chooseCompressPreset());
+        if (btnUndo != null) btnUndo.setOnClickListener(v -> stepHistory(true));
+        if (btnRedo != null) btnRedo.setOnClickListener(v -> stepHistory(false));
 
         if (trimControlsContainer != null) {
             trimControlsContainer.setVisibility(View.GONE);
@@ -165,7 +281,9 @@ public class VideoEditorActivity extends AppCompatActivity {
     private void setupMediaPlayerListeners() {
         mediaPlayer = new MediaPlayer();
         mediaPlayer.setOnPreparedListener(mp -> {
-            Log.d(TAG, "🎥 MediaPlayer PREPARED");
+            // ⏱️ prepare latency - compare moov-at-end vs faststart imports
+            Log.d(TAG, "🎥 MediaPlayer PREPARED in " + (SystemClock.elapsedRealtime() - prepareStartedMs)
+                    + "ms (" + (videoPath != null ? new File(videoPath).length() / 1024 + " KB" : "linked") + ")");
             if (loadTimeoutRunnable != null) {
                 handler.removeCallbacks(loadTimeoutRunnable);
             }
@@ -215,6 +333,7 @@ public class VideoEditorActivity extends AppCompatActivity {
 
                         toast("✅ Video ready!");
                         startStateMonitoring();
+                        setupVideoTools();
                     });
 
                 } catch (Exception e) {
@@ -269,6 +388,7 @@ public class VideoEditorActivity extends AppCompatActivity {
             if (actualPlaying != isPlaying) {
                 Log.d(TAG, "🔄 STATE SYNC: flag=" + isPlaying + " → actual=" + actualPlaying);
                 isPlaying = actualPlaying;
+                setPlaybackIo(actualPlaying);
                 runOnUiThread(() -> {
                     if (btnPlayPause != null) {
                         btnPlayPause.setImageResource(isPlaying ?
@@ -281,6 +401,11 @@ public class VideoEditorActivity extends AppCompatActivity {
     }
 
     private void loadVideo(String filePath) {
+        if (editJob != null) {
+            deferredLoad = filePath;
+            return;
+        }
+        deferredLoad = null;
         if (isReloadingVideo) {
             Log.d(TAG, "⏳ Already loading video");
             return;
@@ -288,6 +413,7 @@ public class VideoEditorActivity extends AppCompatActivity {
 
         Log.d(TAG, "🎥 Loading video: " + filePath);
         isReloadingVideo = true;
+        updateHistoryButtons();
         resetVideoState();
 
         runOnUiThread(() -> {
@@ -296,8 +422,10 @@ public class VideoEditorActivity extends AppCompatActivity {
             showProgress();
         });
 
-        handler.post(() -> {
+        // 🩹 Finishing an interrupted tail trim patches and truncates the file - never on the UI thread
+        TaskScheduler.submit(Pool.IO, Priority.HIGH, lifetime, job -> {
             File videoFile = new File(filePath);
+            Mp4TailTrimmer.recover(videoFile);
             if (!videoFile.exists()) {
                 runOnUiThread(() -> {
                     showError("Video file not found: " + filePath);
@@ -306,47 +434,296 @@ public class VideoEditorActivity extends AppCompatActivity {
                 return;
             }
 
-            if (videoFile.length() < 1024) {
+            long length = videoFile.length();
+            if (length < 1024) {
                 runOnUiThread(() -> {
-                    showError("Invalid video file: " + videoFile.length() + " bytes");
+                    showError("Invalid video file: " + length + " bytes");
                     isReloadingVideo = false;
                 });
                 return;
             }
 
+            runOnUiThread(() -> prepareVideo(videoFile));
+        });
+    }
+
+    private void prepareVideo(File videoFile) {
+        if (isFinishing() || isDestroyed()) return;
+        try {
+            startLoadTimeout();
+
+            // 🔥 Reset and prepare MediaPlayer
+            if (mediaPlayer != null) {
+                mediaPlayer.reset();
+                // 🐢 Lite profile previews the 480p proxy once it exists - edits still use the original
+                String playbackPath = videoFile.getAbsolutePath();
+                if (PerformanceProfile.useProxies()) {
+                    playbackPath = PreviewProxy.playbackPath(getCacheDir(), playbackPath);
+                    PreviewProxy.ensure(this, videoFile.getAbsolutePath());
+                }
+                mediaPlayer.setDataSource(playbackPath);
+                if (videoSurface != null) {
+                    mediaPlayer.setSurface(videoSurface);
+                }
+                prepareStartedMs = SystemClock.elapsedRealtime();
+                mediaPlayer.prepareAsync();
+                Log.d(TAG, "🎥 MediaPlayer prepared async");
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "❌ MediaPlayer prepare error", e);
+            cancelLoadTimeout();
+            runOnUiThread(() -> {
+                showError("Unsupported video format");
+                isReloadingVideo = false;
+            });
+        }
+    }
+
+    // 🔗 Linked project: play straight from the original URI, nothing copied yet
+    private void loadLinkedVideo() {
+        if (isReloadingVideo) {
+            Log.d(TAG, "⏳ Already loading video");
+            return;
+        }
+
+        Log.d(TAG, "🔗 Loading linked video: " + sourceUri);
+        isReloadingVideo = true;
+        resetVideoState();
+
+        runOnUiThread(() -> {
+            if (btnPlayPause != null) btnPlayPause.setEnabled(false);
+            if (btnToggleTrim != null) btnToggleTrim.setEnabled(false);
+            showProgress();
+        });
+
+        handler.post(() -> {
             try {
                 startLoadTimeout();
-
-                // 🔥 Reset and prepare MediaPlayer
                 if (mediaPlayer != null) {
                     mediaPlayer.reset();
-                    mediaPlayer.setDataSource(videoFile.getAbsolutePath());
+                    mediaPlayer.setDataSource(this, sourceUri);
                     if (videoSurface != null) {
                         mediaPlayer.setSurface(videoSurface);
                     }
+                    prepareStartedMs = SystemClock.elapsedRealtime();
                     mediaPlayer.prepareAsync();
-                    Log.d(TAG, "🎥 MediaPlayer prepared async");
                 }
-            } catch (IOException e) {
-                Log.e(TAG, "❌ MediaPlayer prepare error", e);
+            } catch (IOException | SecurityException e) {
+                Log.e(TAG, "❌ Linked video unavailable", e);
                 cancelLoadTimeout();
                 runOnUiThread(() -> {
-                    showError("Unsupported video format");
+                    showError("Original video is no longer accessible");
                     isReloadingVideo = false;
                 });
             }
         });
     }
 
+    // Tools that decode or edit the file itself need the private copy
+    private boolean requirePrivateCopy() {
+        if (videoPath != null) return true;
+        toast("🔗 Trim once to make a private copy first");
+        return false;
+    }
+
     private void resetVideoState() {
         isPrepared = false;
         isVideoReady = false;
         isPlaying = false;
+        setPlaybackIo(false);
         videoDuration = 0;
         currentPosition = 0;
         trimStart = 0;
         trimEnd = 0;
         stopStateMonitoring();
+        releaseFrameStepper();
+    }
+
+    // 🎞️ DECODER TOOLS (frame stepping, trim preview, filmstrip) - one probe shared by all
+    private void setupVideoTools() {
+        releaseFrameStepper();
+        if (videoPath == null) {
+            Log.d(TAG, "🔗 Linked original - decoder tools start after the first trim");
+            return;
+        }
+        String path = videoPath;
+        AtomicBoolean cancelled = new AtomicBoolean(false);
+        toolsCancelled = cancelled;
+        TaskScheduler.CancellationToken tools = new TaskScheduler.CancellationToken();
+        toolsToken = tools;
+        TaskScheduler.submit(Pool.LATENCY, Priority.HIGH, lifetime, job -> {
+            try {
+                VideoTrackInfo track = VideoTrackInfo.probe(path);
+                runOnUiThread(() -> {
+                    if (!isVideoReady || !path.equals(videoPath)) return;
+                    videoTrack = track;
+                    frameStepper = new FrameStepper(track, PerformanceProfile.frameRingSize(),
+                            new FrameStepper.Listener() {
+                                @Override
+                                public void onFrame(Bitmap frame, long ptsUs) {
+                                    showSteppedFrame(frame, ptsUs);
+                                }
+
+                                @Override
+                                public void onError(String message) {
+                                    toast("❌ " + message);
+                                }
+                            });
+                    Log.d(TAG, "🎞️ Frame stepper ready: " + track.width + "x" + track.height);
+
+                    // Same probed track (format, csd, decoder name) feeds the trim preview decoder
+                    trimScrubPreview = new TrimScrubPreview(track);
+                    if (trimPreviewSurface != null) {
+                        trimScrubPreview.setSurface(trimPreviewSurface);
+                        scrubSurfaceOwner = trimScrubPreview;
+                    }
+                });
+
+                loadFilmstrip(track);
+                Runnable analyse = () -> TaskScheduler.submit(Pool.CPU, Priority.NORMAL, lifetime, analysis -> {
+                    loadCutPoints(track);
+                    loadWaveform(path, cancelled);
+                });
+                if (analysisCached(track)) {
+                    analyse.run();
+                } else if (!PerformanceProfile.autoAnalysis()) {
+                    Log.d(TAG, "📶 Lite profile - skipping scene cut/waveform analysis");
+                } else {
+                    // 🌙 Full decode waits for charger/cool - dropped on the next load or onDestroy
+                    DeviceConditions.runWhenFavourable(tools, analyse);
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Video tools setup failed", e);
+            }
+        });
+    }
+
+    // Cache hits are cheap whatever the battery/thermal state; only fresh analysis is deferrable
+    private boolean analysisCached(VideoTrackInfo track) {
+        File videoFile = new File(track.path);
+        return SceneCutDetector.cacheFileFor(getCacheDir(), videoFile).exists()
+                && WaveformPeaks.cacheFileFor(getCacheDir(), videoFile).exists();
+    }
+
+    // Runs on the probe thread - cached strips return immediately, misses decode once
+    private void loadFilmstrip(VideoTrackInfo track) {
+        try {
+            Bitmap sprite = FilmstripGenerator.load(track, getCacheDir(),
+                    FILMSTRIP_TILES, PerformanceProfile.filmstripTileHeight());
+            runOnUiThread(() -> {
+                if (ivFilmstrip != null && track.path.equals(videoPath)) {
+                    ivFilmstrip.setImageBitmap(sprite);
+                }
+            });
+        } catch (Exception e) {
+            Log.e(TAG, "Filmstrip failed", e);
+        }
+    }
+
+    // Sample-table scan (+ a few keyframe decodes), cached per video version
+    private void loadCutPoints(VideoTrackInfo track) {
+        try {
+            int[] cuts = SceneCutDetector.load(track, getCacheDir());
+            runOnUiThread(() -> {
+                if (!track.path.equals(videoPath)) return;
+                cutPoints = cuts;
+                showCutMarkers(trimStartMarkers, seekBarTrimStart);
+                showCutMarkers(trimEndMarkers, seekBarTrimEnd);
+            });
+        } catch (Exception e) {
+            Log.e(TAG, "Cut point detection failed", e);
+        }
+    }
+
+    private void showCutMarkers(TimelineMarkersView markers, SeekBar bar) {
+        if (markers == null || bar == null) return;
+        markers.setInsets(bar.getPaddingLeft(), bar.getPaddingRight());
+        markers.setMarkers(cutPoints, videoDuration);
+    }
+
+    // Nearest cut point within snapping distance, or the position unchanged
+    private int snapToCut(int positionMs) {
+        int threshold = Math.max(MIN_SNAP_DISTANCE_MS, videoDuration / 100);
+        int best = positionMs, bestDistance = threshold + 1;
+        for (int cut : cutPoints) {
+            int distance = Math.abs(cut - positionMs);
+            if (distance <= threshold && distance < bestDistance) {
+                best = cut;
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+
+    // Streams the audio once into the on-disk pyramid, then just maps it
+    private void loadWaveform(String path, AtomicBoolean cancelled) {
+        try {
+            WaveformPeaks peaks = WaveformPeaks.load(path, getCacheDir(), cancelled);
+            if (peaks == null || cancelled.get()) return;
+            runOnUiThread(() -> {
+                if (waveformView != null && path.equals(videoPath)) {
+                    waveformView.setPeaks(peaks);
+                }
+            });
+        } catch (Exception e) {
+            Log.e(TAG, "Waveform failed", e);
+        }
+    }
+
+    private void releaseFrameStepper() {
+        toolsCancelled.set(true);
+        toolsToken.cancel();
+        if (frameStepper != null) {
+            frameStepper.release();
+            frameStepper = null;
+        }
+        if (trimScrubPreview != null) {
+            trimScrubPreview.release();
+            trimScrubPreview = null;
+        }
+        videoTrack = null;
+        cutPoints = new int[0];
+        hideFrameOverlay();
+    }
+
+    private void stepFrame(int direction) {
+        if (isTrimming || isReloadingVideo || !isVideoReady || frameStepper == null) {
+            toast("⏳ Please wait...");
+            return;
+        }
+        if (isPlaying) pauseVideo();
+        frameStepper.step(currentPosition, direction);
+    }
+
+    private void showSteppedFrame(Bitmap frame, long ptsUs) {
+        if (!isVideoReady || isPlaying) return;
+
+        currentPosition = (int) Math.max(0, Math.min(ptsUs / 1000, videoDuration));
+        if (ivFrameOverlay != null) {
+            ivFrameOverlay.setRotation(videoTrack != null ? videoTrack.rotation : 0);
+            ivFrameOverlay.setImageBitmap(frame);
+            ivFrameOverlay.setVisibility(View.VISIBLE);
+        }
+        if (seekBar != null) seekBar.setProgress(currentPosition);
+        updateTimeDisplay();
+
+        // Keep the main player parked on the same frame for when playback resumes
+        if (mediaPlayer != null) {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+                mediaPlayer.seekTo(currentPosition, MediaPlayer.SEEK_CLOSEST);
+            } else {
+                mediaPlayer.seekTo(currentPosition);
+            }
+        }
+    }
+
+    private void hideFrameOverlay() {
+        runOnUiThread(() -> {
+            if (ivFrameOverlay != null) {
+                ivFrameOverlay.setVisibility(View.GONE);
+                ivFrameOverlay.setImageBitmap(null);
+            }
+        });
     }
 
     private void startLoadTimeout() {
@@ -388,6 +765,7 @@ public class VideoEditorActivity extends AppCompatActivity {
                     if (documentSnapshot.exists()) {
                         String projectName = documentSnapshot.getString("name");
                         videoPath = documentSnapshot.getString("videoPath");
+                        String linkedUri = documentSnapshot.getString("sourceUri");
 
                         if (projectName != null) {
                             setTitle(projectName);
@@ -396,6 +774,9 @@ public class VideoEditorActivity extends AppCompatActivity {
                         if (videoPath != null && new File(videoPath).exists()) {
                             Log.d(TAG, "✅ Video path valid: " + videoPath);
                             loadVideo(videoPath);
+                        } else if (videoPath == null && linkedUri != null) {
+                            sourceUri = Uri.parse(linkedUri);
+                            loadLinkedVideo();
                         } else {
                             showError("Video file missing: " + videoPath);
                         }
@@ -440,10 +821,12 @@ public class VideoEditorActivity extends AppCompatActivity {
             Log.d(TAG, "▶️ Playing from: " + currentPosition);
             int seekPos = Math.max(trimStart, currentPosition);
 
+            hideFrameOverlay();
             mediaPlayer.seekTo(seekPos);
             mediaPlayer.start();
 
             isPlaying = true;
+            setPlaybackIo(true);
             if (btnPlayPause != null) {
                 btnPlayPause.setImageResource(android.R.drawable.ic_media_pause);
             }
@@ -462,6 +845,7 @@ public class VideoEditorActivity extends AppCompatActivity {
                 currentPosition = mediaPlayer.getCurrentPosition();
             }
             isPlaying = false;
+            setPlaybackIo(false);
             if (btnPlayPause != null) {
                 btnPlayPause.setImageResource(android.R.drawable.ic_media_play);
             }
@@ -472,6 +856,18 @@ public class VideoEditorActivity extends AppCompatActivity {
         }
     }
 
+    // Background copies/remuxes drop to IoGovernor.PLAYBACK_RATE while the player is running
+    private void setPlaybackIo(boolean playing) {
+        if (playing == holdsPlaybackIo) return;
+        holdsPlaybackIo = playing;
+        if (playing) {
+            IoGovernor.playbackStarted();
+        } else {
+            IoGovernor.playbackStopped();
+        }
+        Log.d(TAG, "🚰 " + IoGovernor.stats());
+    }
+
     private void toggleTrimControls() {
         if (trimControlsContainer == null) return;
         if (trimControlsContainer.getVisibility() == View.VISIBLE) {
@@ -519,35 +915,157 @@ public class VideoEditorActivity extends AppCompatActivity {
         }
     }
 
-    // 🔥 Trim methods (unchanged)
+    // 🔥 Trim methods
     private void performRealTrim() {
         if (!isPrepared || trimStart >= trimEnd || (trimEnd - trimStart) < 1000) {
             toast("❌ Invalid trim range (min 1 sec)");
             return;
         }
 
+        List<RemuxEngine.Range> keepRanges = Collections.singletonList(
+                new RemuxEngine.Range(trimStart * 1000L, trimEnd * 1000L));
+        if (videoPath == null) {
+            trimFromLinkedSource(keepRanges);
+            return;
+        }
+        File workDir = getCacheDir();
+        RemuxTask remux = (input, output) -> RemuxEngine.remuxResumable(input, output, keepRanges, workDir);
+        if (trimStart == 0 && trimEnd < videoDuration) {
+            trimTailInPlace(trimEnd * 1000L, remux);
+        } else {
+            runRemuxJob(remux, "✅ Trim complete!");
+        }
+    }
+
+    // ✂️ Only the end moved - rewrite the sample tables in place (KBs of I/O, no copy)
+    private void trimTailInPlace(long endUs, RemuxTask fallback) {
         if (isTrimming) {
             toast("⏳ Already trimming...");
             return;
         }
+        pauseVideo();
 
-        isTrimming = true;
-        if (btnTrim != null) {
-            btnTrim.setText("⏳ Trimming...");
-            btnTrim.setEnabled(false);
-        }
-        if (btnCancelTrim != null) {
-            btnCancelTrim.setEnabled(false);
+        String path = videoPath;
+        File videoFile = new File(path);
+        EditHistory history = new EditHistory(this, videoFile);
+        RetainedJob<VideoEditorActivity> edit = startEditJob(TaskScheduler.UNCANCELLABLE,
+                VideoEditorActivity::showTrimBusy);
+        TaskScheduler.submit(Pool.IO, Priority.HIGH, edit.token, job -> {
+            try {
+                MediaLinks.ensureExclusive(videoFile);  // 🪞 a duplicate may share these bytes
+                // ↩️ Undo point: the trimmer records the moov it replaces, mdat stays as slack
+                File record = history.patchRecord();
+                boolean trimmed = Mp4TailTrimmer.trimTail(videoFile, endUs, record);
+                history.pushPatch(record);  // no record when it fell back - the remux records its own
+                endEditJob(edit, editor -> {
+                    editor.finishTrimming();
+                    if (trimmed) {
+                        editor.loadVideo(path);
+                        editor.hideTrimControls();
+                        editor.toast("✅ Trim complete!");
+                    } else {
+                        Log.d(TAG, "Layout not trimmable in place - remuxing");
+                        editor.runRemuxJob(fallback, "✅ Trim complete!");
+                    }
+                });
+            } catch (Exception e) {
+                // The journal is on disk - reloading rolls the trim forward
+                Log.e(TAG, "In-place tail trim failed", e);
+                endEditJob(edit, editor -> {
+                    editor.finishTrimming();
+                    editor.loadVideo(path);
+                    editor.toast("❌ Trim failed: " + e.getMessage());
+                });
+            }
+        });
+    }
+
+    // 🔗 First trim of a linked project: read the original through its descriptor and write only
+    // the kept ranges into private storage - the project then becomes a normal private copy
+    private void trimFromLinkedSource(List<RemuxEngine.Range> keepRanges) {
+        if (isTrimming) {
+            toast("⏳ Already trimming...");
+            return;
         }
-        showProgress();
         pauseVideo();
 
-        File originalFile = new File(videoPath);
+        Uri linked = sourceUri;
+        File projectsDir = new File(getExternalFilesDir(Environment.DIRECTORY_MOVIES), "projects");
+        projectsDir.mkdirs();
+        File destFile = new File(projectsDir, projectId + ".mp4");
+        ContentResolver resolver = getApplicationContext().getContentResolver();
+
+        RetainedJob<VideoEditorActivity> edit = startEditJob(VideoEditorActivity::showTrimBusy);
+        TaskScheduler.submit(Pool.IO, Priority.HIGH, edit.token, job -> {
+            try (ParcelFileDescriptor pfd = resolver.openFileDescriptor(linked, "r")) {
+                boolean success = pfd != null
+                        && RemuxEngine.remux(pfd.getFileDescriptor(), destFile.getAbsolutePath(), keepRanges);
+                if (success) {
+                    edit.post(editor -> {
+                        editor.videoPath = destFile.getAbsolutePath();
+                        editor.sourceUri = null;
+                        editor.detachLinkedSource(linked, editor.videoPath);
+                        editor.loadVideo(editor.videoPath);
+                        editor.hideTrimControls();
+                        editor.toast("✅ Trim complete!");
+                    });
+                } else {
+                    destFile.delete();
+                    edit.post(editor -> editor.toast("❌ Trim processing failed"));
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Linked trim exception", e);
+                destFile.delete();
+                edit.post(editor -> editor.toast("❌ Trim failed: " + e.getMessage()));
+            } finally {
+                endEditJob(edit, VideoEditorActivity::finishTrimming);
+            }
+        });
+    }
+
+    private void detachLinkedSource(Uri linked, String newPath) {
+        if (FirebaseAuth.getInstance().getCurrentUser() == null) return;
+        String userId = FirebaseAuth.getInstance().getCurrentUser().getUid();
+        FirebaseFirestore db = FirebaseFirestore.getInstance();
+        db.collection("users").document(userId)
+                .collection("projects").document(projectId)
+                .update("videoPath", newPath, "sourceUri", FieldValue.delete())
+                .addOnSuccessListener(aVoid -> db.collection("users").document(userId).collection("projects")
+                        .whereEqualTo("sourceUri", linked.toString()).limit(1).get()
+                        .addOnSuccessListener(others -> {
+                            // 🪞 Duplicates of this project still read the original - keep the grant
+                            if (others.isEmpty()) releaseLinkedSource(linked);
+                        }))
+                .addOnFailureListener(e -> Log.e(TAG, "Firestore update failed", e));
+    }
+
+    private void releaseLinkedSource(Uri linked) {
+        try {
+            getContentResolver().releasePersistableUriPermission(linked, Intent.FLAG_GRANT_READ_URI_PERMISSION);
+        } catch (SecurityException e) {
+            Log.w(TAG, "Linked permission already gone", e);
+        }
+    }
+
+    // One stream-copy job: reads the project video, writes a sibling file
+    private interface RemuxTask {
+        boolean run(String inputPath, String outputPath) throws Exception;
+    }
+
+    // Runs the task into a sibling file, then swaps it in place of the project video
+    private void runRemuxJob(RemuxTask task, String successMessage) {
+        if (isTrimming) {
+            toast("⏳ Already trimming...");
+            return;
+        }
+
+        String path = videoPath;
+        File originalFile = new File(path);
         if (!originalFile.exists()) {
-            finishTrimming();
             toast("❌ Video file missing");
             return;
         }
+        pauseVideo();
 
         String fileName = originalFile.getName();
         String nameWithoutExt = fileName.contains(".") ?
@@ -557,163 +1075,418 @@ public class VideoEditorActivity extends AppCompatActivity {
         String trimmedPath = originalFile.getParent() + "/" +
                 nameWithoutExt + "_trimmed_" + System.currentTimeMillis() + ext;
 
-        new Thread(() -> {
+        EditHistory history = new EditHistory(this, originalFile);
+        // 🔁 Not bound to this instance - a rotation mid-export must not throw the work away
+        RetainedJob<VideoEditorActivity> edit = startEditJob(VideoEditorActivity::showTrimBusy);
+        TaskScheduler.submit(Pool.IO, Priority.HIGH, edit.token, job -> {
             try {
-                boolean success = trimVideo(originalFile.getAbsolutePath(), trimmedPath,
-                        trimStart / 1000f, (trimEnd - trimStart) / 1000f);
+                boolean success = task.run(originalFile.getAbsolutePath(), trimmedPath);
 
                 if (success) {
                     File trimmedFile = new File(trimmedPath);
                     if (trimmedFile.exists() && trimmedFile.length() > 1024) {
-                        File backupFile = new File(videoPath + ".bak");
+                        File backupFile = new File(path + ".bak");
                         if (originalFile.renameTo(backupFile)) {
-                            if (trimmedFile.renameTo(new File(videoPath))) {
-                                if (backupFile.exists()) backupFile.delete();
-                                runOnUiThread(() -> {
-                                    loadVideo(videoPath);
-                                    updateProjectVideoPath(videoPath);
-                                    hideTrimControls();
-                                    toast("✅ Trim complete!");
+                            if (trimmedFile.renameTo(new File(path))) {
+                                // ↩️ The replaced version becomes the undo step - a rename, not a copy
+                                if (!history.pushReplaced(backupFile)) backupFile.delete();
+                                edit.post(editor -> {
+                                    editor.videoPath = path;
+                                    editor.loadVideo(path);
+                                    editor.updateProjectVideoPath(path);
+                                    editor.hideTrimControls();
+                                    editor.toast(successMessage);
                                 });
                             } else {
                                 backupFile.renameTo(originalFile);
-                                runOnUiThread(() -> toast("❌ Replace failed"));
+                                edit.post(editor -> editor.toast("❌ Replace failed"));
                             }
                         } else {
-                            runOnUiThread(() -> toast("❌ Backup failed"));
+                            edit.post(editor -> editor.toast("❌ Backup failed"));
                         }
                     } else {
-                        runOnUiThread(() -> toast("❌ Trimmed file invalid"));
+                        edit.post(editor -> editor.toast("❌ Trimmed file invalid"));
                     }
                 } else {
-                    runOnUiThread(() -> toast("❌ Trim processing failed"));
+                    edit.post(editor -> editor.toast("❌ Trim processing failed"));
                 }
             } catch (Exception e) {
                 Log.e(TAG, "Trim exception", e);
-                runOnUiThread(() -> toast("❌ Trim failed: " + e.getMessage()));
+                edit.post(editor -> editor.toast("❌ Trim failed: " + e.getMessage()));
             } finally {
-                runOnUiThread(this::finishTrimming);
+                endEditJob(edit, VideoEditorActivity::finishTrimming);
             }
-        }).start();
+        });
     }
 
-    private boolean trimVideo(String inputPath, String outputPath, float startMs, float durationMs) {
-        MediaMuxer muxer = null;
-        MediaExtractor extractor = null;
-        try {
-            new File(outputPath).delete();
-
-            extractor = new MediaExtractor();
-            extractor.setDataSource(inputPath);
-
-            int videoTrackIndex = -1, audioTrackIndex = -1;
-            MediaFormat videoFormat = null, audioFormat = null;
-
-            for (int i = 0; i < extractor.getTrackCount(); i++) {
-                MediaFormat format = extractor.getTrackFormat(i);
-                String mime = format.getString(MediaFormat.KEY_MIME);
-                if (mime.startsWith("video/")) {
-                    videoTrackIndex = i;
-                    videoFormat = format;
-                } else if (mime.startsWith("audio/")) {
-                    audioTrackIndex = i;
-                    audioFormat = format;
+    // 🔄 LOSSLESS ROTATE - a 36-byte matrix patch, whatever the file size
+    private void rotateVideo() {
+        if (!isPrepared || isTrimming) {
+            toast("⏳ Please wait...");
+            return;
+        }
+        if (!requirePrivateCopy()) return;
+        pauseVideo();
+
+        String path = videoPath;
+        File videoFile = new File(path);
+        EditHistory history = new EditHistory(this, videoFile);
+        RetainedJob<VideoEditorActivity> edit = startEditJob(TaskScheduler.UNCANCELLABLE,
+                VideoEditorActivity::showRotateBusy);
+        TaskScheduler.submit(Pool.IO, Priority.HIGH, edit.token, job -> {
+            try {
+                MediaLinks.ensureExclusive(videoFile);  // 🪞 a duplicate may share these bytes
+                int rotation = Mp4MetadataEditor.rotate(videoFile, 90);
+                try {
+                    history.pushRotation(90);
+                } catch (IOException e) {
+                    Log.w(TAG, "Rotation not recorded for undo", e);
                 }
+                edit.post(editor -> {
+                    editor.loadVideo(path);
+                    editor.toast("🔄 Rotated to " + rotation + "°");
+                });
+            } catch (Exception e) {
+                Log.e(TAG, "Rotate failed", e);
+                edit.post(editor -> editor.toast("❌ Rotate failed: " + e.getMessage()));
+            } finally {
+                endEditJob(edit, editor -> {
+                    editor.isTrimming = false;
+                    if (editor.btnRotate != null) editor.btnRotate.setEnabled(true);
+                });
             }
+        });
+    }
 
-            if (videoTrackIndex == -1) {
-                Log.e(TAG, "No video track found");
-                return false;
-            }
+    // ↩️ UNDO / REDO - swaps whole versions by rename, so both are instant at any file size
+    private void stepHistory(boolean undo) {
+        if (!isPrepared || isTrimming) {
+            toast("⏳ Please wait...");
+            return;
+        }
+        if (videoPath == null) return;
+        pauseVideo();
 
-            muxer = new MediaMuxer(outputPath, MediaMuxer.OutputFormat.MUXER_OUTPUT_MPEG_4);
-            int videoOutputTrack = muxer.addTrack(videoFormat);
-            int audioOutputTrack = audioTrackIndex != -1 ? muxer.addTrack(audioFormat) : -1;
-            muxer.start();
+        String path = videoPath;
+        EditHistory history = new EditHistory(this, new File(path));
+        RetainedJob<VideoEditorActivity> edit = startEditJob(TaskScheduler.UNCANCELLABLE,
+                VideoEditorActivity::showHistoryBusy);
+        TaskScheduler.submit(Pool.IO, Priority.HIGH, edit.token, job -> {
+            try {
+                boolean stepped = undo ? history.undo() : history.redo();
+                endEditJob(edit, editor -> {
+                    editor.isTrimming = false;
+                    if (stepped) {
+                        editor.loadVideo(path);
+                        editor.toast(undo ? "↩️ Undone" : "↪️ Redone");
+                    } else {
+                        editor.updateHistoryButtons();
+                    }
+                });
+            } catch (Exception e) {
+                Log.e(TAG, "History step failed", e);
+                endEditJob(edit, editor -> {
+                    editor.isTrimming = false;
+                    editor.updateHistoryButtons();
+                    editor.toast("❌ " + (undo ? "Undo" : "Redo") + " failed: " + e.getMessage());
+                });
+            }
+        });
+    }
 
-            long startTimeUs = (long)(startMs * 1000000L);
-            long endTimeUs = startTimeUs + (long)(durationMs * 1000000L);
+    // Listing the history directory is disk I/O - done on the IO pool, buttons set back on the UI thread
+    private void updateHistoryButtons() {
+        EditHistory history = videoPath != null ? new EditHistory(this, new File(videoPath)) : null;
+        if (history == null) {
+            if (btnUndo != null) btnUndo.setEnabled(false);
+            if (btnRedo != null) btnRedo.setEnabled(false);
+            return;
+        }
+        TaskScheduler.submit(Pool.IO, Priority.NORMAL, lifetime, job -> {
+            boolean canUndo = history.canUndo();
+            boolean canRedo = history.canRedo();
+            runOnUiThread(() -> {
+                if (btnUndo != null) btnUndo.setEnabled(canUndo);
+                if (btnRedo != null) btnRedo.setEnabled(canRedo);
+            });
+        });
+    }
 
-            ByteBuffer buffer = ByteBuffer.allocateDirect(1024 * 1024);
-            MediaCodec.BufferInfo bufferInfo = new MediaCodec.BufferInfo();
+    // ⚡ SPEED CHANGE - applies to the current trim range
+    private void chooseSpeed() {
+        if (!isPrepared || isTrimming) {
+            toast("⏳ Please wait...");
+            return;
+        }
+        if (!requirePrivateCopy()) return;
+        String[] labels = new String[SPEED_OPTIONS.length];
+        for (int i = 0; i < SPEED_OPTIONS.length; i++) {
+            labels[i] = (SPEED_OPTIONS[i] < 1 ? "🐢 " : "🐇 ") + SPEED_OPTIONS[i] + "x";
+        }
+        new AlertDialog.Builder(this)
+                .setTitle("⚡ Playback speed")
+                .setItems(labels, (dialog, which) -> chooseSpeedAudio(SPEED_OPTIONS[which]))
+                .show();
+    }
 
-            // Video track
-            {
-                extractor.release();
-                extractor = new MediaExtractor();
-                extractor.setDataSource(inputPath);
-                extractor.selectTrack(videoTrackIndex);
+    private void chooseSpeedAudio(float speed) {
+        new AlertDialog.Builder(this)
+                .setTitle("🔊 Audio at " + speed + "x")
+                .setItems(new String[]{"Keep audio (time-stretched)", "Drop audio (fastest)"},
+                        (dialog, which) -> performSpeedChange(speed, which == 0))
+                .show();
+    }
 
-                long firstVideoPts = -1;
-                extractor.seekTo(startTimeUs, MediaExtractor.SEEK_TO_CLOSEST_SYNC);
+    private void performSpeedChange(float speed, boolean keepAudio) {
+        if (trimStart >= trimEnd || (trimEnd - trimStart) < 1000) {
+            toast("❌ Invalid trim range (min 1 sec)");
+            return;
+        }
+        List<RemuxEngine.Range> ranges = Collections.singletonList(
+                new RemuxEngine.Range(trimStart * 1000L, trimEnd * 1000L));
+        File tempDir = getCacheDir();
+        runRemuxJob((input, output) -> RemuxEngine.changeSpeed(input, output, ranges, speed, keepAudio, tempDir),
+                "✅ Speed changed to " + speed + "x");
+    }
 
-                while (true) {
-                    buffer.clear();
-                    int sampleSize = extractor.readSampleData(buffer, 0);
-                    if (sampleSize < 0) break;
+    // ✂️ SPLIT - N equal parts or at the detected scene cuts, each part becomes a new project
+    private void chooseSplit() {
+        if (!isPrepared || isTrimming) {
+            toast("⏳ Please wait...");
+            return;
+        }
+        if (!requirePrivateCopy()) return;
+        int optionCount = SPLIT_OPTIONS.length + (cutPoints.length > 0 ? 1 : 0);
+        String[] labels = new String[optionCount];
+        for (int i = 0; i < SPLIT_OPTIONS.length; i++) {
+            labels[i] = "✂️ " + SPLIT_OPTIONS[i] + " equal parts";
+        }
+        if (cutPoints.length > 0) {
+            labels[SPLIT_OPTIONS.length] = "🎬 At " + cutPoints.length + " scene cuts";
+        }
+        long durationUs = videoDuration * 1000L;
+        new AlertDialog.Builder(this)
+                .setTitle("✂️ Split into parts")
+                .setItems(labels, (dialog, which) -> {
+                    if (which < SPLIT_OPTIONS.length) {
+                        performSplit(RemuxEngine.equalCuts(durationUs, SPLIT_OPTIONS[which]));
+                    } else {
+                        List<Long> cuts = new ArrayList<>();
+                        for (int cut : cutPoints) cuts.add(cut * 1000L);
+                        performSplit(cuts);
+                    }
+                })
+                .show();
+    }
 
-                    long pts = extractor.getSampleTime();
-                    if (pts >= endTimeUs) break;
+    private void performSplit(List<Long> cutsUs) {
+        if (FirebaseAuth.getInstance().getCurrentUser() == null) return;
+        pauseVideo();
 
-                    if (firstVideoPts < 0) firstVideoPts = pts;
+        String inputPath = videoPath;
+        long durationUs = videoDuration * 1000L;
+        String baseName = getTitle() != null ? getTitle().toString() : "Part";
+        String userId = FirebaseAuth.getInstance().getCurrentUser().getUid();
+        File projectsDir = new File(getExternalFilesDir(Environment.DIRECTORY_MOVIES), "projects");
+        projectsDir.mkdirs();
 
-                    bufferInfo.size = sampleSize;
-                    bufferInfo.presentationTimeUs = pts - firstVideoPts;
-                    bufferInfo.offset = 0;
-                    bufferInfo.flags = extractor.getSampleFlags();
+        RetainedJob<VideoEditorActivity> edit = startEditJob(VideoEditorActivity::showSplitBusy);
+        TaskScheduler.submit(Pool.IO, Priority.NORMAL, edit.token, job -> {
+            try {
+                List<RemuxEngine.Range> parts = RemuxEngine.splitRanges(inputPath, cutsUs, durationUs);
+                List<String> partIds = new ArrayList<>();
+                List<String> outputPaths = new ArrayList<>();
+                long stamp = System.currentTimeMillis();
+                for (int i = 0; i < parts.size(); i++) {
+                    String partId = userId + "_" + stamp + "_" + (i + 1);
+                    partIds.add(partId);
+                    outputPaths.add(new File(projectsDir, partId + ".mp4").getAbsolutePath());
+                }
 
-                    muxer.writeSampleData(videoOutputTrack, buffer, bufferInfo);
-                    extractor.advance();
+                boolean[] results = RemuxEngine.split(inputPath, parts, outputPaths);
+                int failed = 0;
+                for (boolean result : results) if (!result) failed++;
+                if (failed > 0) {
+                    for (String path : outputPaths) new File(path).delete();
+                    int failedParts = failed;
+                    endEditJob(edit, editor -> {
+                        editor.toast("❌ Split failed (" + failedParts + " parts)");
+                        editor.finishSplit();
+                    });
+                    return;
                 }
+                saveSplitProjects(edit, userId, baseName, partIds, outputPaths);
+            } catch (Exception e) {
+                Log.e(TAG, "Split exception", e);
+                endEditJob(edit, editor -> {
+                    editor.toast("❌ Split failed: " + e.getMessage());
+                    editor.finishSplit();
+                });
             }
+        });
+    }
 
-            // Audio track
-            if (audioOutputTrack != -1) {
-                extractor.release();
-                extractor = new MediaExtractor();
-                extractor.setDataSource(inputPath);
-                extractor.selectTrack(audioTrackIndex);
-
-                long firstAudioPts = -1;
-                extractor.seekTo(startTimeUs, MediaExtractor.SEEK_TO_CLOSEST_SYNC);
+    // All parts land in one batch - the project list never shows half a split. The job stays
+    // open until the commit lands, so a rotation meanwhile still gets the result.
+    private static void saveSplitProjects(RetainedJob<VideoEditorActivity> edit, String userId, String baseName,
+                                          List<String> partIds, List<String> outputPaths) {
+        FirebaseFirestore db = FirebaseFirestore.getInstance();
+        WriteBatch batch = db.batch();
+        for (int i = 0; i < partIds.size(); i++) {
+            HashMap<String, Object> project = new HashMap<>();
+            project.put("name", baseName + " (" + (i + 1) + "/" + partIds.size() + ")");
+            project.put("videoPath", outputPaths.get(i));
+            project.put("projectId", partIds.get(i));
+            project.put("createdAt", FieldValue.serverTimestamp());
+            project.put("thumbnail", "");
+            batch.set(db.collection("users").document(userId)
+                    .collection("projects").document(partIds.get(i)), project);
+        }
+        batch.commit()
+                .addOnSuccessListener(aVoid -> endEditJob(edit, editor -> {
+                    editor.finishSplit();
+                    editor.toast("✅ Split into " + partIds.size() + " projects");
+                }))
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Firestore batch failed", e);
+                    for (String path : outputPaths) new File(path).delete();
+                    endEditJob(edit, editor -> {
+                        editor.finishSplit();
+                        editor.toast("❌ Save error: " + e.getMessage());
+                    });
+                });
+    }
 
-                while (true) {
-                    buffer.clear();
-                    int sampleSize = extractor.readSampleData(buffer, 0);
-                    if (sampleSize < 0) break;
+    private void finishSplit() {
+        isTrimming = false;
+        if (btnSplit != null) {
+            btnSplit.setEnabled(true);
+            btnSplit.setText("✂️ Split into Parts");
+        }
+        hideProgress();
+    }
 
-                    long pts = extractor.getSampleTime();
-                    if (pts >= endTimeUs) break;
+    // 🗜️ COMPRESS - chunked parallel re-encode of the whole project
+    private void chooseCompressPreset() {
+        if (!isPrepared || isTrimming) {
+            toast("⏳ Please wait...");
+            return;
+        }
+        if (!requirePrivateCopy()) return;
+        ChunkedTranscoder.Preset[] presets = ChunkedTranscoder.Preset.values();
+        String[] labels = new String[presets.length];
+        for (int i = 0; i < presets.length; i++) labels[i] = presets[i].label;
+        new AlertDialog.Builder(this)
+                .setTitle("🗜️ Compress video")
+                .setItems(labels, (dialog, which) -> {
+                    ChunkedTranscoder.Preset preset = presets[which];
+                    Context appContext = getApplicationContext();
+                    File workDir = getCacheDir();
+                    runRemuxJob((input, output) -> ChunkedTranscoder.export(appContext, input, output, preset, workDir),
+                            "✅ Compressed to " + preset.shortSide + "p");
+                })
+                .show();
+    }
 
-                    if (firstAudioPts < 0) firstAudioPts = pts;
+    // 🔇 SILENCE DETECTION → proposed removals for the multi-range trim
+    private void detectSilence() {
+        if (!isPrepared || isTrimming) {
+            toast("⏳ Please wait...");
+            return;
+        }
+        if (silenceDetector != null) {
+            toast("⏳ Already analysing...");
+            return;
+        }
+        if (!requirePrivateCopy()) return;
 
-                    bufferInfo.size = sampleSize;
-                    bufferInfo.presentationTimeUs = pts - firstAudioPts;
-                    bufferInfo.offset = 0;
-                    bufferInfo.flags = extractor.getSampleFlags();
+        pauseVideo();
+        if (btnRemoveSilence != null) btnRemoveSilence.setEnabled(false);
+        String path = videoPath;
+        long durationUs = videoDuration * 1000L;
+        silenceDetector = new SilenceDetector(SilenceDetector.DEFAULT_THRESHOLD_DB,
+                SilenceDetector.DEFAULT_MIN_SILENCE_MS);
+        silenceDetector.start(analysisExecutor, path, new SilenceDetector.Listener() {
+            @Override
+            public void onProgress(int percent) {
+                if (btnRemoveSilence != null) btnRemoveSilence.setText("🔇 Analysing " + percent + "%");
+            }
 
-                    muxer.writeSampleData(audioOutputTrack, buffer, bufferInfo);
-                    extractor.advance();
-                }
+            @Override
+            public void onComplete(List<RemuxEngine.Range> silentRanges) {
+                finishSilenceDetection();
+                if (path.equals(videoPath)) proposeSilenceRemoval(silentRanges, durationUs);
             }
 
-            muxer.stop();
-            muxer.release();
+            @Override
+            public void onError(String message) {
+                finishSilenceDetection();
+                showError(message);
+            }
+        });
+    }
 
-            File outputFile = new File(outputPath);
-            boolean success = outputFile.exists() && outputFile.length() > 1024;
-            Log.d(TAG, "Trim result: " + success + " size: " + outputFile.length());
-            return success;
+    private void finishSilenceDetection() {
+        silenceDetector = null;
+        if (btnRemoveSilence != null) {
+            btnRemoveSilence.setEnabled(true);
+            btnRemoveSilence.setText("🔇 Remove Silence");
+        }
+    }
 
-        } catch (Exception e) {
-            Log.e(TAG, "TrimVideo error", e);
-            return false;
-        } finally {
+    // Cuts snap to keyframes and a silence whose keyframe sits inside it comes back whole, so
+    // the dialog reports what the remux will really remove - measured before asking
+    private void proposeSilenceRemoval(List<RemuxEngine.Range> silentRanges, long durationUs) {
+        if (silentRanges.isEmpty()) {
+            toast("✅ No dead air found");
+            return;
+        }
+        String path = videoPath;
+        List<RemuxEngine.Range> keepRanges = SilenceDetector.keepRanges(silentRanges, durationUs);
+        TaskScheduler.submit(Pool.IO, Priority.HIGH, lifetime, job -> {
+            List<RemuxEngine.Range> copied;
             try {
-                if (extractor != null) extractor.release();
-                if (muxer != null) muxer.release();
-            } catch (Exception ignored) {}
+                copied = RemuxEngine.effectiveRanges(path, keepRanges);
+            } catch (IOException e) {
+                Log.e(TAG, "Keyframe lookup failed", e);
+                showError("Silence removal failed: " + e.getMessage());
+                return;
+            }
+            runOnUiThread(() -> {
+                if (path.equals(videoPath)) confirmSilenceRemoval(keepRanges, copied, durationUs);
+            });
+        });
+    }
+
+    private void confirmSilenceRemoval(List<RemuxEngine.Range> keepRanges, List<RemuxEngine.Range> copied,
+                                       long durationUs) {
+        long keptUs = 0;
+        int removedParts = 0;
+        long previousEndUs = 0;
+        for (RemuxEngine.Range range : copied) {
+            keptUs += range.durationUs();
+            if (range.startUs > previousEndUs) removedParts++;
+            previousEndUs = range.endUs;
+        }
+        if (previousEndUs < durationUs) removedParts++;
+        long removedUs = durationUs - keptUs;
+        if (removedParts == 0 || removedUs <= 0) {
+            toast("🔇 Silent parts are too short to cut between keyframes");
+            return;
         }
+
+        int parts = removedParts;
+        File workDir = getCacheDir();
+        new AlertDialog.Builder(this)
+                .setTitle("🔇 Remove silence?")
+                .setMessage("Found " + parts + " silent parts (" +
+                        formatTime((int) (removedUs / 1000)) + " total). Cut them out?")
+                .setPositiveButton("Remove", (dialog, which) ->
+                        runRemuxJob((input, output) ->
+                                        RemuxEngine.remuxResumable(input, output, keepRanges, workDir),
+                                "✅ Removed " + parts + " silent parts"))
+                .setNegativeButton("Cancel", null)
+                .show();
     }
 
     // 🔥 Rest of methods unchanged
@@ -724,6 +1497,7 @@ public class VideoEditorActivity extends AppCompatActivity {
                 public void onProgressChanged(SeekBar seekBar, int progress, boolean fromUser) {
                     if (fromUser && isVideoReady && mediaPlayer != null) {
                         currentPosition = Math.max(trimStart, Math.min(progress, trimEnd));
+                        hideFrameOverlay();
                         mediaPlayer.seekTo(currentPosition);
                         updateTimeDisplay();
                     }
@@ -757,10 +1531,21 @@ public class VideoEditorActivity extends AppCompatActivity {
                             if (seekBar != null) seekBar.setProgress(trimStart);
                         }
                         updateDisplays();
+                        previewTrimHandle("Start", trimStart, false);
                     }
                 }
-                @Override public void onStartTrackingTouch(SeekBar seekBar) {}
-                @Override public void onStopTrackingTouch(SeekBar seekBar) {}
+                @Override public void onStartTrackingTouch(SeekBar seekBar) {
+                    previewTrimHandle("Start", trimStart, false);
+                }
+                @Override public void onStopTrackingTouch(SeekBar bar) {
+                    int snapped = snapToCut(trimStart);
+                    if (snapped != trimStart && snapped < trimEnd - 1000) {
+                        trimStart = snapped;
+                        bar.setProgress(trimStart);
+                        updateDisplays();
+                    }
+                    previewTrimHandle("Start", trimStart, true);
+                }
             });
         }
 
@@ -778,14 +1563,38 @@ public class VideoEditorActivity extends AppCompatActivity {
                             if (seekBar != null) seekBar.setProgress(trimEnd);
                         }
                         updateDisplays();
+                        previewTrimHandle("End", trimEnd, false);
                     }
                 }
-                @Override public void onStartTrackingTouch(SeekBar seekBar) {}
-                @Override public void onStopTrackingTouch(SeekBar seekBar) {}
+                @Override public void onStartTrackingTouch(SeekBar seekBar) {
+                    previewTrimHandle("End", trimEnd, false);
+                }
+                @Override public void onStopTrackingTouch(SeekBar bar) {
+                    int snapped = snapToCut(trimEnd);
+                    if (snapped != trimEnd && snapped > trimStart + 1000) {
+                        trimEnd = snapped;
+                        bar.setProgress(trimEnd);
+                        updateDisplays();
+                    }
+                    previewTrimHandle("End", trimEnd, true);
+                }
             });
         }
     }
 
+    // 🔍 Keyframe-only while dragging (instant), exact frame once the handle is released
+    private void previewTrimHandle(String label, int positionMs, boolean exact) {
+        if (tvTrimPreviewLabel != null) {
+            tvTrimPreviewLabel.setText(label + " " + formatTime(positionMs));
+        }
+        if (trimScrubPreview == null) return;
+        if (exact) {
+            trimScrubPreview.showExactFrame(positionMs);
+        } else {
+            trimScrubPreview.showKeyframe(positionMs);
+        }
+    }
+
     private void updateDisplays() {
         runOnUiThread(() -> {
             updateTimeDisplay();
@@ -839,7 +1648,7 @@ public class VideoEditorActivity extends AppCompatActivity {
                 updateTimeDisplay();
             });
 
-            handler.postDelayed(progressRunnable, 50);
+            handler.postDelayed(progressRunnable, PerformanceProfile.uiPollMs());
         } catch (Exception e) {
             Log.e(TAG, "Progress update error", e);
             stopProgressUpdates();
@@ -853,6 +1662,59 @@ public class VideoEditorActivity extends AppCompatActivity {
         }
     }
 
+    // 🔁 Starts a write that outlives this instance; `busy` shows it now and after a rotation
+    private RetainedJob<VideoEditorActivity> startEditJob(RetainedJob.Step<VideoEditorActivity> busy) {
+        return startEditJob(new TaskScheduler.CancellationToken(), busy);
+    }
+
+    private RetainedJob<VideoEditorActivity> startEditJob(TaskScheduler.CancellationToken token,
+                                                          RetainedJob.Step<VideoEditorActivity> busy) {
+        busy.apply(this);
+        editJob = RetainedJob.start(projectId, this, token, busy);
+        return editJob;
+    }
+
+    // The job's last update: the editor is free again, then a load deferred while it ran
+    private static void endEditJob(RetainedJob<VideoEditorActivity> edit, RetainedJob.Step<VideoEditorActivity> step) {
+        edit.finish(editor -> {
+            editor.editJob = null;
+            step.apply(editor);
+            if (editor.deferredLoad != null) editor.loadVideo(editor.deferredLoad);
+        });
+    }
+
+    private void showTrimBusy() {
+        isTrimming = true;
+        if (btnTrim != null) {
+            btnTrim.setText("⏳ Trimming...");
+            btnTrim.setEnabled(false);
+        }
+        if (btnCancelTrim != null) {
+            btnCancelTrim.setEnabled(false);
+        }
+        showProgress();
+    }
+
+    private void showRotateBusy() {
+        isTrimming = true;
+        if (btnRotate != null) btnRotate.setEnabled(false);
+    }
+
+    private void showHistoryBusy() {
+        isTrimming = true;
+        if (btnUndo != null) btnUndo.setEnabled(false);
+        if (btnRedo != null) btnRedo.setEnabled(false);
+    }
+
+    private void showSplitBusy() {
+        isTrimming = true;
+        if (btnSplit != null) {
+            btnSplit.setText("⏳ Splitting...");
+            btnSplit.setEnabled(false);
+        }
+        showProgress();
+    }
+
     private void finishTrimming() {
         isTrimming = false;
         runOnUiThread(() -> {
@@ -924,6 +1786,8 @@ public class VideoEditorActivity extends AppCompatActivity {
         cancelLoadTimeout();
         stopStateMonitoring();
         resetVideoState();
+        if (silenceDetector != null) silenceDetector.cancel();
+        if (editJob != null) editJob.detach(this);  // 🔁 rotation: the job keeps running
 
         if (mediaPlayer != null) {
             mediaPlayer.release();
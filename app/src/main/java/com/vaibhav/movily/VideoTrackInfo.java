@@ -0,0 +1,81 @@
+package com.vaibhav.movily;
+
+import android.media.MediaCodec;
+import android.media.MediaCodecList;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+// 🔥 Video track probed ONCE per file - every decoder in the editor shares this config
+public class VideoTrackInfo {
+
+    public final String path;
+    public final int trackIndex;
+    public final MediaFormat format;
+    public final String mime;
+    public final int width, height;
+    public final int rotation;
+    public final long durationUs;
+    public final int maxInputSize;
+    public final String decoderName;
+
+    private VideoTrackInfo(String path, int trackIndex, MediaFormat format, String decoderName) {
+        this.path = path;
+        this.trackIndex = trackIndex;
+        this.format = format;
+        this.mime = format.getString(MediaFormat.KEY_MIME);
+        this.width = format.getInteger(MediaFormat.KEY_WIDTH);
+        this.height = format.getInteger(MediaFormat.KEY_HEIGHT);
+        this.rotation = format.containsKey("rotation-degrees") ? format.getInteger("rotation-degrees") : 0;
+        this.durationUs = format.containsKey(MediaFormat.KEY_DURATION) ? format.getLong(MediaFormat.KEY_DURATION) : 0;
+        this.maxInputSize = format.containsKey(MediaFormat.KEY_MAX_INPUT_SIZE) ?
+                format.getInteger(MediaFormat.KEY_MAX_INPUT_SIZE) : 0;
+        this.decoderName = decoderName;
+    }
+
+    public static VideoTrackInfo probe(String path) throws IOException {
+        MediaExtractor extractor = new MediaExtractor();
+        try {
+            extractor.setDataSource(path);
+            for (int i = 0; i < extractor.getTrackCount(); i++) {
+                MediaFormat format = extractor.getTrackFormat(i);
+                String mime = format.getString(MediaFormat.KEY_MIME);
+                if (mime != null && mime.startsWith("video/")) {
+                    VideoTrackInfo probe = new VideoTrackInfo(path, i, format, null);
+                    String name = new MediaCodecList(MediaCodecList.REGULAR_CODECS)
+                            .findDecoderForFormat(probe.newDecoderFormat());
+                    return new VideoTrackInfo(path, i, format, name);
+                }
+            }
+            throw new IOException("No video track found");
+        } finally {
+            extractor.release();
+        }
+    }
+
+    // Fresh format per decoder (configure() must never see a format another codec mutated)
+    public MediaFormat newDecoderFormat() {
+        MediaFormat decoderFormat = MediaFormat.createVideoFormat(mime, width, height);
+        for (String key : new String[]{"csd-0", "csd-1", "csd-2"}) {
+            ByteBuffer csd = format.containsKey(key) ? format.getByteBuffer(key) : null;
+            if (csd != null) decoderFormat.setByteBuffer(key, csd.duplicate());
+        }
+        if (maxInputSize > 0) {
+            decoderFormat.setInteger(MediaFormat.KEY_MAX_INPUT_SIZE, maxInputSize);
+        }
+        return decoderFormat;
+    }
+
+    public MediaExtractor openExtractor() throws IOException {
+        MediaExtractor extractor = new MediaExtractor();
+        extractor.setDataSource(path);
+        extractor.selectTrack(trackIndex);
+        return extractor;
+    }
+
+    public MediaCodec createDecoder() throws IOException {
+        return decoderName != null ? MediaCodec.createByCodecName(decoderName)
+                : MediaCodec.createDecoderByType(mime);
+    }
+}
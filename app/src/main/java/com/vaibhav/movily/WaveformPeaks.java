@@ -0,0 +1,252 @@
+package com.vaibhav.movily;
+
+import android.util.Log;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// 🔥 Multi-resolution min/max peak pyramid (waveform "mipmaps").
+// File: header + one byte-pair (min,max) per peak, level 0 finest, each level halves the count.
+// Built incrementally from streamed PCM, read back through a read-only memory map.
+public class WaveformPeaks {
+
+    private static final String TAG = "WaveformPeaks";
+    private static final int MAGIC = 0x4D56504B; // "MVPK"
+    private static final int VERSION = 1;
+    public static final int FRAMES_PER_PEAK = 256;
+    public static final int LEVELS = 8;
+
+    private final MappedByteBuffer map;
+    private final int sampleRate;
+    private final int framesPerPeak;
+    private final int[] levelCounts;
+    private final int[] levelOffsets;
+
+    private WaveformPeaks(MappedByteBuffer map) throws IOException {
+        this.map = map;
+        if (map.getInt(0) != MAGIC || map.getInt(4) != VERSION) {
+            throw new IOException("Bad peak file");
+        }
+        sampleRate = map.getInt(8);
+        framesPerPeak = map.getInt(12);
+        int levels = map.getInt(16);
+        levelCounts = new int[levels];
+        levelOffsets = new int[levels];
+        int offset = 20 + levels * 4;
+        for (int i = 0; i < levels; i++) {
+            levelCounts[i] = map.getInt(20 + i * 4);
+            levelOffsets[i] = offset;
+            offset += levelCounts[i] * 2;
+        }
+    }
+
+    public static File cacheFileFor(File cacheRoot, File videoFile) {
+        return CacheKeys.cacheFile(cacheRoot, "waveforms", videoFile, ".peaks");
+    }
+
+    // Blocking - cached pyramid is mapped directly, otherwise the audio is streamed once
+    public static WaveformPeaks load(String videoPath, File cacheRoot, AtomicBoolean cancelled)
+            throws IOException {
+        File cached = cacheFileFor(cacheRoot, new File(videoPath));
+        if (!cached.exists()) {
+            long started = System.currentTimeMillis();
+            if (!build(videoPath, cached, cancelled)) return null;
+            Log.d(TAG, "🔊 Peaks built in " + (System.currentTimeMillis() - started) + "ms");
+        }
+        try (RandomAccessFile file = new RandomAccessFile(cached, "r")) {
+            FileChannel channel = file.getChannel();
+            return new WaveformPeaks(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (IOException e) {
+            cached.delete();
+            throw e;
+        }
+    }
+
+    public int levelCount() {
+        return levelCounts.length;
+    }
+
+    public int peakCount(int level) {
+        return levelCounts[level];
+    }
+
+    public long framesPerPeak(int level) {
+        return (long) framesPerPeak << level;
+    }
+
+    public int sampleRate() {
+        return sampleRate;
+    }
+
+    // -128..127
+    public int min(int level, int index) {
+        return map.get(levelOffsets[level] + index * 2);
+    }
+
+    public int max(int level, int index) {
+        return map.get(levelOffsets[level] + index * 2 + 1);
+    }
+
+    // Coarsest level that still has at least one peak per pixel
+    public int levelFor(int pixels) {
+        int level = 0;
+        while (level + 1 < levelCounts.length && levelCounts[level + 1] >= pixels) {
+            level++;
+        }
+        return level;
+    }
+
+    // ---- Building ----
+
+    private static boolean build(String videoPath, File target, AtomicBoolean cancelled) throws IOException {
+        File tmpDir = new File(target.getParentFile(), target.getName() + ".parts");
+        tmpDir.mkdirs();
+        PyramidWriter writer = new PyramidWriter(tmpDir);
+        boolean hasAudio;
+        try {
+            hasAudio = AudioPcmStreamer.stream(videoPath, writer, null, cancelled);
+            writer.finish();
+            if (!hasAudio || (cancelled != null && cancelled.get())) return false;
+            writer.writeTo(target);
+            return true;
+        } finally {
+            writer.close();
+            deleteDir(tmpDir);
+        }
+    }
+
+    private static void deleteDir(File dir) {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files) f.delete();
+        }
+        dir.delete();
+    }
+
+    private static class PyramidWriter implements AudioPcmStreamer.Sink {
+        private final File dir;
+        private final DataOutputStream[] levelOut = new DataOutputStream[LEVELS];
+        private final int[] levelCounts = new int[LEVELS];
+        private final boolean[] hasPending = new boolean[LEVELS];
+        private final int[] pendingMin = new int[LEVELS];
+        private final int[] pendingMax = new int[LEVELS];
+
+        private int sampleRate = 44100;
+        private int channels = 1;
+        private int framesInPeak = 0;
+        private int peakMin = Integer.MAX_VALUE, peakMax = Integer.MIN_VALUE;
+
+        PyramidWriter(File dir) throws IOException {
+            this.dir = dir;
+            for (int i = 0; i < LEVELS; i++) {
+                levelOut[i] = new DataOutputStream(new BufferedOutputStream(
+                        new FileOutputStream(new File(dir, "level" + i)), 16 * 1024));
+            }
+        }
+
+        @Override
+        public void onFormat(int sampleRate, int channels) {
+            this.sampleRate = sampleRate;
+            this.channels = Math.max(1, channels);
+        }
+
+        @Override
+        public void onPcm(short[] samples, int count) {
+            int ch = channels;
+            int min = peakMin, max = peakMax, frames = framesInPeak;
+            for (int i = 0; i + ch <= count; i += ch) {
+                for (int c = 0; c < ch; c++) {
+                    int s = samples[i + c];
+                    if (s < min) min = s;
+                    if (s > max) max = s;
+                }
+                if (++frames == FRAMES_PER_PEAK) {
+                    emit(0, min >> 8, max >> 8);
+                    min = Integer.MAX_VALUE;
+                    max = Integer.MIN_VALUE;
+                    frames = 0;
+                }
+            }
+            peakMin = min;
+            peakMax = max;
+            framesInPeak = frames;
+        }
+
+        private void emit(int level, int min, int max) {
+            try {
+                levelOut[level].writeByte(min);
+                levelOut[level].writeByte(max);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            levelCounts[level]++;
+            if (level + 1 >= LEVELS) return;
+            if (hasPending[level]) {
+                hasPending[level] = false;
+                emit(level + 1, Math.min(min, pendingMin[level]), Math.max(max, pendingMax[level]));
+            } else {
+                hasPending[level] = true;
+                pendingMin[level] = min;
+                pendingMax[level] = max;
+            }
+        }
+
+        void finish() throws IOException {
+            if (framesInPeak > 0) {
+                emit(0, peakMin >> 8, peakMax >> 8);
+                framesInPeak = 0;
+            }
+            // Odd trailing peaks still have to show up on the coarser levels
+            for (int level = 0; level + 1 < LEVELS; level++) {
+                if (hasPending[level]) {
+                    hasPending[level] = false;
+                    emit(level + 1, pendingMin[level], pendingMax[level]);
+                }
+            }
+            for (DataOutputStream out : levelOut) out.flush();
+        }
+
+        void writeTo(File target) throws IOException {
+            File tmp = new File(target.getPath() + ".tmp");
+            try (FileOutputStream fos = new FileOutputStream(tmp)) {
+                DataOutputStream header = new DataOutputStream(new BufferedOutputStream(fos));
+                header.writeInt(MAGIC);
+                header.writeInt(VERSION);
+                header.writeInt(sampleRate);
+                header.writeInt(FRAMES_PER_PEAK);
+                header.writeInt(LEVELS);
+                for (int count : levelCounts) header.writeInt(count);
+                header.flush();
+
+                FileChannel out = fos.getChannel();
+                for (int i = 0; i < LEVELS; i++) {
+                    try (FileInputStream in = new FileInputStream(new File(dir, "level" + i))) {
+                        FileChannel src = in.getChannel();
+                        long pos = 0, size = src.size();
+                        while (pos < size) pos += src.transferTo(pos, size - pos, out);
+                    }
+                }
+                fos.getFD().sync();
+            }
+            if (!tmp.renameTo(target)) {
+                tmp.delete();
+                throw new IOException("Could not publish peak cache");
+            }
+        }
+
+        void close() {
+            for (DataOutputStream out : levelOut) {
+                try {
+                    out.close();
+                } catch (IOException ignored) {}
+            }
+        }
+    }
+}
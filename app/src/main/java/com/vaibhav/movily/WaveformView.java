@@ -0,0 +1,62 @@
+package com.vaibhav.movily;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.util.AttributeSet;
+import android.view.View;
+
+// 🔊 Draws one min/max line per pixel from the best-fitting pyramid level (no PCM, no allocs in onDraw)
+public class WaveformView extends View {
+
+    private final Paint paint = new Paint();
+    private WaveformPeaks peaks;
+    private float[] lines = new float[0];
+
+    public WaveformView(Context context) {
+        this(context, null);
+    }
+
+    public WaveformView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        paint.setColor(Color.parseColor("#FF6B6B"));
+        paint.setStrokeWidth(1f);
+    }
+
+    public void setPeaks(WaveformPeaks peaks) {
+        this.peaks = peaks;
+        invalidate();
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        int width = getWidth();
+        int height = getHeight();
+        if (peaks == null || width <= 0 || height <= 0) return;
+
+        int level = peaks.levelFor(width);
+        int count = peaks.peakCount(level);
+        if (count == 0) return;
+
+        if (lines.length < width * 4) lines = new float[width * 4];
+        float mid = height / 2f;
+        float scale = mid / 128f;
+        for (int x = 0; x < width; x++) {
+            int from = (int) ((long) x * count / width);
+            int to = Math.max(from + 1, (int) ((long) (x + 1) * count / width));
+            int min = 127, max = -128;
+            for (int i = from; i < to && i < count; i++) {
+                min = Math.min(min, peaks.min(level, i));
+                max = Math.max(max, peaks.max(level, i));
+            }
+            int o = x * 4;
+            lines[o] = x;
+            lines[o + 1] = mid - max * scale;
+            lines[o + 2] = x;
+            lines[o + 3] = mid - min * scale + 1;
+        }
+        canvas.drawLines(lines, 0, width * 4, paint);
+    }
+}
@@ -0,0 +1,269 @@
+package com.vaibhav.movily;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// 🧪 Builds small, fully valid MP4 files for the rewriter tests and benchmarks: chosen sample
+// sizes, durations, chunking and sync samples, moov before or after mdat, stco or co64.
+// Every sample is filled with a byte derived from its track and index, so a test can check that
+// the bytes a table points at are still the right ones after a rewrite.
+public class Mp4Fixture {
+
+    public static final int TIMESCALE = 1000;  // 1 tick = 1 ms
+
+    public static class Track {
+        final String handler;
+        final int[] sizes;
+        final int[] durations;     // ticks per sample
+        final int[] chunkSamples;  // samples in each chunk, in order
+        final int[] syncSamples;   // 1-based, null = every sample is sync
+
+        public Track(String handler, int[] sizes, int[] durations, int[] chunkSamples, int[] syncSamples) {
+            this.handler = handler;
+            this.sizes = sizes;
+            this.durations = durations;
+            this.chunkSamples = chunkSamples;
+            this.syncSamples = syncSamples;
+        }
+    }
+
+    private Mp4Fixture() {}
+
+    // count samples of one size and duration, samplesPerChunk per chunk (the last may be short)
+    public static Track video(int count, int size, int durationMs, int samplesPerChunk, int gop) {
+        List<Integer> sync = new ArrayList<>();
+        for (int i = 0; i < count; i += gop) sync.add(i + 1);
+        return new Track("vide", fill(count, size), fill(count, durationMs), chunks(count, samplesPerChunk),
+                toArray(sync));
+    }
+
+    public static Track audio(int count, int size, int durationMs, int samplesPerChunk) {
+        return new Track("soun", fill(count, size), fill(count, durationMs), chunks(count, samplesPerChunk), null);
+    }
+
+    public static byte sampleByte(int track, int sample) {
+        return (byte) (track * 31 + sample * 7 + 1);
+    }
+
+    // Chunks are interleaved track by track: chunk 0 of every track, then chunk 1, ...
+    public static File write(File file, boolean moovAtEnd, boolean co64, Track... tracks) throws IOException {
+        byte[] ftyp = Mp4Box.leaf("ftyp", "isom\0\0\2\0isomiso2mp41".getBytes(StandardCharsets.ISO_8859_1)).toBytes();
+        long dataBytes = 0;
+        for (Track track : tracks) {
+            for (int size : track.sizes) dataBytes += size;
+        }
+        int moovSize = moov(tracks, new long[tracks.length][0], co64).toBytes().length;
+        long mdatAt = moovAtEnd ? ftyp.length : ftyp.length + moovSize;
+
+        // Chunk offsets in the interleaved order the data is written below
+        long[][] chunkOffsets = new long[tracks.length][];
+        for (int t = 0; t < tracks.length; t++) chunkOffsets[t] = new long[tracks[t].chunkSamples.length];
+        long position = mdatAt + 8;
+        int[] nextSample = new int[tracks.length];
+        for (int chunk = 0; chunk < maxChunks(tracks); chunk++) {
+            for (int t = 0; t < tracks.length; t++) {
+                if (chunk >= tracks[t].chunkSamples.length) continue;
+                chunkOffsets[t][chunk] = position;
+                for (int s = 0; s < tracks[t].chunkSamples[chunk]; s++) position += tracks[t].sizes[nextSample[t]++];
+            }
+        }
+        byte[] moovBytes = moov(tracks, chunkOffsets, co64).toBytes();
+
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(ftyp);
+            if (!moovAtEnd) out.write(moovBytes);
+            out.write(ByteBuffer.allocate(8).putInt((int) (dataBytes + 8)).put(fourCC("mdat")).array());
+            nextSample = new int[tracks.length];
+            for (int chunk = 0; chunk < maxChunks(tracks); chunk++) {
+                for (int t = 0; t < tracks.length; t++) {
+                    if (chunk >= tracks[t].chunkSamples.length) continue;
+                    for (int s = 0; s < tracks[t].chunkSamples[chunk]; s++) {
+                        int sample = nextSample[t]++;
+                        byte[] data = new byte[tracks[t].sizes[sample]];
+                        Arrays.fill(data, sampleByte(t, sample));
+                        out.write(data);
+                    }
+                }
+            }
+            if (moovAtEnd) out.write(moovBytes);
+        }
+        return file;
+    }
+
+    public static Mp4Box moov(Track[] tracks, long[][] chunkOffsets, boolean co64) {
+        long movieDuration = 0;
+        Mp4Box moov = Mp4Box.container("moov");
+        Mp4Box mvhd = Mp4Box.leaf("mvhd", null);
+        moov.children.add(mvhd);
+        for (int t = 0; t < tracks.length; t++) {
+            Track track = tracks[t];
+            long duration = 0;
+            for (int d : track.durations) duration += d;
+            movieDuration = Math.max(movieDuration, duration);
+            moov.children.add(trak(track, t + 1, duration,
+                    chunkOffsets[t].length > 0 ? chunkOffsets[t] : new long[track.chunkSamples.length], co64));
+        }
+        mvhd.payload = ByteBuffer.allocate(100).putInt(0).putInt(0).putInt(0).putInt(TIMESCALE)
+                .putInt((int) movieDuration).putInt(0x00010000).putShort((short) 0x0100)
+                .put(new byte[10]).put(identityMatrix()).put(new byte[24]).putInt(tracks.length + 1).array();
+        return moov;
+    }
+
+    private static Mp4Box trak(Track track, int id, long duration, long[] chunkOffsets, boolean co64) {
+        boolean video = track.handler.equals("vide");
+        Mp4Box trak = Mp4Box.container("trak");
+        trak.children.add(Mp4Box.leaf("tkhd", ByteBuffer.allocate(84).putInt(3).putInt(0).putInt(0).putInt(id)
+                .putInt(0).putInt((int) duration).put(new byte[8]).putShort((short) 0).putShort((short) 0)
+                .putShort((short) (video ? 0 : 0x0100)).putShort((short) 0).put(identityMatrix())
+                .putInt(video ? 320 << 16 : 0).putInt(video ? 240 << 16 : 0).array()));
+
+        Mp4Box mdia = Mp4Box.container("mdia");
+        mdia.children.add(Mp4Box.leaf("mdhd", ByteBuffer.allocate(24).putInt(0).putInt(0).putInt(0)
+                .putInt(TIMESCALE).putInt((int) duration).putShort((short) 0x55C4).putShort((short) 0).array()));
+        mdia.children.add(Mp4Box.leaf("hdlr", ByteBuffer.allocate(25).putInt(0).putInt(0)
+                .put(fourCC(track.handler)).put(new byte[12]).put((byte) 0).array()));
+
+        Mp4Box minf = Mp4Box.container("minf");
+        minf.children.add(video
+                ? Mp4Box.leaf("vmhd", ByteBuffer.allocate(12).putInt(1).array())
+                : Mp4Box.leaf("smhd", new byte[8]));
+        Mp4Box dinf = Mp4Box.container("dinf");
+        Mp4Box url = Mp4Box.leaf("url ", ByteBuffer.allocate(4).putInt(1).array());
+        dinf.children.add(Mp4Box.leaf("dref", concat(ByteBuffer.allocate(8).putInt(0).putInt(1).array(), bytes(url))));
+        minf.children.add(dinf);
+        minf.children.add(stbl(track, chunkOffsets, co64));
+        mdia.children.add(minf);
+        trak.children.add(mdia);
+        return trak;
+    }
+
+    private static Mp4Box stbl(Track track, long[] chunkOffsets, boolean co64) {
+        Mp4Box stbl = Mp4Box.container("stbl");
+        byte[] entry = track.handler.equals("vide") ? bytes(visualEntry()) : bytes(audioEntry());
+        stbl.children.add(Mp4Box.leaf("stsd", concat(ByteBuffer.allocate(8).putInt(0).putInt(1).array(), entry)));
+
+        List<int[]> stts = runs(track.durations);
+        ByteBuffer buf = ByteBuffer.allocate(8 + stts.size() * 8).putInt(0).putInt(stts.size());
+        for (int[] run : stts) buf.putInt(run[1]).putInt(run[0]);
+        stbl.children.add(Mp4Box.leaf("stts", buf.array()));
+
+        if (track.syncSamples != null) {
+            buf = ByteBuffer.allocate(8 + track.syncSamples.length * 4).putInt(0).putInt(track.syncSamples.length);
+            for (int sample : track.syncSamples) buf.putInt(sample);
+            stbl.children.add(Mp4Box.leaf("stss", buf.array()));
+        }
+
+        // stsc: one entry per run of equal-sized chunks, first chunk 1-based
+        List<int[]> stsc = new ArrayList<>();
+        for (int chunk = 0; chunk < track.chunkSamples.length; chunk++) {
+            if (stsc.isEmpty() || stsc.get(stsc.size() - 1)[1] != track.chunkSamples[chunk]) {
+                stsc.add(new int[]{chunk + 1, track.chunkSamples[chunk]});
+            }
+        }
+        buf = ByteBuffer.allocate(8 + stsc.size() * 12).putInt(0).putInt(stsc.size());
+        for (int[] run : stsc) buf.putInt(run[0]).putInt(run[1]).putInt(1);
+        stbl.children.add(Mp4Box.leaf("stsc", buf.array()));
+
+        buf = ByteBuffer.allocate(12 + track.sizes.length * 4).putInt(0).putInt(0).putInt(track.sizes.length);
+        for (int size : track.sizes) buf.putInt(size);
+        stbl.children.add(Mp4Box.leaf("stsz", buf.array()));
+
+        buf = ByteBuffer.allocate(8 + chunkOffsets.length * (co64 ? 8 : 4)).putInt(0).putInt(chunkOffsets.length);
+        for (long offset : chunkOffsets) {
+            if (co64) {
+                buf.putLong(offset);
+            } else {
+                buf.putInt((int) offset);
+            }
+        }
+        stbl.children.add(Mp4Box.leaf(co64 ? "co64" : "stco", buf.array()));
+        return stbl;
+    }
+
+    // AAC-LC 44.1 kHz stereo, so MediaExtractor accepts the track on a device
+    private static Mp4Box audioEntry() {
+        byte[] decoderSpecific = {0x05, 2, 0x12, 0x10};
+        byte[] decoderConfig = concat(new byte[]{0x04, (byte) (13 + decoderSpecific.length), 0x40, 0x15, 0, 0x18, 0,
+                0, 0x01, (byte) 0xF4, 0, 0, 0x01, (byte) 0xF4, 0}, decoderSpecific);
+        byte[] slConfig = {0x06, 1, 0x02};
+        byte[] es = concat(new byte[]{0x03, (byte) (3 + decoderConfig.length + slConfig.length), 0, 1, 0},
+                concat(decoderConfig, slConfig));
+        Mp4Box mp4a = Mp4Box.leaf("mp4a", ByteBuffer.allocate(28).put(new byte[6]).putShort((short) 1)
+                .put(new byte[8]).putShort((short) 2).putShort((short) 16).putInt(0).putInt(44100 << 16).array());
+        mp4a.payload = concat(mp4a.payload, bytes(Mp4Box.leaf("esds", concat(new byte[4], es))));
+        return mp4a;
+    }
+
+    // Only the JVM tests use video tracks - the entry is well-formed but carries no codec config
+    private static Mp4Box visualEntry() {
+        return Mp4Box.leaf("avc1", ByteBuffer.allocate(78).put(new byte[6]).putShort((short) 1).put(new byte[16])
+                .putShort((short) 320).putShort((short) 240).putInt(0x00480000).putInt(0x00480000).putInt(0)
+                .putShort((short) 1).put(new byte[32]).putShort((short) 0x18).putShort((short) -1).array());
+    }
+
+    private static byte[] identityMatrix() {
+        return ByteBuffer.allocate(36).putInt(0x00010000).putInt(0).putInt(0)
+                .putInt(0).putInt(0x00010000).putInt(0).putInt(0).putInt(0).putInt(0x40000000).array();
+    }
+
+    // [value, count] runs of equal neighbours
+    private static List<int[]> runs(int[] values) {
+        List<int[]> runs = new ArrayList<>();
+        for (int value : values) {
+            if (!runs.isEmpty() && runs.get(runs.size() - 1)[0] == value) {
+                runs.get(runs.size() - 1)[1]++;
+            } else {
+                runs.add(new int[]{value, 1});
+            }
+        }
+        return runs;
+    }
+
+    private static int maxChunks(Track[] tracks) {
+        int max = 0;
+        for (Track track : tracks) max = Math.max(max, track.chunkSamples.length);
+        return max;
+    }
+
+    private static int[] fill(int count, int value) {
+        int[] values = new int[count];
+        Arrays.fill(values, value);
+        return values;
+    }
+
+    private static int[] chunks(int count, int samplesPerChunk) {
+        int[] chunks = new int[(count + samplesPerChunk - 1) / samplesPerChunk];
+        for (int i = 0; i < chunks.length; i++) chunks[i] = Math.min(samplesPerChunk, count - i * samplesPerChunk);
+        return chunks;
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        int[] array = new int[values.size()];
+        for (int i = 0; i < array.length; i++) array[i] = values.get(i);
+        return array;
+    }
+
+    private static byte[] fourCC(String type) {
+        return type.getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private static byte[] bytes(Mp4Box box) {
+        try {
+            return box.toBytes();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] concat(byte[] a, byte[] b) {
+        byte[] out = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, out, a.length, b.length);
+        return out;
+    }
+}
@@ -0,0 +1,101 @@
+package com.vaibhav.movily;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CacheBudgetCoordinatorTest {
+
+    private static final long MB = 1024 * 1024;
+
+    private final List<FakeCache> registered = new ArrayList<>();
+
+    @After
+    public void tearDown() {
+        for (FakeCache cache : registered) CacheBudgetCoordinator.unregister(cache);
+    }
+
+    @Test
+    public void underBudget_nothingIsTrimmed() {
+        long budget = CacheBudgetCoordinator.budgetBytes();
+        FakeCache low = register(CacheBudgetCoordinator.PRIORITY_LOW, budget / 4);
+        FakeCache high = register(CacheBudgetCoordinator.PRIORITY_HIGH, budget / 4);
+
+        CacheBudgetCoordinator.enforce();
+
+        assertEquals(0, low.trims);
+        assertEquals(0, high.trims);
+    }
+
+    @Test
+    public void overBudget_lowestPriorityGivesBackFirst() {
+        long budget = CacheBudgetCoordinator.budgetBytes();
+        FakeCache high = register(CacheBudgetCoordinator.PRIORITY_HIGH, budget / 2);
+        FakeCache normal = register(CacheBudgetCoordinator.PRIORITY_NORMAL, budget / 4);
+        FakeCache low = register(CacheBudgetCoordinator.PRIORITY_LOW, budget / 2);
+
+        CacheBudgetCoordinator.enforce();
+
+        // 1.25 × budget registered: the low cache alone covers the quarter over
+        assertEquals(budget / 4, low.size);
+        assertEquals(budget / 4, normal.size);
+        assertEquals(budget / 2, high.size);
+        assertEquals(0, normal.trims);
+        assertEquals(0, high.trims);
+    }
+
+    @Test
+    public void farOverBudget_trimsUpThePriorities() {
+        long budget = CacheBudgetCoordinator.budgetBytes();
+        FakeCache low = register(CacheBudgetCoordinator.PRIORITY_LOW, budget / 4);
+        FakeCache normal = register(CacheBudgetCoordinator.PRIORITY_NORMAL, budget);
+        FakeCache high = register(CacheBudgetCoordinator.PRIORITY_HIGH, budget / 2);
+
+        CacheBudgetCoordinator.enforce();
+
+        assertEquals(0, low.size);
+        assertEquals(budget / 2, normal.size);
+        assertEquals(budget / 2, high.size);
+        assertEquals(0, high.trims);
+    }
+
+    @Test
+    public void fit_capsACacheAtHalfTheBudget() {
+        long budget = CacheBudgetCoordinator.budgetBytes();
+        assertEquals(budget / 2 / MB, CacheBudgetCoordinator.fit(MB, 10_000, 1));
+        assertEquals(3, CacheBudgetCoordinator.fit(MB, 3, 1));
+        assertEquals(2, CacheBudgetCoordinator.fit(budget, 10, 2));
+    }
+
+    private FakeCache register(int priority, long size) {
+        FakeCache cache = new FakeCache(size);
+        registered.add(cache);
+        CacheBudgetCoordinator.register("test" + registered.size(), priority, cache);
+        cache.trims = 0;  // registering enforces too - only count what the test triggers
+        return cache;
+    }
+
+    private static class FakeCache implements CacheBudgetCoordinator.ManagedCache {
+        long size;
+        int trims;
+
+        FakeCache(long size) {
+            this.size = size;
+        }
+
+        @Override
+        public long sizeBytes() {
+            return size;
+        }
+
+        @Override
+        public void trimTo(long maxBytes) {
+            trims++;
+            size = Math.min(size, maxBytes);
+        }
+    }
+}
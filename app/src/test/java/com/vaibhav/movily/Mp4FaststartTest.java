@@ -0,0 +1,124 @@
+package com.vaibhav.movily;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class Mp4FaststartTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static Mp4Fixture.Track[] tracks() {
+        return new Mp4Fixture.Track[]{Mp4Fixture.video(30, 700, 33, 3, 10), Mp4Fixture.audio(50, 90, 20, 7)};
+    }
+
+    @Test
+    public void moovAtEnd_movesToFrontAndShiftsChunkOffsets() throws IOException {
+        File source = Mp4Fixture.write(folder.newFile(), true, false, tracks());
+        File dest = folder.newFile();
+
+        assertTrue(copy(source, dest));
+
+        assertEquals(source.length(), dest.length());
+        List<Mp4Box> topLevel = topLevel(dest);
+        assertEquals("ftyp", topLevel.get(0).type);
+        assertEquals("moov", topLevel.get(1).type);
+        assertEquals("mdat", topLevel.get(2).type);
+        assertEquals(3, topLevel.size());
+
+        long shift = topLevel.get(1).size;
+        Mp4SampleTable before = Mp4TailTrimmerTest.track(source, "vide");
+        Mp4SampleTable after = Mp4TailTrimmerTest.track(dest, "vide");
+        for (int i = 0; i < before.chunkOffsets.length; i++) {
+            assertEquals(before.chunkOffsets[i] + shift, after.chunkOffsets[i]);
+        }
+        Mp4TailTrimmerTest.assertSamplesIntact(dest, after, 0);
+        Mp4TailTrimmerTest.assertSamplesIntact(dest, Mp4TailTrimmerTest.track(dest, "soun"), 1);
+    }
+
+    @Test
+    public void co64_isShiftedInPlace() throws IOException {
+        File source = Mp4Fixture.write(folder.newFile(), true, true, tracks());
+        File dest = folder.newFile();
+
+        assertTrue(copy(source, dest));
+
+        Mp4Box stbl = Mp4TailTrimmerTest.moov(dest).find("trak/mdia/minf/stbl");
+        assertNotNull(stbl.child("co64"));
+        assertNull(stbl.child("stco"));
+        Mp4TailTrimmerTest.assertSamplesIntact(dest, Mp4TailTrimmerTest.track(dest, "vide"), 0);
+    }
+
+    @Test
+    public void alreadyFaststart_isCopiedUnchanged() throws IOException {
+        File source = Mp4Fixture.write(folder.newFile(), false, false, tracks());
+        File dest = folder.newFile();
+
+        assertFalse(copy(source, dest));
+        assertArrayEquals(Files.readAllBytes(source.toPath()), Files.readAllBytes(dest.toPath()));
+    }
+
+    @Test
+    public void notMp4_isCopiedUnchanged() throws IOException {
+        File source = folder.newFile();
+        byte[] junk = new byte[10_000];
+        for (int i = 0; i < junk.length; i++) junk[i] = (byte) (i * 13);
+        Files.write(source.toPath(), junk);
+        File dest = folder.newFile();
+
+        assertFalse(copy(source, dest));
+        assertArrayEquals(junk, Files.readAllBytes(dest.toPath()));
+    }
+
+    // Offsets just under 4 GB overflow stco once moov's size is added - the table becomes co64
+    @Test
+    public void shiftPastFourGigabytes_widensStcoToCo64() throws IOException {
+        Mp4Fixture.Track[] tracks = {Mp4Fixture.video(4, 100, 33, 1, 4)};
+        long[] offsets = {0xFFFFFF00L, 0xFFFFFF64L, 0xFFFFFFC8L, 0xFFFFFFF0L};
+        Mp4Box moov = Mp4Fixture.moov(tracks, new long[][]{offsets}, false);
+        Mp4Box mdat = new Mp4Box("mdat", 32, 0x100000100L, 16);
+
+        byte[] relocated = Mp4Faststart.relocatedMoov(moov, mdat);
+
+        Mp4Box stbl = parse(relocated).find("trak/mdia/minf/stbl");
+        assertNull(stbl.child("stco"));
+        ByteBuffer co64 = stbl.child("co64").payloadBuffer();
+        assertEquals(offsets.length, co64.getInt(4));
+        for (int i = 0; i < offsets.length; i++) {
+            assertEquals(offsets[i] + relocated.length, co64.getLong(8 + i * 8));
+        }
+    }
+
+    // ---- helpers ----
+
+    private static boolean copy(File source, File dest) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(source, "r")) {
+            return Mp4Faststart.copy(raf.getChannel(), dest);
+        }
+    }
+
+    private static List<Mp4Box> topLevel(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            return Mp4Parser.readTopLevel(raf.getChannel());
+        }
+    }
+
+    private Mp4Box parse(byte[] moov) throws IOException {
+        File file = folder.newFile();
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(moov);
+        }
+        return Mp4TailTrimmerTest.moov(file);
+    }
+}
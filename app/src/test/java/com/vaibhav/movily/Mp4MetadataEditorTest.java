@@ -0,0 +1,68 @@
+package com.vaibhav.movily;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+public class Mp4MetadataEditorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void rotate_patchesOnlyTheVideoMatrix() throws IOException {
+        File file = Mp4Fixture.write(folder.newFile(), false, false,
+                Mp4Fixture.video(10, 200, 33, 5, 5), Mp4Fixture.audio(10, 50, 33, 5));
+        byte[] before = Files.readAllBytes(file.toPath());
+
+        assertEquals(90, Mp4MetadataEditor.rotate(file, 90));
+
+        byte[] after = Files.readAllBytes(file.toPath());
+        assertEquals(before.length, after.length);
+        int first = -1, last = -1;
+        for (int i = 0; i < before.length; i++) {
+            if (before[i] == after[i]) continue;
+            if (first < 0) first = i;
+            last = i;
+        }
+        assertTrue(first >= 0 && last - first < 36);
+
+        // 90°: a = 0, b = 1.0, c = -1.0, d = 0 in 16.16
+        ByteBuffer matrix = ByteBuffer.wrap(videoTkhd(file).payload, 40, 36);
+        assertEquals(0, matrix.getInt());
+        assertEquals(0x00010000, matrix.getInt());
+        matrix.getInt();
+        assertEquals(-0x00010000, matrix.getInt());
+        assertEquals(0, matrix.getInt());
+    }
+
+    @Test
+    public void rotate_accumulatesAndWrapsAround() throws IOException {
+        File file = Mp4Fixture.write(folder.newFile(), true, false, Mp4Fixture.video(10, 200, 33, 5, 5));
+        byte[] original = Files.readAllBytes(file.toPath());
+
+        assertEquals(90, Mp4MetadataEditor.rotate(file, 90));
+        assertEquals(270, Mp4MetadataEditor.rotate(file, 180));
+        assertEquals(180, Mp4MetadataEditor.rotate(file, -90));
+        assertEquals(0, Mp4MetadataEditor.rotate(file, 180));
+
+        assertArrayEquals(original, Files.readAllBytes(file.toPath()));
+    }
+
+    @Test(expected = IOException.class)
+    public void rotate_withoutVideoTrack_fails() throws IOException {
+        File file = Mp4Fixture.write(folder.newFile(), false, false, Mp4Fixture.audio(10, 50, 33, 5));
+        Mp4MetadataEditor.rotate(file, 90);
+    }
+
+    private static Mp4Box videoTkhd(File file) throws IOException {
+        return Mp4TailTrimmerTest.track(file, "vide").trak.child("tkhd");
+    }
+}
@@ -0,0 +1,186 @@
+package com.vaibhav.movily;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class Mp4TailTrimmerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // 30 frames of 100 ms, 4 per chunk, a keyframe every 10 → cut at 1.45 s keeps frames 0..14
+    private File trimmable(boolean moovAtEnd) throws IOException {
+        return Mp4Fixture.write(folder.newFile(), moovAtEnd, false, Mp4Fixture.video(30, 500, 100, 4, 10));
+    }
+
+    @Test
+    public void moovAtEnd_cutsTablesAndTruncates() throws IOException {
+        File file = trimmable(true);
+        long before = file.length();
+
+        assertTrue(Mp4TailTrimmer.trimTail(file, 1_450_000, null));
+
+        Mp4SampleTable table = track(file, "vide");
+        assertEquals(15, table.sampleCount());
+        assertArrayEquals(new int[]{0, 10}, table.syncSamples);
+        // 15 samples at 4 per chunk: chunks 1-3 full, chunk 4 holds the remaining 3
+        assertArrayEquals(new int[]{1, 4}, table.stscFirstChunk);
+        assertArrayEquals(new int[]{4, 3}, table.stscSamplesPerChunk);
+        assertEquals(4, table.chunkOffsets.length);
+        assertEquals(1400, table.decodeTimes[14]);
+        assertEquals(1500, mdhdDuration(file));
+        assertSamplesIntact(file, table, 0);
+
+        // Dropped mdat is gone: moov follows the last kept sample and ends the file
+        List<Mp4Box> topLevel = topLevel(file);
+        Mp4Box mdat = Mp4Parser.findTopLevel(topLevel, "mdat");
+        Mp4Box moov = Mp4Parser.findTopLevel(topLevel, "moov");
+        assertEquals(table.sampleOffsets()[14] + 500, mdat.end());
+        assertEquals(mdat.end(), moov.offset);
+        assertEquals(file.length(), moov.end());
+        assertTrue(file.length() < before - 15 * 500);
+    }
+
+    @Test
+    public void moovAtFront_keepsSlackAndPadsWithFree() throws IOException {
+        File file = trimmable(false);
+        long before = file.length();
+
+        assertTrue(Mp4TailTrimmer.trimTail(file, 1_450_000, null));
+
+        assertEquals(before, file.length());
+        List<Mp4Box> topLevel = topLevel(file);
+        assertEquals("moov", topLevel.get(1).type);
+        assertEquals("free", topLevel.get(2).type);
+        assertEquals("mdat", topLevel.get(3).type);
+        Mp4SampleTable table = track(file, "vide");
+        assertEquals(15, table.sampleCount());
+        assertSamplesIntact(file, table, 0);
+    }
+
+    @Test
+    public void cutInsideSecondSttsRun_keepsBothRuns() throws IOException {
+        int[] durations = new int[20];
+        for (int i = 0; i < durations.length; i++) durations[i] = i < 10 ? 100 : 50;
+        int[] sizes = new int[20];
+        Arrays.fill(sizes, 300);
+        Mp4Fixture.Track track = new Mp4Fixture.Track("vide", sizes, durations,
+                new int[]{5, 5, 5, 5}, new int[]{1, 11});
+        File file = Mp4Fixture.write(folder.newFile(), true, false, track);
+
+        // Frame 10 starts at 1000 ms, each later one 50 ms on: < 1.2 s keeps 10 + 4
+        assertTrue(Mp4TailTrimmer.trimTail(file, 1_200_000, null));
+
+        Mp4Box stts = moov(file).find("trak/mdia/minf/stbl/stts");
+        ByteBuffer buf = stts.payloadBuffer();
+        assertEquals(2, buf.getInt(4));
+        assertEquals(10, buf.getInt(8));
+        assertEquals(100, buf.getInt(12));
+        assertEquals(4, buf.getInt(16));
+        assertEquals(50, buf.getInt(20));
+        assertEquals(1200, mdhdDuration(file));
+
+        Mp4SampleTable table = track(file, "vide");
+        assertEquals(14, table.sampleCount());
+        assertArrayEquals(new int[]{0, 10}, table.syncSamples);
+        // Third chunk is cut to 4 of its 5 samples
+        assertArrayEquals(new int[]{1, 3}, table.stscFirstChunk);
+        assertArrayEquals(new int[]{5, 4}, table.stscSamplesPerChunk);
+        assertSamplesIntact(file, table, 0);
+    }
+
+    @Test
+    public void interleavedAudio_isCutAtTheSameTime() throws IOException {
+        File file = Mp4Fixture.write(folder.newFile(), true, false,
+                Mp4Fixture.video(30, 500, 100, 4, 10), Mp4Fixture.audio(70, 40, 40, 5));
+
+        assertTrue(Mp4TailTrimmer.trimTail(file, 1_450_000, null));
+
+        Mp4SampleTable audio = track(file, "soun");
+        // Audio samples start every 40 ms: 0..1440 ms is 37 samples
+        assertEquals(37, audio.sampleCount());
+        assertSamplesIntact(file, audio, 1);
+        assertSamplesIntact(file, track(file, "vide"), 0);
+    }
+
+    @Test
+    public void nothingToCut_leavesFileAlone() throws IOException {
+        File file = trimmable(true);
+        byte[] original = Files.readAllBytes(file.toPath());
+
+        assertFalse(Mp4TailTrimmer.trimTail(file, 10_000_000, null));
+        assertArrayEquals(original, Files.readAllBytes(file.toPath()));
+    }
+
+    @Test
+    public void undoRecord_restoresAndRedoes() throws IOException {
+        for (boolean moovAtEnd : new boolean[]{true, false}) {
+            File file = trimmable(moovAtEnd);
+            byte[] original = Files.readAllBytes(file.toPath());
+            File undo = folder.newFile();
+            File redo = folder.newFile();
+            File undoAgain = folder.newFile();
+
+            assertTrue(Mp4TailTrimmer.trimTail(file, 1_450_000, undo));
+            byte[] trimmed = Files.readAllBytes(file.toPath());
+            assertEquals(15, track(file, "vide").sampleCount());
+            // The record is the replaced moov, not the video
+            assertTrue(undo.length() < 4096);
+
+            Mp4TailTrimmer.replay(file, undo, redo);
+            assertArrayEquals(original, Files.readAllBytes(file.toPath()));
+
+            Mp4TailTrimmer.replay(file, redo, undoAgain);
+            assertArrayEquals(trimmed, Files.readAllBytes(file.toPath()));
+            assertFalse(new File(file.getPath() + ".journal").exists());
+        }
+    }
+
+    // ---- helpers ----
+
+    private static List<Mp4Box> topLevel(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            return Mp4Parser.readTopLevel(raf.getChannel());
+        }
+    }
+
+    static Mp4Box moov(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            FileChannel channel = raf.getChannel();
+            return Mp4Parser.readTree(channel, Mp4Parser.findTopLevel(Mp4Parser.readTopLevel(channel), "moov"));
+        }
+    }
+
+    static Mp4SampleTable track(File file, String handler) throws IOException {
+        return Mp4SampleTable.findTrack(moov(file), handler);
+    }
+
+    private static long mdhdDuration(File file) throws IOException {
+        return moov(file).find("trak/mdia/mdhd").payloadBuffer().getInt(16);
+    }
+
+    // Every sample the tables point at still holds the bytes the fixture wrote for it
+    static void assertSamplesIntact(File file, Mp4SampleTable table, int trackIndex) throws IOException {
+        long[] offsets = table.sampleOffsets();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            for (int i = 0; i < table.sampleCount(); i++) {
+                raf.seek(offsets[i]);
+                byte[] data = new byte[table.sampleSizes[i]];
+                raf.readFully(data);
+                for (byte b : data) assertEquals("sample " + i, Mp4Fixture.sampleByte(trackIndex, i), b);
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.vaibhav.movily;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static com.vaibhav.movily.SilenceDetectorTest.assertRanges;
+import static com.vaibhav.movily.SilenceDetectorTest.range;
+
+public class RemuxEngineTest {
+
+    @Test
+    public void mergeAnchored_startsEachRangeAtItsKeyframe() {
+        List<RemuxEngine.Range> merged = RemuxEngine.mergeAnchored(Arrays.asList(
+                range(0, 2_000_000), range(4_300_000, 6_000_000)), Arrays.asList(0L, 4_000_000L));
+
+        assertRanges(merged, 0, 2_000_000, 4_000_000, 6_000_000);
+    }
+
+    // Silence 2.0-3.0 s removed, but the keyframe before 3.0 s is at 1.0 s: copying from there
+    // would repeat 1.0-2.0 s and bring the whole gap back - the two ranges become one
+    @Test
+    public void mergeAnchored_anchorInsideRemovedGap_mergesIntoPrevious() {
+        List<RemuxEngine.Range> merged = RemuxEngine.mergeAnchored(Arrays.asList(
+                range(0, 2_000_000), range(3_000_000, 5_000_000)), Arrays.asList(0L, 1_000_000L));
+
+        assertRanges(merged, 0, 5_000_000);
+    }
+
+    @Test
+    public void mergeAnchored_anchorExactlyAtPreviousEnd_merges() {
+        List<RemuxEngine.Range> merged = RemuxEngine.mergeAnchored(Arrays.asList(
+                range(0, 2_000_000), range(2_400_000, 3_000_000)), Arrays.asList(0L, 2_000_000L));
+
+        assertRanges(merged, 0, 3_000_000);
+    }
+
+    @Test
+    public void mergeAnchored_chainsAcrossSeveralShortRanges() {
+        List<RemuxEngine.Range> merged = RemuxEngine.mergeAnchored(Arrays.asList(
+                range(0, 1_000_000), range(1_200_000, 1_500_000), range(1_700_000, 2_000_000),
+                range(6_000_000, 7_000_000)), Arrays.asList(0L, 0L, 1_000_000L, 5_000_000L));
+
+        assertRanges(merged, 0, 2_000_000, 5_000_000, 7_000_000);
+    }
+
+    // A keyframe inside the gap but after the previous end keeps the ranges apart: only 2.5-3.0 s
+    // of the removed second comes back
+    @Test
+    public void mergeAnchored_anchorAfterPreviousEnd_staysSeparate() {
+        List<RemuxEngine.Range> merged = RemuxEngine.mergeAnchored(Arrays.asList(
+                range(0, 2_000_000), range(3_000_000, 5_000_000)), Arrays.asList(0L, 2_500_000L));
+
+        assertRanges(merged, 0, 2_000_000, 2_500_000, 5_000_000);
+    }
+
+    @Test
+    public void mergeAnchored_neverShrinksTheMergedEnd() {
+        List<RemuxEngine.Range> merged = RemuxEngine.mergeAnchored(Arrays.asList(
+                range(0, 5_000_000), range(5_500_000, 6_000_000)), Arrays.asList(0L, 4_000_000L));
+
+        assertRanges(merged, 0, 6_000_000);
+    }
+}
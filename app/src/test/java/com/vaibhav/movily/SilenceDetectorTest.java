@@ -0,0 +1,54 @@
+package com.vaibhav.movily;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SilenceDetectorTest {
+
+    @Test
+    public void keepRanges_areTheGapsBetweenSilences() {
+        List<RemuxEngine.Range> keep = SilenceDetector.keepRanges(Arrays.asList(
+                range(2_000_000, 3_000_000), range(5_000_000, 5_500_000)), 10_000_000);
+
+        assertRanges(keep, 0, 2_000_000, 3_000_000, 5_000_000, 5_500_000, 10_000_000);
+    }
+
+    @Test
+    public void keepRanges_dropLeadingAndTrailingSilence() {
+        List<RemuxEngine.Range> keep = SilenceDetector.keepRanges(Arrays.asList(
+                range(0, 1_000_000), range(8_000_000, 10_000_000)), 10_000_000);
+
+        assertRanges(keep, 1_000_000, 8_000_000);
+    }
+
+    @Test
+    public void keepRanges_overlappingSilencesCountOnce() {
+        List<RemuxEngine.Range> keep = SilenceDetector.keepRanges(Arrays.asList(
+                range(1_000_000, 4_000_000), range(2_000_000, 3_000_000), range(3_500_000, 5_000_000)), 6_000_000);
+
+        assertRanges(keep, 0, 1_000_000, 5_000_000, 6_000_000);
+    }
+
+    @Test
+    public void keepRanges_noSilenceKeepsEverything() {
+        assertRanges(SilenceDetector.keepRanges(Collections.emptyList(), 4_000_000), 0, 4_000_000);
+    }
+
+    static RemuxEngine.Range range(long startUs, long endUs) {
+        return new RemuxEngine.Range(startUs, endUs);
+    }
+
+    // bounds: start0, end0, start1, end1, ...
+    static void assertRanges(List<RemuxEngine.Range> ranges, long... bounds) {
+        assertEquals(bounds.length / 2, ranges.size());
+        for (int i = 0; i < ranges.size(); i++) {
+            assertEquals("start " + i, bounds[i * 2], ranges.get(i).startUs);
+            assertEquals("end " + i, bounds[i * 2 + 1], ranges.get(i).endUs);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.vaibhav.movily;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class TimeStretcherTest {
+
+    private static final int RATE = 44100;
+
+    @Test
+    public void doubleSpeed_halvesDurationAndKeepsPitch() {
+        assertStretch(2f, 1);
+    }
+
+    @Test
+    public void halfSpeed_doublesDurationAndKeepsPitch() {
+        assertStretch(0.5f, 1);
+    }
+
+    @Test
+    public void stereo_keepsChannelsInterleaved() {
+        short[] out = stretch(sine(440, 2, 2), 2, 1.5f);
+        assertEquals(0, out.length % 2);
+        // Both channels carry the same tone, so every frame must stay identical across them
+        for (int i = 0; i < out.length; i += 2) assertEquals("frame " + i / 2, out[i], out[i + 1]);
+    }
+
+    // Length follows 1/speed (less a block still buffered at the end) and the tone stays at 440 Hz
+    private static void assertStretch(float speed, int channels) {
+        short[] in = sine(440, 4, channels);
+        short[] out = stretch(in, channels, speed);
+
+        double expectedFrames = in.length / channels / speed;
+        int outFrames = out.length / channels;
+        assertTrue("frames " + outFrames, outFrames <= expectedFrames + RATE * 0.01);
+        assertTrue("frames " + outFrames, outFrames >= expectedFrames - RATE * 0.1);
+        assertEquals(440, frequency(out, channels), 440 * 0.03);
+    }
+
+    // Fed in odd-sized pieces, the way decoder buffers arrive
+    private static short[] stretch(short[] in, int channels, float speed) {
+        short[][] out = {new short[0]};
+        TimeStretcher stretcher = new TimeStretcher(RATE, channels, speed, (samples, count) -> {
+            short[] grown = Arrays.copyOf(out[0], out[0].length + count);
+            System.arraycopy(samples, 0, grown, out[0].length, count);
+            out[0] = grown;
+        });
+        int piece = 1237 * channels;
+        for (int at = 0; at < in.length; at += piece) {
+            int count = Math.min(piece, in.length - at);
+            stretcher.process(Arrays.copyOfRange(in, at, at + count), count);
+        }
+        return out[0];
+    }
+
+    private static short[] sine(double hz, double seconds, int channels) {
+        int frames = (int) (RATE * seconds);
+        short[] samples = new short[frames * channels];
+        for (int i = 0; i < frames; i++) {
+            short value = (short) (12000 * Math.sin(2 * Math.PI * hz * i / RATE));
+            for (int c = 0; c < channels; c++) samples[i * channels + c] = value;
+        }
+        return samples;
+    }
+
+    // Rising zero crossings per second on the first channel
+    private static double frequency(short[] samples, int channels) {
+        int crossings = 0;
+        int frames = samples.length / channels;
+        for (int i = 1; i < frames; i++) {
+            if (samples[(i - 1) * channels] < 0 && samples[i * channels] >= 0) crossings++;
+        }
+        return crossings * (double) RATE / frames;
+    }
+}